@@ -0,0 +1,82 @@
+package com.bluestaq.elevatorchallenge.controller;
+
+import com.bluestaq.elevatorchallenge.ElevatorApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH load benchmark of the REST front end. The full application runs on a random port and 1000 client threads
+ * press floor buttons over HTTP as fast as they get answers, once on virtual request threads and once on the
+ * platform thread pool of Tomcat (200 threads), once answered when the press is queued and once when the car
+ * applied it. Reports requests/s and the latency percentiles (p0.99 is the p99).
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ButtonPressLoadBenchmark"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 2, time = 5)
+@Threads(1000)
+@Fork(value = 1, jvmArgs = {"-Xss512k"})
+public class ButtonPressLoadBenchmark {
+
+    private static final int MAX_FLOOR = 60;
+    private static final int CAR_COUNT = 8;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"true", "false"})
+        boolean virtualThreads;
+
+        @Param({"false", "true"})
+        boolean await;
+
+        ConfigurableApplicationContext context;
+        HttpClient client;
+        String baseUrl;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = new SpringApplicationBuilder(ElevatorApplication.class)
+                    .run("--server.port=0",
+                            "--spring.threads.virtual.enabled=" + virtualThreads,
+                            "--elevator.car-count=" + CAR_COUNT,
+                            "--elevator.max-floor=" + MAX_FLOOR,
+                            // the journal and the per press log lines would measure the disk instead
+                            "--elevator.journal.enabled=false",
+                            "--logging.level.com.bluestaq=OFF");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/ElevatorChallenge/pressFloorNumber?await=" + await;
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            client.close();
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Random random = new Random();
+    }
+
+    @Benchmark
+    public int pressFloorButton(Server server, Client client) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl
+                + "&carId=" + (1 + client.random.nextInt(CAR_COUNT))
+                + "&targetFloorNumber=" + (1 + client.random.nextInt(MAX_FLOOR)))).build();
+        return server.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,109 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the destination manager hot paths across building heights and queue depths.
+ * The add benchmarks remove the floor again and the remove benchmark re-adds it, so the queue depth
+ * stays constant for the whole run.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="-prof gc DestinationManagerBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DestinationManagerBenchmark {
+
+    @Param({"20", "100", "500"})
+    int maxFloor;
+
+    @Param({"1", "16", "64"})
+    int queueDepth;
+
+    ElevatorState elevatorState;
+    ElevatorDestinationManager destinationManager;
+
+    // floors that are not queued, used to add and remove again
+    int[] freeFloors;
+    // floors that are queued, used to remove and add again
+    int[] queuedFloors;
+    int freeIndex;
+    int queuedIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        elevatorState = new ElevatorState(1);
+        elevatorState.setMaxFloor(maxFloor);
+        elevatorState.setCurrentFloor(maxFloor / 2);
+        elevatorState.setDirection(ElevatorDirection.UP);
+        destinationManager = new ElevatorDestinationManager(maxFloor);
+
+        // spread the queued floors over the whole building, never the floor the car is on
+        List<Integer> candidates = new ArrayList<>();
+        for (int floor = 1; floor <= maxFloor; floor++) {
+            if (floor != elevatorState.getCurrentFloor()) {
+                candidates.add(floor);
+            }
+        }
+        Collections.shuffle(candidates, new Random(42));
+        int depth = Math.min(queueDepth, candidates.size() - 1);
+
+        queuedFloors = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            queuedFloors[i] = candidates.get(i);
+            destinationManager.addDestination(queuedFloors[i], elevatorState);
+        }
+        freeFloors = candidates.subList(depth, candidates.size()).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public boolean addDestination() {
+        int floor = nextFreeFloor();
+        boolean added = destinationManager.addDestination(floor, elevatorState);
+        destinationManager.removeDestination(floor);
+        return added;
+    }
+
+    @Benchmark
+    public boolean addFloorRequestWithDirection() {
+        int floor = nextFreeFloor();
+        ElevatorDirection direction = (floor & 1) == 0 ? ElevatorDirection.UP : ElevatorDirection.DOWN;
+        boolean added = destinationManager.addFloorRequestWithDirection(floor, direction, elevatorState);
+        destinationManager.removeDestination(floor);
+        return added;
+    }
+
+    @Benchmark
+    public int getNextDestination() {
+        return destinationManager.getNextDestination(elevatorState);
+    }
+
+    @Benchmark
+    public boolean removeDestination() {
+        int floor = queuedFloors[queuedIndex];
+        queuedIndex = (queuedIndex + 1) % queuedFloors.length;
+        boolean removed = destinationManager.removeDestination(floor);
+        destinationManager.addDestination(floor, elevatorState);
+        return removed;
+    }
+
+    @Benchmark
+    public List<Integer> getAllDestinations() {
+        return destinationManager.getAllDestinations();
+    }
+
+    private int nextFreeFloor() {
+        int floor = freeFloors[freeIndex];
+        freeIndex = (freeIndex + 1) % freeFloors.length;
+        return floor;
+    }
+}
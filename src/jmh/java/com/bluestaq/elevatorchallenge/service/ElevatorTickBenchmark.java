@@ -0,0 +1,71 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.ElevatorApplication;
+import com.bluestaq.elevatorchallenge.simulation.SimulationClock;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of one full processElevatorOperations tick across the whole bank. The application context is
+ * started in the simulation profile, so the scheduler thread is off and the benchmark owns the virtual clock.
+ * Every tick moves time forward by a quarter of a floor and idle cars get a new random car call, which keeps
+ * doors cycling and cars travelling for the whole run.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="-prof gc ElevatorTickBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ElevatorTickBenchmark {
+
+    private static final int MAX_FLOOR = 60;
+
+    @Param({"1", "8"})
+    int carCount;
+
+    ConfigurableApplicationContext context;
+    ElevatorService elevatorService;
+    ElevatorBank elevatorBank;
+    SimulationClock clock;
+    Duration tickInterval;
+    Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ElevatorApplication.class)
+                .profiles("simulation")
+                .run("--elevator.car-count=" + carCount, "--elevator.max-floor=" + MAX_FLOOR);
+        elevatorService = context.getBean(ElevatorService.class);
+        elevatorBank = context.getBean(ElevatorBank.class);
+        clock = context.getBean(SimulationClock.class);
+        tickInterval = Duration.ofMillis(elevatorBank.getCar(1).getState().getFloorTravelTimeMs() / 4);
+        random = new Random(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void processElevatorOperations() {
+        clock.advance(tickInterval);
+        for (ElevatorCar car : elevatorBank.getCars()) {
+            if (!car.getDestinationManager().hasDestinations()) {
+                int floor = 1 + random.nextInt(MAX_FLOOR);
+                if (floor != car.getState().getCurrentFloor()) {
+                    elevatorService.pressFloorButton(car.getId(), floor);
+                }
+            }
+        }
+        elevatorService.processElevatorOperations();
+    }
+}
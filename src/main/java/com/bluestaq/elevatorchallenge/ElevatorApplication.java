@@ -1,21 +1,24 @@
 package com.bluestaq.elevatorchallenge;
 
-import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorPortfolio;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableScheduling
 @Slf4j
 public class ElevatorApplication {
 
     @Autowired
-    ElevatorState elevatorState;
+    ElevatorBank elevatorBank;
+
+    @Autowired
+    ElevatorPortfolio portfolio;
 
 	public static void main(String[] args) {
 		SpringApplication.run(ElevatorApplication.class, args);
@@ -23,11 +26,20 @@ public class ElevatorApplication {
 
 
     //call the onstartup method after the application context starts and publishes the applicationReadyEvent
-    //want to log the elevator initialization here
+    //want to log the elevator initialization of every car in the default bank here, the other banks can have
+    //thousands of cars so they only get a line per bank
     @EventListener(ApplicationReadyEvent.class)
     public void onStartup() {
-        log.info("Elevator Ready - Initialized at floor {} with the Doors {}",
-                elevatorState.getCurrentFloor(), elevatorState.getCurrentDoorState());
+        log.info("Elevator Bank Ready - {} car(s) initialized", elevatorBank.getCarCount());
+        for (ElevatorCar car : elevatorBank.getCars()) {
+            log.info("Elevator car {} Ready - Initialized at floor {} with the Doors {}",
+                    car.getId(), car.getState().getCurrentFloor(), car.getState().getCurrentDoorState());
+        }
+        for (ElevatorBank bank : portfolio.getBanks()) {
+            if (bank != elevatorBank) {
+                log.info("Elevator Bank {} Ready - {} car(s) serving floors 1 to {}", bank, bank.getCarCount(), bank.getMaxFloor());
+            }
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.bluestaq.elevatorchallenge.config;
+
+import com.bluestaq.elevatorchallenge.simulation.SimulationClock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Provides the clock every elevator timer reads from. Normal operation uses the system clock, the simulation
+ * profile swaps in a {@link SimulationClock} that only moves when the simulator advances it
+ */
+@Configuration
+public class ElevatorClockConfiguration {
+
+    @Bean
+    @Profile("!simulation")
+    public Clock systemClock() {
+        return Clock.systemUTC();
+    }
+
+    @Bean
+    @Profile("simulation")
+    public SimulationClock simulationClock(@Value("${elevator.simulation.start-time:2025-01-06T00:00:00Z}") Instant startTime) {
+        return new SimulationClock(startTime);
+    }
+}
@@ -0,0 +1,139 @@
+package com.bluestaq.elevatorchallenge.controller;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorBankDTO;
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorPortfolio;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.TrafficMode;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/buildings")
+@Tag(name = "Building Command Requests", description = "Command Requests routed to any elevator bank of the portfolio by building and bank id.")
+public class BuildingController {
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorPortfolio portfolio;
+
+    // What the portfolio runs
+    @Operation(summary = "List every elevator bank of the portfolio",
+            description = "Returns building id, bank id, car count and top floor of every bank, the default bank is default/main")
+    @GetMapping
+    public List<ElevatorBankDTO> getBanks() {
+        return portfolio.getBanks().stream()
+                .map(bank -> new ElevatorBankDTO(bank.getBuildingId(), bank.getBankId(), bank.getCarCount(), bank.getMaxFloor()))
+                .toList();
+    }
+
+    @Operation(summary = "Press any floor button in Elevator",
+            description = "Press any floor button in the given car of the bank. " + ElevatorController.AWAIT_DESCRIPTION)
+    @GetMapping("/{buildingId}/banks/{bankId}/pressFloorNumber")
+    public CompletableFuture<ResponseEntity<Integer>> requestFloorNumber(@PathVariable String buildingId, @PathVariable String bankId,
+                                                                         @RequestParam(defaultValue = "1") int carId,
+                                                                         @RequestParam int targetFloorNumber,
+                                                                         @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.pressFloorButtonAsync(bank(buildingId, bankId), carId, targetFloorNumber), await);
+    }
+
+    @Operation(summary = "Press Open Door button in Elevator",
+            description = "Press Open Door button in the given car of the bank. " + ElevatorController.AWAIT_DESCRIPTION)
+    @GetMapping("/{buildingId}/banks/{bankId}/pressOpenDoor")
+    public CompletableFuture<ResponseEntity<Integer>> requestOpenDoor(@PathVariable String buildingId, @PathVariable String bankId,
+                                                                      @RequestParam(defaultValue = "1") int carId,
+                                                                      @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.openDoorsAsync(bank(buildingId, bankId), carId), await);
+    }
+
+    @Operation(summary = "Press Close Door button in Elevator",
+            description = "Press Close Door button in the given car of the bank. " + ElevatorController.AWAIT_DESCRIPTION)
+    @GetMapping("/{buildingId}/banks/{bankId}/pressCloseDoor")
+    public CompletableFuture<ResponseEntity<Integer>> requestCloseDoor(@PathVariable String buildingId, @PathVariable String bankId,
+                                                                       @RequestParam(defaultValue = "1") int carId,
+                                                                       @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.closeDoorsAsync(bank(buildingId, bankId), carId), await);
+    }
+
+    @Operation(summary = "Request elevator to come to a floor and to go UP from that floor",
+            description = "Press UP button on a floor of the building, only the cars of the bank are looked at. Returns the id of the car assigned to the call. "
+                    + ElevatorController.AWAIT_DESCRIPTION)
+    @GetMapping("/{buildingId}/banks/{bankId}/callElevator/up")
+    public CompletableFuture<ResponseEntity<Integer>> callElevatorToMoveUp(@PathVariable String buildingId, @PathVariable String bankId,
+                                                                           @RequestParam int currentFloorNumber, @RequestParam(required = false) String zone,
+                                                                           @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(
+                elevatorService.callElevatorAsync(bank(buildingId, bankId), currentFloorNumber, ElevatorDirection.UP, zone), await);
+    }
+
+    @Operation(summary = "Request elevator to come to a floor and to go DOWN from that floor",
+            description = "Press DOWN button on a floor of the building, only the cars of the bank are looked at. Returns the id of the car assigned to the call. "
+                    + ElevatorController.AWAIT_DESCRIPTION)
+    @GetMapping("/{buildingId}/banks/{bankId}/callElevator/down")
+    public CompletableFuture<ResponseEntity<Integer>> callElevatorToMoveDown(@PathVariable String buildingId, @PathVariable String bankId,
+                                                                             @RequestParam int currentFloorNumber, @RequestParam(required = false) String zone,
+                                                                             @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(
+                elevatorService.callElevatorAsync(bank(buildingId, bankId), currentFloorNumber, ElevatorDirection.DOWN, zone), await);
+    }
+
+    @Operation(summary = "Queries Elevator for its current Status",
+            description = "Queries a car of the bank for all active requests it is tracking as well as its direction, door, and movement information")
+    @GetMapping("/{buildingId}/banks/{bankId}/currentElevatorState")
+    public ElevatorDTO getCurrentElevatorState(@PathVariable String buildingId, @PathVariable String bankId,
+                                               @RequestParam(defaultValue = "1") int carId) {
+        return elevatorService.getCurrentElevatorState(bank(buildingId, bankId), carId);
+    }
+
+    @Operation(summary = "Queries every Elevator car of the bank for its current Status",
+            description = "Queries every car of the bank for all active requests it is tracking as well as its direction, door, and movement information")
+    @GetMapping("/{buildingId}/banks/{bankId}/elevatorBankState")
+    public List<ElevatorDTO> getElevatorBankState(@PathVariable String buildingId, @PathVariable String bankId) {
+        return elevatorService.getElevatorBankState(bank(buildingId, bankId));
+    }
+
+    @Operation(summary = "Report the load of an Elevator car",
+            description = "Sets the measured load of the given car of the bank in kg")
+    @PostMapping("/{buildingId}/banks/{bankId}/carLoad")
+    public void updateCarLoad(@PathVariable String buildingId, @PathVariable String bankId,
+                              @RequestParam(defaultValue = "1") int carId, @RequestParam int loadKg) {
+        elevatorService.updateCarLoad(bank(buildingId, bankId), carId, loadKg);
+    }
+
+    @Operation(summary = "Queries the traffic mode of the Elevator bank",
+            description = "Returns NORMAL, UP_PEAK or DOWN_PEAK, detected from the calls of the bank")
+    @GetMapping("/{buildingId}/banks/{bankId}/trafficMode")
+    public TrafficMode getTrafficMode(@PathVariable String buildingId, @PathVariable String bankId) {
+        return elevatorService.getTrafficMode(bank(buildingId, bankId));
+    }
+
+    @Operation(summary = "Emergency Stop",
+            description = "Immediately stops the given car of the bank and blocks all of its operations")
+    @PostMapping("/{buildingId}/banks/{bankId}/emergency/stop")
+    public void emergencyStop(@PathVariable String buildingId, @PathVariable String bankId,
+                              @RequestParam(defaultValue = "1") int carId) {
+        elevatorService.emergencyStop(bank(buildingId, bankId), carId);
+    }
+
+    @Operation(summary = "Clear Emergency Stop",
+            description = "Restores normal operation of the given car of the bank")
+    @PostMapping("/{buildingId}/banks/{bankId}/emergency/clear")
+    public void emergencyClear(@PathVariable String buildingId, @PathVariable String bankId,
+                               @RequestParam(defaultValue = "1") int carId) {
+        elevatorService.emergencyClear(bank(buildingId, bankId), carId);
+    }
+
+    private ElevatorBank bank(String buildingId, String bankId) {
+        return portfolio.getBank(buildingId, bankId);
+    }
+}
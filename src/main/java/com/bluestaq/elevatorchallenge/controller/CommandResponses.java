@@ -0,0 +1,35 @@
+package com.bluestaq.elevatorchallenge.controller;
+
+import com.bluestaq.elevatorchallenge.service.PendingCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Turns a queued car command into the response of a button press. By default the press is answered with 202 Accepted
+ * as soon as the command is queued. With await the response is 200 once the car applied it, or the error the car
+ * rejected it with. Either way the body is the id of the car the command went to and the request thread is free
+ * while the car works on it
+ */
+@Slf4j
+final class CommandResponses {
+
+    private CommandResponses() {
+    }
+
+    static CompletableFuture<ResponseEntity<Integer>> respond(PendingCommand command, boolean await) {
+        if (await) {
+            return command.applied().thenApply(applied -> ResponseEntity.ok(command.carId()));
+        }
+        // nobody waits for the outcome anymore, so at least the log has it
+        command.applied().whenComplete((applied, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.warn("Queued command for car {} was rejected: {}", command.carId(), cause.getMessage());
+            }
+        });
+        return CompletableFuture.completedFuture(ResponseEntity.accepted().body(command.carId()));
+    }
+}
@@ -1,82 +1,183 @@
 package com.bluestaq.elevatorchallenge.controller;
 
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandRequest;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandResult;
 import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
 import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
 import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.TrafficMode;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategyType;
+import com.bluestaq.elevatorchallenge.stream.ElevatorStateBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("")
-@Tag(name = "Elevator Command Requests", description = "Command Requests available for controlling the elevator.")
+@Tag(name = "Elevator Command Requests", description = "Command Requests available for controlling the elevator bank.")
 public class ElevatorController {
 
+    static final String AWAIT_DESCRIPTION = "Answers 202 with the car id as soon as the press is queued, "
+            + "with await=true 200 once the car applied it or the error it was rejected with";
+
     @Autowired
     ElevatorService elevatorService;
 
+    @Autowired
+    ElevatorStateBroadcaster stateBroadcaster;
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    // versions start over after a restart without the journal, an ETag from an earlier run must never match
+    private final String stateEtagEpoch = Long.toString(System.currentTimeMillis(), 36);
+
     // Open door request
     @Operation(summary = "Press Open Door button in Elevator",
-            description = "Press Open Door button in Elevator")
+            description = "Press Open Door button in the given elevator car. " + AWAIT_DESCRIPTION)
     @GetMapping("/pressOpenDoor")
-    public void requestOpenDoor() {
-        elevatorService.openDoors();
+    public CompletableFuture<ResponseEntity<Integer>> requestOpenDoor(@RequestParam(defaultValue = "1") int carId,
+                                                                      @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.openDoorsAsync(elevatorBank, carId), await);
     }
 
     // Close door request
     @Operation(summary = "Press Close Door button in Elevator",
-            description = "Press Close Door button in Elevator")
+            description = "Press Close Door button in the given elevator car. " + AWAIT_DESCRIPTION)
     @GetMapping("/pressCloseDoor")
-    public void requestCloseDoor() {
-        elevatorService.closeDoors();
+    public CompletableFuture<ResponseEntity<Integer>> requestCloseDoor(@RequestParam(defaultValue = "1") int carId,
+                                                                       @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.closeDoorsAsync(elevatorBank, carId), await);
     }
 
     // Press floor number request
     @Operation(summary = "Press any floor button in Elevator",
-            description = "Press any floor button in Elevator. Uses SCAN algorithm for optimal routing.")
+            description = "Press any floor button in the given elevator car. Served in the order of the car's scheduling strategy. " + AWAIT_DESCRIPTION)
     @GetMapping("/pressFloorNumber")
-    public void requestFloorNumber(@RequestParam int targetFloorNumber) {
-        elevatorService.pressFloorButton(targetFloorNumber);
+    public CompletableFuture<ResponseEntity<Integer>> requestFloorNumber(@RequestParam(defaultValue = "1") int carId,
+                                                                         @RequestParam int targetFloorNumber,
+                                                                         @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(elevatorService.pressFloorButtonAsync(elevatorBank, carId, targetFloorNumber), await);
     }
 
     // Get the current status of the elevator
     @Operation(summary = "Queries Elevator for its current Status",
-            description = "Queries Elevator for all active requests it is tracking as well as its direction,door, and movement information")
+            description = "Queries an elevator car for all active requests it is tracking as well as its direction,door, and movement information. "
+                    + "The ETag is built from the car id and state version, send it back in If-None-Match to get a 304 while nothing changed")
     @GetMapping("/currentElevatorState")
-    public ElevatorDTO getCurrentElevatorState() {
-        return elevatorService.getCurrentElevatorState();
+    public ElevatorDTO getCurrentElevatorState(@RequestParam(defaultValue = "1") int carId, WebRequest webRequest) {
+        ElevatorDTO elevatorState = elevatorService.getCurrentElevatorState(carId);
+        // unchanged car, the client already has this version
+        if (webRequest.checkNotModified(stateEtagEpoch + "-" + carId + "-" + elevatorState.version())) {
+            return null;
+        }
+        return elevatorState;
+    }
+
+    // Stream state changes instead of polling
+    @Operation(summary = "Stream Elevator state changes",
+            description = "Server-Sent Events stream of one car, or of every car when carId is left out. Starts with a full 'state' event per car, "
+                    + "then sends a 'delta' event with only the changed fields whenever floor, doors, direction, movement or destinations change")
+    @GetMapping(value = "/stateStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamElevatorState(@RequestParam(required = false) Integer carId) {
+        return stateBroadcaster.subscribe(carId);
+    }
+
+    // Get the current status of every car in the bank
+    @Operation(summary = "Queries every Elevator car in the bank for its current Status",
+            description = "Queries every elevator car for all active requests it is tracking as well as its direction,door, and movement information")
+    @GetMapping("/elevatorBankState")
+    public List<ElevatorDTO> getElevatorBankState() {
+        return elevatorService.getElevatorBankState();
     }
 
     //Call elevator to current floor to serve an UP request
     @Operation(summary = "Request elevator to come to a floor and to go UP from that floor",
-            description = "Press UP button on a specific floor to call elevator")
+            description = "Press UP button on a specific floor to call elevator. Returns the id of the car assigned to the call. "
+                    + "In a zoned building the optional zone picks which bank of buttons on the floor was pressed. " + AWAIT_DESCRIPTION)
     @GetMapping("/callElevator/up")
-    public void callElevatorToMoveUp(@RequestParam int currentFloorNumber) {
-        elevatorService.callElevator(currentFloorNumber, ElevatorDirection.UP);
+    public CompletableFuture<ResponseEntity<Integer>> callElevatorToMoveUp(@RequestParam int currentFloorNumber,
+                                                                           @RequestParam(required = false) String zone,
+                                                                           @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(
+                elevatorService.callElevatorAsync(elevatorBank, currentFloorNumber, ElevatorDirection.UP, zone), await);
     }
 
     //Call elevator to current floor to serve a DOWN request
     @Operation(summary = "Request elevator to come to a floor and to go DOWN from that floor",
-            description = "Press DOWN button on a specific floor to call elevator")
+            description = "Press DOWN button on a specific floor to call elevator. Returns the id of the car assigned to the call. "
+                    + "In a zoned building the optional zone picks which bank of buttons on the floor was pressed. " + AWAIT_DESCRIPTION)
     @GetMapping("/callElevator/down")
-    public void callElevatorToMoveDown(@RequestParam int currentFloorNumber) {
-        elevatorService.callElevator(currentFloorNumber, ElevatorDirection.DOWN);
+    public CompletableFuture<ResponseEntity<Integer>> callElevatorToMoveDown(@RequestParam int currentFloorNumber,
+                                                                             @RequestParam(required = false) String zone,
+                                                                             @RequestParam(defaultValue = "false") boolean await) {
+        return CommandResponses.respond(
+                elevatorService.callElevatorAsync(elevatorBank, currentFloorNumber, ElevatorDirection.DOWN, zone), await);
+    }
+
+    //Apply many button presses in one round trip
+    @Operation(summary = "Submit a batch of button presses",
+            description = "Applies car calls, hall calls and door commands in one pass. Duplicate presses within the batch are only applied once. Returns one result per item in request order")
+    @PostMapping("/commands/batch")
+    public List<ElevatorCommandResult> executeBatch(@RequestBody List<ElevatorCommandRequest> commands) {
+        return elevatorService.executeBatch(commands);
+    }
+
+    // Which order a car serves its floors in
+    @Operation(summary = "Queries the scheduling strategy of an Elevator car",
+            description = "Returns the strategy the given car uses to order its destinations: SCAN, LOOK, COLLECTIVE or SHORTEST_SEEK")
+    @GetMapping("/schedulingStrategy")
+    public SchedulingStrategyType getSchedulingStrategy(@RequestParam(defaultValue = "1") int carId) {
+        return elevatorService.getSchedulingStrategy(carId);
+    }
+
+    // Swap the scheduling strategy while the car runs
+    @Operation(summary = "Change the scheduling strategy of an Elevator car",
+            description = "Switches the given car to another strategy (SCAN, LOOK, COLLECTIVE or SHORTEST_SEEK). Floors already queued stay and are served in the new order")
+    @PostMapping("/schedulingStrategy")
+    public void setSchedulingStrategy(@RequestParam(defaultValue = "1") int carId, @RequestParam String strategy) {
+        elevatorService.setSchedulingStrategy(carId, SchedulingStrategyType.fromName(strategy));
+    }
+
+    // Reading of the load weighing device under the car floor
+    @Operation(summary = "Report the load of an Elevator car",
+            description = "Sets the measured load of the given car in kg. A car at or above the bypass threshold of its capacity passes hall calls "
+                    + "and leaves them to another car or a later pass")
+    @PostMapping("/carLoad")
+    public void updateCarLoad(@RequestParam(defaultValue = "1") int carId, @RequestParam int loadKg) {
+        elevatorService.updateCarLoad(carId, loadKg);
+    }
+
+    // Operating mode the bank switched to on its own
+    @Operation(summary = "Queries the traffic mode of the Elevator bank",
+            description = "Returns NORMAL, UP_PEAK or DOWN_PEAK, detected from the hall and car calls of the last few minutes")
+    @GetMapping("/trafficMode")
+    public TrafficMode getTrafficMode() {
+        return elevatorService.getTrafficMode();
     }
 
     //Immediately stop elevator and clear all destinations
     @Operation(summary = "Emergency Stop",
-            description = "Immediately stops elevator and blocks all operations")
+            description = "Immediately stops the given elevator car and blocks all of its operations")
     @PostMapping("/emergency/stop")
-    public void emergencyStop() {
-        elevatorService.emergencyStop();
+    public void emergencyStop(@RequestParam(defaultValue = "1") int carId) {
+        elevatorService.emergencyStop(carId);
     }
 
     //unblock the elevator from the emergency state
     @Operation(summary = "Clear Emergency Stop",
-            description = "Restores normal elevator operation")
+            description = "Restores normal operation of the given elevator car")
     @PostMapping("/emergency/clear")
-    public void emergencyClear() {
-        elevatorService.emergencyClear();
+    public void emergencyClear(@RequestParam(defaultValue = "1") int carId) {
+        elevatorService.emergencyClear(carId);
     }
 }
@@ -0,0 +1,12 @@
+package com.bluestaq.elevatorchallenge.dto;
+
+/**
+ * One bank of the portfolio, buildingId and bankId are the path segments that route requests to it
+ */
+public record ElevatorBankDTO(
+        String buildingId,
+        String bankId,
+        int carCount,
+        int maxFloor
+) {
+}
@@ -0,0 +1,23 @@
+package com.bluestaq.elevatorchallenge.dto;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+
+/**
+ * One button press inside a batch. Which fields are needed depends on the type:
+ * CAR_CALL needs carId and floor, HALL_CALL needs floor and direction, OPEN_DOORS/CLOSE_DOORS need carId.
+ * A missing carId defaults to car 1, just like the single request endpoints
+ */
+public record ElevatorCommandRequest(
+        CommandType type,
+        Integer carId,
+        Integer floor,
+        ElevatorDirection direction
+) {
+
+    public enum CommandType {
+        CAR_CALL,
+        HALL_CALL,
+        OPEN_DOORS,
+        CLOSE_DOORS
+    }
+}
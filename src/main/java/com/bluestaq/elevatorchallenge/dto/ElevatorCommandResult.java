@@ -0,0 +1,32 @@
+package com.bluestaq.elevatorchallenge.dto;
+
+/**
+ * Outcome of one item of a batch, index is the position of the item in the request.
+ * carId is the car that handled the item, for hall calls the one the dispatcher picked
+ */
+public record ElevatorCommandResult(
+        int index,
+        Status status,
+        Integer carId,
+        String message
+) {
+
+    public enum Status {
+        ACCEPTED,
+        // the same press was already in this batch or the floor was already requested
+        DUPLICATE,
+        REJECTED
+    }
+
+    public static ElevatorCommandResult accepted(int index, int carId) {
+        return new ElevatorCommandResult(index, Status.ACCEPTED, carId, null);
+    }
+
+    public static ElevatorCommandResult duplicate(int index, Integer carId, String message) {
+        return new ElevatorCommandResult(index, Status.DUPLICATE, carId, message);
+    }
+
+    public static ElevatorCommandResult rejected(int index, Integer carId, String message) {
+        return new ElevatorCommandResult(index, Status.REJECTED, carId, message);
+    }
+}
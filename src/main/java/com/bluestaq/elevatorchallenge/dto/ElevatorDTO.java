@@ -5,14 +5,24 @@ import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
 import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
 
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Published state of a car. version goes up by one on every change of the car, the ETag of the state is built from it.
+ * upwardDestinations and downwardDestinations are the stops still to make by sweep direction, a floor can be in both
+ * when it has a call for either direction. carCalls are the floors asked for inside the car, every other stop is a
+ * hall call of its direction. loadKg is the last reading of the car's load weighing
+ */
 public record ElevatorDTO(
+        int carId,
+        long version,
         int currentFloor,
         ElevatorMovement state,
         ElevatorDirection direction,
         ElevatorDoor doorState,
         List<Integer> destinationFloors,
-        Set<Integer> upwardDestinations,
-        Set<Integer> downwardDestinations
-) {}
+        List<Integer> upwardDestinations,
+        List<Integer> downwardDestinations,
+        List<Integer> carCalls,
+        int loadKg
+) {
+}
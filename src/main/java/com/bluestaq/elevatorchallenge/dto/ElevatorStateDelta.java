@@ -0,0 +1,44 @@
+package com.bluestaq.elevatorchallenge.dto;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
+import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact change of a car's state pushed to stream subscribers. Only the fields that changed since the previous
+ * version are filled in, everything else is left out of the JSON
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ElevatorStateDelta(
+        int carId,
+        long version,
+        Integer currentFloor,
+        ElevatorMovement state,
+        ElevatorDirection direction,
+        ElevatorDoor doorState,
+        List<Integer> destinationFloors,
+        List<Integer> carCalls,
+        Integer loadKg
+) {
+
+    public static ElevatorStateDelta between(ElevatorDTO previous, ElevatorDTO current) {
+        return new ElevatorStateDelta(
+                current.carId(),
+                current.version(),
+                changed(previous.currentFloor(), current.currentFloor()),
+                changed(previous.state(), current.state()),
+                changed(previous.direction(), current.direction()),
+                changed(previous.doorState(), current.doorState()),
+                changed(previous.destinationFloors(), current.destinationFloors()),
+                changed(previous.carCalls(), current.carCalls()),
+                changed(previous.loadKg(), current.loadKg()));
+    }
+
+    private static <T> T changed(T previous, T current) {
+        return Objects.equals(previous, current) ? null : current;
+    }
+}
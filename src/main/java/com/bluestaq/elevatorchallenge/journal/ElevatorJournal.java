@@ -0,0 +1,310 @@
+package com.bluestaq.elevatorchallenge.journal;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorEventListener;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every car's state so a restarted service carries on where it stopped instead of
+ * starting every car at floor 1 without any destinations.
+ *
+ * Every state change of a car is appended as a small binary {@link JournalRecord} holding what changed, accepted car
+ * and hall calls show up as the destinations they added. The journal is split into memory mapped
+ * {@link JournalSegment}s. Appending is a copy into the mapping on the car's own thread, a flush thread writes all
+ * records appended since its last run to the disk at once (group commit), so no request ever waits for the disk.
+ *
+ * Every segment starts with a checkpoint of all cars. When a segment is full the next one is started with a fresh
+ * checkpoint and the older segments are deleted, so the journal never holds more than one segment of changes and
+ * recovery time stays the same no matter how long the service has been running. The flush thread creates the next
+ * segment ahead of time and does the forcing and deleting of a roll afterwards, the car thread that fills a segment
+ * only swaps in the spare and copies the checkpoint into it. On startup the newest segment with
+ * a complete checkpoint is replayed and the cars are restored before their control threads start.
+ * Only the cars of the default bank are journaled, the other banks of the portfolio start over on a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "elevator.journal.enabled", havingValue = "true")
+@Slf4j
+public class ElevatorJournal implements ElevatorEventListener {
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    @Value("${elevator.journal.directory:journal}")
+    String directory;
+
+    @Value("${elevator.journal.segment-size:4MB}")
+    DataSize segmentSize;
+
+    // how long an appended record may wait before it is forced to the disk
+    @Value("${elevator.journal.flush-interval:10ms}")
+    Duration flushInterval;
+
+    private Path journalDirectory;
+    private JournalSegment segment;
+    // created by the flush thread before it is needed, so a full segment is swapped without touching the disk
+    private JournalSegment spareSegment;
+    // swapped out but not forced yet, the flush thread deletes it once the checkpoint of its successor is on the disk
+    private JournalSegment retiredSegment;
+    private long lastSequence;
+    private volatile boolean running;
+    private Thread flushThread;
+
+    @PostConstruct
+    void start() throws IOException {
+        journalDirectory = Path.of(directory);
+        Files.createDirectories(journalDirectory);
+
+        long recoveryStart = System.nanoTime();
+        Map<Integer, ElevatorDTO> savedStates = recover(journalDirectory);
+        for (ElevatorDTO savedState : savedStates.values()) {
+            try {
+                elevatorService.restoreCarState(savedState);
+            } catch (IllegalArgumentException e) {
+                // the building has been configured with fewer cars or floors since the state was saved
+                log.warn("Could not restore car {} from the journal: {}", savedState.carId(), e.getMessage());
+            }
+        }
+        log.info("Recovered {} car(s) from the journal in {} ms", savedStates.size(),
+                Duration.ofNanos(System.nanoTime() - recoveryStart).toMillis());
+
+        JournalSegment first = JournalSegment.create(journalDirectory, ++lastSequence, (int) segmentSize.toBytes());
+        synchronized (this) {
+            writeCheckpoint(first);
+            segment = first;
+        }
+        first.force();
+        deleteSegmentsBefore(first);
+        prepareSpareSegment();
+        elevatorService.addEventListener(this);
+
+        running = true;
+        flushThread = Thread.ofPlatform()
+                .name("elevator-journal-flush")
+                .daemon()
+                .start(this::runFlushLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        running = false;
+        if (flushThread != null) {
+            // not interrupted, that would close the channel of a spare segment the thread is creating
+            LockSupport.unpark(flushThread);
+            flushThread.join();
+        }
+        if (journalDirectory == null || currentSegment() == null) {
+            return;
+        }
+        flush();
+        // the spare never got a record, a restart would only skip it
+        JournalSegment spare;
+        synchronized (this) {
+            spare = spareSegment;
+            spareSegment = null;
+        }
+        if (spare != null) {
+            Files.deleteIfExists(spare.getPath());
+        }
+    }
+
+    @Override
+    public void onStateChanged(ElevatorCar car, ElevatorDTO previous, ElevatorDTO current) {
+        if (car.getBank() != elevatorBank) {
+            return;
+        }
+        append(previous == null ? JournalRecord.checkpoint(current) : JournalRecord.change(previous, current));
+    }
+
+    // appends come from every car's thread. The lock covers copying the record into the mapping, and on a full
+    // segment swapping in the spare and copying the checkpoint into it. Nothing under it waits for the disk unless
+    // segments fill up faster than the flush thread can prepare them
+    private synchronized void append(JournalRecord record) {
+        try {
+            if (!segment.hasRoom(record.encodedSize())) {
+                rollSegment();
+            }
+            segment.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new journal segment", e);
+        }
+    }
+
+    /**
+     * Continue in the spare segment, starting with a checkpoint of every car. The checkpoint is written under the
+     * append lock so no change can slip in between a car's snapshot and its checkpoint record, a change appended
+     * right after it is skipped on replay if the checkpoint already holds it
+     */
+    private void rollSegment() throws IOException {
+        JournalSegment next = spareSegment;
+        spareSegment = null;
+        if (next == null) {
+            // the flush thread hasn't caught up with the rolls yet
+            log.debug("No spare journal segment ready, creating one on the car thread");
+            next = JournalSegment.create(journalDirectory, ++lastSequence, (int) segmentSize.toBytes());
+        }
+        writeCheckpoint(next);
+        retiredSegment = segment;
+        segment = next;
+        log.debug("Started journal segment {}", next.getPath());
+    }
+
+    private void writeCheckpoint(JournalSegment next) {
+        List<JournalRecord> checkpoint = new ArrayList<>();
+        elevatorBank.getCars().forEach(car -> checkpoint.add(JournalRecord.checkpoint(car.getSnapshot())));
+        checkpoint.add(JournalRecord.checkpointEnd());
+        for (JournalRecord record : checkpoint) {
+            if (!next.hasRoom(record.encodedSize())) {
+                throw new IllegalStateException("Journal segment size " + segmentSize + " is too small for a checkpoint");
+            }
+            next.append(record);
+        }
+    }
+
+    /**
+     * Force what was appended to the disk and finish a roll that happened since the last flush
+     */
+    private void flush() throws IOException {
+        JournalSegment current;
+        JournalSegment retired;
+        synchronized (this) {
+            current = segment;
+            retired = retiredSegment;
+            retiredSegment = null;
+        }
+        if (retired != null) {
+            retired.force();
+        }
+        current.force();
+        // the older segments are only deleted once the new checkpoint is safely on the disk
+        if (retired != null) {
+            deleteSegmentsBefore(current);
+        }
+    }
+
+    private void prepareSpareSegment() throws IOException {
+        long sequence;
+        synchronized (this) {
+            if (spareSegment != null) {
+                return;
+            }
+            sequence = ++lastSequence;
+        }
+        JournalSegment spare = JournalSegment.create(journalDirectory, sequence, (int) segmentSize.toBytes());
+        synchronized (this) {
+            // a car thread that couldn't wait created a newer segment in the meantime
+            if (spareSegment == null && spare.getSequence() > segment.getSequence()) {
+                spareSegment = spare;
+                return;
+            }
+        }
+        Files.deleteIfExists(spare.getPath());
+    }
+
+    private void deleteSegmentsBefore(JournalSegment current) throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            for (Path file : files.toList()) {
+                long sequence = JournalSegment.sequenceOf(file);
+                if (sequence >= 0 && sequence < current.getSequence()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the newest segment that starts with a complete checkpoint. A newer segment without one was being
+     * started when the service stopped, its predecessor is still there and complete
+     *
+     * @return the last saved state of every car by car id
+     */
+    private Map<Integer, ElevatorDTO> recover(Path journalDirectory) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            segments = files.filter(file -> JournalSegment.sequenceOf(file) >= 0)
+                    .sorted(Comparator.comparingLong(JournalSegment::sequenceOf).reversed())
+                    .toList();
+        }
+        if (!segments.isEmpty()) {
+            lastSequence = JournalSegment.sequenceOf(segments.get(0));
+        }
+
+        for (Path file : segments) {
+            List<JournalRecord> records = JournalSegment.readRecords(file);
+            if (records.isEmpty()) {
+                // a spare segment that was never used
+                continue;
+            }
+            if (records.stream().anyMatch(record -> record.type() == JournalRecord.Type.CHECKPOINT_END)) {
+                log.info("Replaying {} journal record(s) from {}", records.size(), file);
+                return replay(records);
+            }
+            log.warn("Journal segment {} has no complete checkpoint, skipping it", file);
+        }
+        return Map.of();
+    }
+
+    static Map<Integer, ElevatorDTO> replay(List<JournalRecord> records) {
+        Map<Integer, ElevatorDTO> states = new HashMap<>();
+        for (JournalRecord record : records) {
+            switch (record.type()) {
+                case CHECKPOINT -> states.put(record.carId(), record.applyTo(null));
+                case CHANGE -> {
+                    ElevatorDTO state = states.get(record.carId());
+                    if (state != null && record.version() > state.version()) {
+                        states.put(record.carId(), record.applyTo(state));
+                    }
+                }
+                case CHECKPOINT_END -> {
+                    // nothing to apply, it only marks the checkpoint as complete
+                }
+            }
+        }
+        return states;
+    }
+
+    private void runFlushLoop() {
+        while (running) {
+            LockSupport.parkNanos(flushInterval.toNanos());
+            if (!running) {
+                // stop() forces the last records itself
+                return;
+            }
+            try {
+                flush();
+                prepareSpareSegment();
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not flush the journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized JournalSegment currentSegment() {
+        return segment;
+    }
+}
@@ -0,0 +1,195 @@
+package com.bluestaq.elevatorchallenge.journal;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
+import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+/**
+ * One entry of the {@link ElevatorJournal}. A CHECKPOINT holds the complete state of a car, a CHANGE only holds what
+ * changed since the car's previous version: the new floor, movement, direction and doors plus the floors that were
+ * added to or removed from the upward stops, the downward stops and the car calls. CHECKPOINT_END marks that every
+ * car of a checkpoint has been written.
+ *
+ * Binary layout, enums are stored by ordinal so their order must not change:
+ * int length | byte type | int carId | long version | int floor | byte movement | byte direction | byte door |
+ * six short counts | int[] up added | int[] up removed | int[] down added | int[] down removed |
+ * int[] car calls added | int[] car calls removed | int crc32c
+ * the checksum covers everything between length and itself, so a record torn by a crash is never replayed
+ */
+record JournalRecord(Type type, int carId, long version, int floor, ElevatorMovement movement,
+                     ElevatorDirection direction, ElevatorDoor door, FloorChanges upward, FloorChanges downward,
+                     FloorChanges carCalls) {
+
+    enum Type { CHECKPOINT, CHANGE, CHECKPOINT_END }
+
+    /**
+     * Floors that joined or left one of the floor lists of a car
+     */
+    record FloorChanges(List<Integer> added, List<Integer> removed) {
+
+        static final FloorChanges NONE = new FloorChanges(List.of(), List.of());
+
+        static FloorChanges between(List<Integer> previous, List<Integer> current) {
+            return new FloorChanges(missingFrom(previous, current), missingFrom(current, previous));
+        }
+
+        int size() {
+            return added.size() + removed.size();
+        }
+
+        List<Integer> applyTo(List<Integer> floors, Comparator<Integer> order) {
+            TreeSet<Integer> result = new TreeSet<>(order);
+            result.addAll(floors);
+            result.removeAll(removed);
+            result.addAll(added);
+            return List.copyOf(result);
+        }
+    }
+
+    // length + type + carId + version + floor + movement + direction + door + six counts
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 8 + 4 + 3 + 12;
+    private static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * Complete state of a car
+     */
+    static JournalRecord checkpoint(ElevatorDTO state) {
+        return new JournalRecord(Type.CHECKPOINT, state.carId(), state.version(), state.currentFloor(), state.state(),
+                state.direction(), state.doorState(), new FloorChanges(state.upwardDestinations(), List.of()),
+                new FloorChanges(state.downwardDestinations(), List.of()), new FloorChanges(state.carCalls(), List.of()));
+    }
+
+    /**
+     * Difference between two versions of the same car
+     */
+    static JournalRecord change(ElevatorDTO previous, ElevatorDTO current) {
+        return new JournalRecord(Type.CHANGE, current.carId(), current.version(), current.currentFloor(),
+                current.state(), current.direction(), current.doorState(),
+                FloorChanges.between(previous.upwardDestinations(), current.upwardDestinations()),
+                FloorChanges.between(previous.downwardDestinations(), current.downwardDestinations()),
+                FloorChanges.between(previous.carCalls(), current.carCalls()));
+    }
+
+    static JournalRecord checkpointEnd() {
+        return new JournalRecord(Type.CHECKPOINT_END, 0, 0, 0, ElevatorMovement.IDLE, ElevatorDirection.NONE,
+                ElevatorDoor.CLOSED, FloorChanges.NONE, FloorChanges.NONE, FloorChanges.NONE);
+    }
+
+    /**
+     * State of the car after this record, CHECKPOINTs replace the state and CHANGEs are applied on top of it
+     */
+    ElevatorDTO applyTo(ElevatorDTO state) {
+        boolean checkpoint = type == Type.CHECKPOINT;
+        List<Integer> upwardFloors = upward.applyTo(checkpoint ? List.of() : state.upwardDestinations(), Comparator.naturalOrder());
+        List<Integer> downwardFloors = downward.applyTo(checkpoint ? List.of() : state.downwardDestinations(), Comparator.reverseOrder());
+        List<Integer> carCallFloors = carCalls.applyTo(checkpoint ? List.of() : state.carCalls(), Comparator.naturalOrder());
+
+        TreeSet<Integer> allFloors = new TreeSet<>(upwardFloors);
+        allFloors.addAll(downwardFloors);
+        // the load isn't journaled, the load weighing reports it again after a restart
+        return new ElevatorDTO(carId, version, floor, movement, direction, door,
+                List.copyOf(allFloors), upwardFloors, downwardFloors, carCallFloors, 0);
+    }
+
+    int encodedSize() {
+        return HEADER_SIZE + 4 * (upward.size() + downward.size() + carCalls.size()) + CHECKSUM_SIZE;
+    }
+
+    /**
+     * Write the record at the position of the target, which must have at least encodedSize() bytes left
+     */
+    void writeTo(ByteBuffer target) {
+        int start = target.position();
+        target.putInt(encodedSize())
+                .put((byte) type.ordinal())
+                .putInt(carId)
+                .putLong(version)
+                .putInt(floor)
+                .put((byte) movement.ordinal())
+                .put((byte) direction.ordinal())
+                .put((byte) door.ordinal())
+                .putShort((short) upward.added().size())
+                .putShort((short) upward.removed().size())
+                .putShort((short) downward.added().size())
+                .putShort((short) downward.removed().size())
+                .putShort((short) carCalls.added().size())
+                .putShort((short) carCalls.removed().size());
+        for (FloorChanges changes : List.of(upward, downward, carCalls)) {
+            changes.added().forEach(target::putInt);
+            changes.removed().forEach(target::putInt);
+        }
+        target.putInt(checksum(target, start, target.position() - start));
+    }
+
+    /**
+     * Read the record at the position of the source and move past it
+     *
+     * @return null at the end of the written data or when the next record is incomplete or corrupt
+     */
+    static JournalRecord readFrom(ByteBuffer source) {
+        int start = source.position();
+        if (source.remaining() < HEADER_SIZE + CHECKSUM_SIZE) {
+            return null;
+        }
+        // the unused part of a segment is zero filled, so a length of 0 is the regular end of the data
+        int length = source.getInt(start);
+        if (length < HEADER_SIZE + CHECKSUM_SIZE || length > source.remaining()
+                || checksum(source, start, length - CHECKSUM_SIZE) != source.getInt(start + length - CHECKSUM_SIZE)) {
+            return null;
+        }
+
+        ByteBuffer record = source.slice(start + 4, length - 4 - CHECKSUM_SIZE);
+        Type type = Type.values()[record.get()];
+        int carId = record.getInt();
+        long version = record.getLong();
+        int floor = record.getInt();
+        ElevatorMovement movement = ElevatorMovement.values()[record.get()];
+        ElevatorDirection direction = ElevatorDirection.values()[record.get()];
+        ElevatorDoor door = ElevatorDoor.values()[record.get()];
+        int[] counts = new int[6];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = record.getShort();
+        }
+        // a record written with another layout can't be trusted even with a matching checksum
+        if (HEADER_SIZE + 4 * Arrays.stream(counts).sum() + CHECKSUM_SIZE != length) {
+            return null;
+        }
+
+        source.position(start + length);
+        return new JournalRecord(type, carId, version, floor, movement, direction, door,
+                new FloorChanges(readFloors(record, counts[0]), readFloors(record, counts[1])),
+                new FloorChanges(readFloors(record, counts[2]), readFloors(record, counts[3])),
+                new FloorChanges(readFloors(record, counts[4]), readFloors(record, counts[5])));
+    }
+
+    private static List<Integer> readFloors(ByteBuffer source, int count) {
+        List<Integer> floors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            floors.add(source.getInt());
+        }
+        return floors;
+    }
+
+    // floors of the second list that are not in the first one, the lists only ever hold a building's worth of floors
+    private static List<Integer> missingFrom(List<Integer> floors, List<Integer> candidates) {
+        return candidates.stream()
+                .filter(floor -> !floors.contains(floor))
+                .toList();
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        // the length field is not part of the checksum, it is validated by the checksum landing in the right place
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + 4, length - 4));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,109 @@
+package com.bluestaq.elevatorchallenge.journal;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed size, memory mapped file of the {@link ElevatorJournal}. Records are appended by copying them into the
+ * mapping, which is all the writing path ever does. Once the bytes are in the mapping they survive a crash of the
+ * process, {@link #force()} is only needed to survive a crash of the machine and is called by the journal's flush
+ * thread for all records appended since the last call in one go.
+ *
+ * Appends must be serialized by the caller, force() may run at the same time as an append.
+ */
+class JournalSegment {
+
+    private static final String FILE_PREFIX = "segment-";
+    private static final String FILE_SUFFIX = ".journal";
+
+    @Getter
+    private final long sequence;
+    @Getter
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    // end of the appended data, published to the flush thread after the record bytes are written
+    private volatile int writePosition;
+    private int forcedPosition;
+
+    private JournalSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create a new empty segment, the file is allocated to its full size up front
+     */
+    static JournalSegment create(Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return new JournalSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Read every intact record of a segment file, reading stops at the first torn or corrupt record
+     */
+    static List<JournalRecord> readRecords(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<JournalRecord> records = new ArrayList<>();
+            JournalRecord record;
+            while ((record = JournalRecord.readFrom(buffer)) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+    }
+
+    static String fileName(long sequence) {
+        return FILE_PREFIX + String.format("%016d", sequence) + FILE_SUFFIX;
+    }
+
+    /**
+     * @return the sequence of a segment file name, or -1 if the file is not a segment
+     */
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    boolean hasRoom(int recordSize) {
+        return buffer.capacity() - writePosition >= recordSize;
+    }
+
+    void append(JournalRecord record) {
+        int position = writePosition;
+        int size = record.encodedSize();
+        record.writeTo(buffer.slice(position, size));
+        writePosition = position + size;
+    }
+
+    /**
+     * Write everything appended since the last call to the disk
+     */
+    synchronized void force() {
+        int position = writePosition;
+        if (position > forcedPosition) {
+            buffer.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+}
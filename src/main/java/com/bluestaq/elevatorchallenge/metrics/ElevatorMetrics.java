@@ -0,0 +1,286 @@
+package com.bluestaq.elevatorchallenge.metrics;
+
+import com.bluestaq.elevatorchallenge.service.ButtonPressCoalescer;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorEventListener;
+import com.bluestaq.elevatorchallenge.service.ElevatorPortfolio;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorTickScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for every car of the default bank, scraped from /actuator/prometheus. All meters are tagged with
+ * the car id. Meters are only updated from car events, which arrive on the car's own control thread, so the per car
+ * bookkeeping needs no locking. The other banks of the portfolio can run thousands of cars, they are only measured
+ * by the control workers that drive them, per car series would swamp the scraper.
+ *
+ * - elevator.hall.call.wait: time from a hall call being assigned to a car until that car stops at the floor
+ * - elevator.car.call.ride: time from pressing a floor button inside the car until the car stops at that floor
+ * - elevator.destinations: queued destinations per direction (up/down)
+ * - elevator.door.cycles, elevator.floors.traveled, elevator.emergency.stops: counters
+ * - elevator.tick.duration: real time one control cycle of the car took
+ * - elevator.worker.cars, elevator.worker.cycles, elevator.worker.cpu: cars, control cycles and CPU time of every
+ *   control worker, tagged with the worker index. CPU per cycle and per car follow from these
+ * - elevator.car.footprint: heap one hosted car takes, only when elevator.portfolio.measure-footprint is on
+ * - elevator.presses.absorbed: repeated button presses of every bank that never reached a car
+ * - elevator.hall.presses: presses of a hall button of the default bank since it lit up, tagged with floor and
+ *   direction. A high count is a crowded landing
+ */
+@Component
+public class ElevatorMetrics implements ElevatorEventListener {
+
+    static final String CAR_TAG = "car";
+    static final String DIRECTION_TAG = "direction";
+    static final String WORKER_TAG = "worker";
+    static final String FLOOR_TAG = "floor";
+
+    private static final long NOT_PENDING = -1;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    @Autowired(required = false)
+    ElevatorPortfolio portfolio;
+
+    @Autowired(required = false)
+    ButtonPressCoalescer coalescer;
+
+    // not there in simulation mode
+    @Autowired(required = false)
+    ElevatorTickScheduler tickScheduler;
+
+    // filled once on startup before any car thread runs, only read afterwards. Cars of other banks have no entry
+    private final Map<ElevatorCar, CarMeters> carMeters = new HashMap<>();
+
+    @PostConstruct
+    void registerMeters() {
+        for (ElevatorCar car : elevatorBank.getCars()) {
+            carMeters.put(car, new CarMeters(car));
+        }
+        if (tickScheduler != null) {
+            registerWorkerMeters();
+        }
+        if (coalescer != null) {
+            registerPressMeters();
+        }
+        if (portfolio != null && portfolio.getCarFootprintBytes() >= 0) {
+            Gauge.builder("elevator.car.footprint", portfolio, ElevatorPortfolio::getCarFootprintBytes)
+                    .description("Heap one hosted car takes, measured on startup")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+        elevatorService.addEventListener(this);
+    }
+
+    @Override
+    public void onHallCallAssigned(ElevatorCar car, int floor, ElevatorDirection direction, long timeMs) {
+        CarMeters meters = carMeters.get(car);
+        // the passenger who pressed first has been waiting the longest
+        if (meters != null && meters.pendingHallCallMs(direction)[floor] == NOT_PENDING) {
+            meters.pendingHallCallMs(direction)[floor] = timeMs;
+        }
+    }
+
+    @Override
+    public void onHallCallWithdrawn(ElevatorCar car, int floor, ElevatorDirection direction) {
+        // the wait is recorded by the car that takes the call over
+        CarMeters meters = carMeters.get(car);
+        if (meters != null) {
+            meters.pendingHallCallMs(direction)[floor] = NOT_PENDING;
+        }
+    }
+
+    @Override
+    public void onCarCall(ElevatorCar car, int floor, long timeMs) {
+        CarMeters meters = carMeters.get(car);
+        if (meters != null && meters.pendingCarCallMs[floor] == NOT_PENDING) {
+            meters.pendingCarCallMs[floor] = timeMs;
+        }
+    }
+
+    @Override
+    public void onCarArrived(ElevatorCar car, int floor, long arrivalTimeMs) {
+        CarMeters meters = carMeters.get(car);
+        if (meters == null) {
+            return;
+        }
+        // only the calls the car answered here are served, a call it passes on keeps waiting
+        for (ElevatorDirection direction : new ElevatorDirection[]{ElevatorDirection.UP, ElevatorDirection.DOWN}) {
+            if (!car.getDestinationManager().isHallCallPending(floor, direction)) {
+                recordPending(meters.pendingHallCallMs(direction), floor, arrivalTimeMs, meters.hallCallWait);
+            }
+        }
+        recordPending(meters.pendingCarCallMs, floor, arrivalTimeMs, meters.carCallRide);
+    }
+
+    @Override
+    public void onFloorTraveled(ElevatorCar car, int floor) {
+        CarMeters meters = carMeters.get(car);
+        if (meters != null) {
+            meters.floorsTraveled.increment();
+        }
+    }
+
+    @Override
+    public void onDoorsClosed(ElevatorCar car, int floor) {
+        CarMeters meters = carMeters.get(car);
+        if (meters != null) {
+            meters.doorCycles.increment();
+        }
+    }
+
+    @Override
+    public void onEmergencyStop(ElevatorCar car) {
+        CarMeters meters = carMeters.get(car);
+        if (meters == null) {
+            return;
+        }
+        meters.emergencyStops.increment();
+        // the destinations are gone, these calls will never be served
+        Arrays.fill(meters.pendingHallUpMs, NOT_PENDING);
+        Arrays.fill(meters.pendingHallDownMs, NOT_PENDING);
+        Arrays.fill(meters.pendingCarCallMs, NOT_PENDING);
+    }
+
+    @Override
+    public void onControlCycle(ElevatorCar car, long durationNanos) {
+        CarMeters meters = carMeters.get(car);
+        if (meters != null) {
+            meters.tickDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void registerWorkerMeters() {
+        for (int worker = 0; worker < tickScheduler.getWorkerCount(); worker++) {
+            int index = worker;
+            String workerTag = String.valueOf(worker);
+            Gauge.builder("elevator.worker.cars", () -> tickScheduler.getWorkerCarCount(index))
+                    .description("Cars the control worker drives")
+                    .tag(WORKER_TAG, workerTag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("elevator.worker.cycles", tickScheduler, scheduler -> scheduler.getWorkerCycles(index))
+                    .description("Control cycles the worker ran")
+                    .tag(WORKER_TAG, workerTag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("elevator.worker.cpu", tickScheduler,
+                            scheduler -> Math.max(0, scheduler.getWorkerCpuTimeNanos(index)) / 1e9)
+                    .description("CPU time the control worker used")
+                    .baseUnit("seconds")
+                    .tag(WORKER_TAG, workerTag)
+                    .register(meterRegistry);
+        }
+    }
+
+    private void registerPressMeters() {
+        FunctionCounter.builder("elevator.presses.absorbed", coalescer, ButtonPressCoalescer::getAbsorbedPresses)
+                .description("Repeated button presses absorbed before they reached a car")
+                .register(meterRegistry);
+        for (int floor = 1; floor <= elevatorBank.getMaxFloor(); floor++) {
+            for (ElevatorDirection direction : new ElevatorDirection[]{ElevatorDirection.UP, ElevatorDirection.DOWN}) {
+                int hallFloor = floor;
+                Gauge.builder("elevator.hall.presses", coalescer,
+                                presses -> presses.getHallPresses(elevatorBank, hallFloor, direction))
+                        .description("Presses of the hall button since it lit up")
+                        .tag(FLOOR_TAG, String.valueOf(floor))
+                        .tag(DIRECTION_TAG, direction.name().toLowerCase())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    private static void recordPending(long[] pendingTimes, int floor, long arrivalTimeMs, Timer timer) {
+        if (pendingTimes[floor] != NOT_PENDING) {
+            timer.record(Math.max(0, arrivalTimeMs - pendingTimes[floor]), TimeUnit.MILLISECONDS);
+            pendingTimes[floor] = NOT_PENDING;
+        }
+    }
+
+    private final class CarMeters {
+        // request time per floor, indexed by floor number. Each hall button of a floor is a call of its own
+        private final long[] pendingHallUpMs;
+        private final long[] pendingHallDownMs;
+        private final long[] pendingCarCallMs;
+
+        private final Timer hallCallWait;
+        private final Timer carCallRide;
+        private final Timer tickDuration;
+        private final Counter doorCycles;
+        private final Counter floorsTraveled;
+        private final Counter emergencyStops;
+
+        private CarMeters(ElevatorCar car) {
+            String carId = String.valueOf(car.getId());
+            int floorCount = car.getState().getMaxFloor() + 1;
+            pendingHallUpMs = new long[floorCount];
+            pendingHallDownMs = new long[floorCount];
+            pendingCarCallMs = new long[floorCount];
+            Arrays.fill(pendingHallUpMs, NOT_PENDING);
+            Arrays.fill(pendingHallDownMs, NOT_PENDING);
+            Arrays.fill(pendingCarCallMs, NOT_PENDING);
+
+            hallCallWait = Timer.builder("elevator.hall.call.wait")
+                    .description("Time from a hall call being assigned until the car stops at the floor")
+                    .tag(CAR_TAG, carId)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            carCallRide = Timer.builder("elevator.car.call.ride")
+                    .description("Time from a floor button press inside the car until the car stops at that floor")
+                    .tag(CAR_TAG, carId)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            tickDuration = Timer.builder("elevator.tick.duration")
+                    .description("Time one control cycle of the car took")
+                    .tag(CAR_TAG, carId)
+                    .register(meterRegistry);
+            doorCycles = Counter.builder("elevator.door.cycles")
+                    .description("Completed open and close cycles of the doors")
+                    .tag(CAR_TAG, carId)
+                    .register(meterRegistry);
+            floorsTraveled = Counter.builder("elevator.floors.traveled")
+                    .description("Floors the car moved")
+                    .tag(CAR_TAG, carId)
+                    .register(meterRegistry);
+            emergencyStops = Counter.builder("elevator.emergency.stops")
+                    .description("Emergency stop activations")
+                    .tag(CAR_TAG, carId)
+                    .register(meterRegistry);
+
+            ElevatorDestinationManager destinationManager = car.getDestinationManager();
+            Gauge.builder("elevator.destinations", destinationManager, manager -> manager.getUpwardFloors().size())
+                    .description("Destinations queued in the direction")
+                    .tag(CAR_TAG, carId)
+                    .tag(DIRECTION_TAG, "up")
+                    .register(meterRegistry);
+            Gauge.builder("elevator.destinations", destinationManager, manager -> manager.getDownwardFloors().size())
+                    .description("Destinations queued in the direction")
+                    .tag(CAR_TAG, carId)
+                    .tag(DIRECTION_TAG, "down")
+                    .register(meterRegistry);
+        }
+
+        private long[] pendingHallCallMs(ElevatorDirection direction) {
+            return direction == ElevatorDirection.UP ? pendingHallUpMs : pendingHallDownMs;
+        }
+    }
+}
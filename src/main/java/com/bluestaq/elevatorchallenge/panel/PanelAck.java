@@ -0,0 +1,41 @@
+package com.bluestaq.elevatorchallenge.panel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Answer of the {@link PanelServer} to one {@link PanelFrame}, sent in the order the frames came in. ACCEPTED means
+ * the command is queued with the car, carId is the car it went to, for a hall call the one the dispatcher picked.
+ * Like a 202 of the REST endpoints it says nothing about what the car makes of the command once it applies it, a
+ * door command the car's safety checks turn down later is still ACCEPTED.
+ *
+ * Binary layout, big endian, the status is stored by ordinal so the order of Status must not change:
+ * int sequence | byte status | byte unused | short carId
+ */
+public record PanelAck(int sequence, Status status, int carId) {
+
+    public enum Status {
+        ACCEPTED,
+        // unknown bank or car, a floor the car doesn't serve or a hall button the floor doesn't have
+        REJECTED,
+        // the car is in emergency stop
+        EMERGENCY,
+        // the frame could not be read, it has an unknown version or type
+        MALFORMED
+    }
+
+    public static final int SIZE = 4 + 1 + 1 + 2;
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(sequence)
+                .put((byte) status.ordinal())
+                .put((byte) 0)
+                .putShort((short) carId);
+    }
+
+    public static PanelAck readFrom(ByteBuffer buffer) {
+        int sequence = buffer.getInt();
+        Status status = Status.values()[buffer.get()];
+        buffer.get();
+        return new PanelAck(sequence, status, Short.toUnsignedInt(buffer.getShort()));
+    }
+}
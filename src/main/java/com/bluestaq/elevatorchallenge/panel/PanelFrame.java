@@ -0,0 +1,57 @@
+package com.bluestaq.elevatorchallenge.panel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One button event of a hall or car panel, see {@link PanelServer}. Every frame has the same size, so a panel can
+ * send them back to back and the server never has to look for where one ends.
+ *
+ * Binary layout, big endian, the type is stored by ordinal so the order of Type must not change:
+ * int sequence | byte version | byte type | short bank | short carId | short floor
+ * bank is the index of the bank in the portfolio, 0 is the default bank. carId is ignored by hall calls, floor by
+ * the door buttons
+ */
+public record PanelFrame(int sequence, Type type, int bankIndex, int carId, int floor) {
+
+    public enum Type { HALL_CALL_UP, HALL_CALL_DOWN, CAR_CALL, OPEN_DOORS, CLOSE_DOORS }
+
+    public static final byte VERSION = 1;
+    public static final int SIZE = 4 + 1 + 1 + 2 + 2 + 2;
+
+    public static PanelFrame hallCall(int sequence, int bankIndex, int floor, boolean up) {
+        return new PanelFrame(sequence, up ? Type.HALL_CALL_UP : Type.HALL_CALL_DOWN, bankIndex, 0, floor);
+    }
+
+    public static PanelFrame carCall(int sequence, int bankIndex, int carId, int floor) {
+        return new PanelFrame(sequence, Type.CAR_CALL, bankIndex, carId, floor);
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(sequence)
+                .put(VERSION)
+                .put((byte) type.ordinal())
+                .putShort((short) bankIndex)
+                .putShort((short) carId)
+                .putShort((short) floor);
+    }
+
+    /**
+     * Read the next frame, an unknown version or type is a client error. The whole frame is consumed either way
+     * so the frames after it can still be read
+     */
+    public static PanelFrame readFrom(ByteBuffer buffer) {
+        int sequence = buffer.getInt();
+        byte version = buffer.get();
+        int type = buffer.get();
+        int bankIndex = Short.toUnsignedInt(buffer.getShort());
+        int carId = Short.toUnsignedInt(buffer.getShort());
+        int floor = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported panel protocol version " + version);
+        }
+        if (type < 0 || type >= Type.values().length) {
+            throw new IllegalArgumentException("Unknown panel frame type " + type);
+        }
+        return new PanelFrame(sequence, Type.values()[type], bankIndex, carId, floor);
+    }
+}
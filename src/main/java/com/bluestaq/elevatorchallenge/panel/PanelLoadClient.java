@@ -0,0 +1,170 @@
+package com.bluestaq.elevatorchallenge.panel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Panel that talks to a {@link PanelServer}, for tests and for load runs on loopback. Frames are pipelined, up to
+ * window frames are sent before the client waits for their acks. Plain Java, so it runs straight from the build
+ * output while the service is running with elevator.panel.enabled=true:
+ *
+ * java -cp target/classes com.bluestaq.elevatorchallenge.panel.PanelLoadClient localhost 7070 4 100000 256
+ * arguments are host, port, connections, frames per connection, window and optionally cars and top floor
+ */
+public class PanelLoadClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer acks = ByteBuffer.allocate(PanelAck.SIZE * 1024);
+
+    /**
+     * Outcome of a load run, latencies are from sending a frame to reading its ack
+     */
+    public record Report(long frames, long accepted, long rejected, long elapsedNanos, long p50Nanos, long p99Nanos) {
+
+        public double framesPerSecond() {
+            return frames * 1_000_000_000.0 / Math.max(1, elapsedNanos);
+        }
+
+        Report plus(Report other) {
+            // connections run side by side, so the slowest one sets the elapsed time
+            return new Report(frames + other.frames, accepted + other.accepted, rejected + other.rejected,
+                    Math.max(elapsedNanos, other.elapsedNanos), Math.max(p50Nanos, other.p50Nanos),
+                    Math.max(p99Nanos, other.p99Nanos));
+        }
+    }
+
+    public PanelLoadClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Send the frames with at most window of them waiting for an ack and return the acks in order
+     */
+    public List<PanelAck> exchange(List<PanelFrame> frames, int window) throws IOException {
+        List<PanelAck> result = new ArrayList<>(frames.size());
+        pump(frames.size(), window, frames::get, result::add, new long[frames.size()]);
+        return result;
+    }
+
+    /**
+     * Send random hall and car calls as fast as the server acks them
+     */
+    public Report run(int frameCount, int window, int carCount, int maxFloor, Random random) throws IOException {
+        long[] latencies = new long[frameCount];
+        long[] accepted = new long[1];
+        long start = System.nanoTime();
+        pump(frameCount, window, sequence -> randomFrame(sequence, carCount, maxFloor, random), ack -> {
+            if (ack.status() == PanelAck.Status.ACCEPTED) {
+                accepted[0]++;
+            }
+        }, latencies);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Report(frameCount, accepted[0], frameCount - accepted[0], elapsed,
+                latencies[frameCount / 2], latencies[(int) (frameCount * 0.99)]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void pump(int frameCount, int window, IntFunction<PanelFrame> nextFrame, Consumer<PanelAck> onAck,
+                      long[] latencies) throws IOException {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1, was " + window);
+        }
+        ByteBuffer frames = ByteBuffer.allocate(PanelFrame.SIZE * Math.min(window, 1024));
+        long[] sentAt = new long[window];
+        int[] sequences = new int[window];
+        int sent = 0;
+        int acked = 0;
+        while (acked < frameCount) {
+            frames.clear();
+            while (sent < frameCount && sent - acked < window && frames.remaining() >= PanelFrame.SIZE) {
+                PanelFrame frame = nextFrame.apply(sent);
+                frame.writeTo(frames);
+                sequences[sent % window] = frame.sequence();
+                sentAt[sent % window] = System.nanoTime();
+                sent++;
+            }
+            frames.flip();
+            while (frames.hasRemaining()) {
+                channel.write(frames);
+            }
+
+            if (channel.read(acks) < 0) {
+                throw new IOException("Panel server closed the connection after " + acked + " ack(s)");
+            }
+            acks.flip();
+            while (acks.remaining() >= PanelAck.SIZE) {
+                PanelAck ack = PanelAck.readFrom(acks);
+                if (ack.sequence() != sequences[acked % window]) {
+                    throw new IOException("Expected the ack of frame " + sequences[acked % window] + " but got " + ack.sequence());
+                }
+                latencies[acked] = System.nanoTime() - sentAt[acked % window];
+                onAck.accept(ack);
+                acked++;
+            }
+            acks.compact();
+        }
+    }
+
+    private static PanelFrame randomFrame(int sequence, int carCount, int maxFloor, Random random) {
+        int floor = 1 + random.nextInt(maxFloor);
+        if (random.nextBoolean()) {
+            // hall calls only have the buttons a floor really has
+            boolean up = floor == 1 || (floor < maxFloor && random.nextBoolean());
+            return PanelFrame.hallCall(sequence, 0, floor, up);
+        }
+        return PanelFrame.carCall(sequence, 0, 1 + random.nextInt(carCount), floor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.out.println("Usage: PanelLoadClient host port connections frames-per-connection window [cars] [top-floor]");
+            return;
+        }
+        InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int connections = Integer.parseInt(args[2]);
+        int frames = Integer.parseInt(args[3]);
+        int window = Integer.parseInt(args[4]);
+        int carCount = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+        int maxFloor = args.length > 6 ? Integer.parseInt(args[6]) : 20;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(connections)) {
+            List<Future<Report>> runs = new ArrayList<>();
+            for (int connection = 0; connection < connections; connection++) {
+                long seed = connection;
+                runs.add(executor.submit(() -> {
+                    try (PanelLoadClient client = new PanelLoadClient(address)) {
+                        return client.run(frames, window, carCount, maxFloor, new Random(seed));
+                    }
+                }));
+            }
+            Report total = runs.get(0).get();
+            for (int run = 1; run < runs.size(); run++) {
+                total = total.plus(runs.get(run).get());
+            }
+            System.out.printf("%d frame(s) over %d connection(s) in %d ms: %.0f frames/s, %d accepted, %d rejected, "
+                            + "ack latency p50 %.3f ms p99 %.3f ms (slowest connection)%n",
+                    total.frames(), connections, total.elapsedNanos() / 1_000_000, total.framesPerSecond(),
+                    total.accepted(), total.rejected(), total.p50Nanos() / 1e6, total.p99Nanos() / 1e6);
+        }
+    }
+}
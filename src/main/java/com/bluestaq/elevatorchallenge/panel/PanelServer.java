@@ -0,0 +1,321 @@
+package com.bluestaq.elevatorchallenge.panel;
+
+import com.bluestaq.elevatorchallenge.exception.ElevatorEmergencyException;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorPortfolio;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.PendingCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TCP listener for hall and car panels that send button events at a high rate. A panel sends fixed size
+ * {@link PanelFrame}s and gets one {@link PanelAck} per frame, in order. Frames may be pipelined, a panel does not
+ * have to wait for an ack before it sends the next frame.
+ *
+ * One selector thread serves every connection without blocking. All frames that arrived in one read are turned into
+ * the same queued commands as the REST button presses, a hall call frame is dispatched like /callElevator and a car
+ * call frame queued like /pressFloorNumber, and their acks go out together in a single write. An ack means the
+ * command is queued with the car, the same as a 202 from the REST endpoints.
+ *
+ * Car calls and door commands only go into the car's mailbox, they are queued right on the selector thread and so
+ * reach the car in the order they were sent. A hall call has the dispatcher cost every car of the bank first, the
+ * hall calls of one read are handed to a virtual thread together so a busy bank doesn't hold up the reads and acks
+ * of every other panel. Their acks and every ack after them on the same connection wait until the dispatch is done,
+ * acks always go out in frame order.
+ * Not used in simulation mode, there is no real time to serve panels in
+ */
+@Component
+@Profile("!simulation")
+@ConditionalOnProperty(name = "elevator.panel.enabled", havingValue = "true")
+@Slf4j
+public class PanelServer implements SmartLifecycle {
+
+    // frames read per connection before their acks have to go out, including the ones still being dispatched
+    private static final int FRAMES_PER_READ = 512;
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorPortfolio portfolio;
+
+    @Value("${elevator.panel.port:7070}")
+    int port;
+
+    private volatile boolean running;
+    private List<ElevatorBank> banks;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    // hall call dispatch, one virtual thread per read that had hall calls
+    private ExecutorService dispatchExecutor;
+    // connections with a dispatched hall call that finished, their acks may be able to go out now
+    private final Queue<SelectionKey> dispatchedKeys = new ConcurrentLinkedQueue<>();
+
+    // buffers of one panel connection, only touched by the selector thread
+    private static final class Connection {
+        private final ByteBuffer frames = ByteBuffer.allocate(PanelFrame.SIZE * FRAMES_PER_READ);
+        private final ByteBuffer acks = ByteBuffer.allocate(PanelAck.SIZE * FRAMES_PER_READ);
+        // acks of the handled frames in frame order, the head goes into the acks buffer once it is done
+        private final Deque<CompletableFuture<PanelAck>> pendingAcks = new ArrayDeque<>();
+        // set while the connection is on the dispatched queue, so a burst of hall calls queues it once
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+
+        // frames handled but not acked yet, never more than the acks buffer holds
+        private int acksInFlight() {
+            return pendingAcks.size() + acks.position() / PanelAck.SIZE;
+        }
+    }
+
+    @Override
+    public void start() {
+        banks = portfolio.getBanks();
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the panel port " + port, e);
+        }
+        running = true;
+        dispatchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        thread = Thread.ofPlatform()
+                .name("elevator-panel-server")
+                .daemon()
+                .start(this::run);
+        log.info("Panel server listening on port {}", getPort());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatchExecutor.close();
+        log.info("Panel server stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Port the server listens on, the one the OS picked when configured with port 0
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            log.warn("Could not accept a panel connection: {}", e.getMessage());
+                        }
+                    } else {
+                        serve(key, key.isReadable());
+                    }
+                }
+                SelectionKey key;
+                while ((key = dispatchedKeys.poll()) != null) {
+                    ((Connection) key.attachment()).dispatched.set(false);
+                    if (key.isValid()) {
+                        serve(key, false);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Panel server failed: {}", e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Could not close the panel selector: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        // acks are small and a panel waits for them, don't hold them back
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+        log.debug("Panel connected from {}", channel.getRemoteAddress());
+    }
+
+    private void serve(SelectionKey key, boolean readable) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (readable && channel.read(connection.frames) < 0) {
+                close(key);
+                return;
+            }
+            // frames held back for lack of ack room get their turn once the acks before them are out
+            boolean progress;
+            do {
+                progress = handleFrames(key, connection) | collectAcks(connection);
+            } while (writeAcks(channel, connection) && progress);
+
+            // stop reading while the frame buffer is full of frames that have no room for their ack
+            int interest = connection.frames.hasRemaining() ? SelectionKey.OP_READ : 0;
+            key.interestOps(connection.acks.position() > 0 ? interest | SelectionKey.OP_WRITE : interest);
+        } catch (IOException e) {
+            // the panel went away, the other panels carry on
+            log.debug("Panel connection closed: {}", e.getMessage());
+            close(key);
+        }
+    }
+
+    // true once every ack is written, the rest waits for the socket to take more
+    private static boolean writeAcks(SocketChannel channel, Connection connection) throws IOException {
+        connection.acks.flip();
+        channel.write(connection.acks);
+        connection.acks.compact();
+        return connection.acks.position() == 0;
+    }
+
+    // a hall call frame waiting for the dispatcher and where its ack goes
+    private record HallCall(PanelFrame frame, CompletableFuture<PanelAck> ack) {}
+
+    // every complete frame that has room for its ack, a partial frame waits for the rest of its bytes
+    private boolean handleFrames(SelectionKey key, Connection connection) {
+        ByteBuffer frames = connection.frames.flip();
+        List<HallCall> hallCalls = new ArrayList<>();
+        boolean handled = false;
+        while (frames.remaining() >= PanelFrame.SIZE && connection.acksInFlight() < FRAMES_PER_READ) {
+            // the sequence is read up front so even a malformed frame gets its ack
+            int sequence = frames.getInt(frames.position());
+            PanelFrame frame;
+            try {
+                frame = PanelFrame.readFrom(frames);
+            } catch (IllegalArgumentException e) {
+                log.debug("Malformed panel frame {}: {}", sequence, e.getMessage());
+                frame = null;
+            }
+            CompletableFuture<PanelAck> ack;
+            if (frame == null) {
+                ack = CompletableFuture.completedFuture(new PanelAck(sequence, PanelAck.Status.MALFORMED, 0));
+            } else if (frame.type() == PanelFrame.Type.HALL_CALL_UP || frame.type() == PanelFrame.Type.HALL_CALL_DOWN) {
+                ack = new CompletableFuture<>();
+                hallCalls.add(new HallCall(frame, ack));
+            } else {
+                ack = CompletableFuture.completedFuture(handleFrame(frame));
+            }
+            connection.pendingAcks.add(ack);
+            handled = true;
+        }
+        frames.compact();
+        if (!hallCalls.isEmpty()) {
+            dispatchExecutor.execute(() -> dispatch(key, connection, hallCalls));
+        }
+        return handled;
+    }
+
+    // runs on a virtual thread, the selector thread picks the acks up once the whole read is dispatched
+    private void dispatch(SelectionKey key, Connection connection, List<HallCall> hallCalls) {
+        for (HallCall hallCall : hallCalls) {
+            hallCall.ack().complete(handleFrame(hallCall.frame()));
+        }
+        if (!connection.dispatched.getAndSet(true)) {
+            dispatchedKeys.add(key);
+            selector.wakeup();
+        }
+    }
+
+    // move the acks that are ready into the acks buffer, stopping at the first one still being dispatched
+    private static boolean collectAcks(Connection connection) {
+        boolean collected = false;
+        while (!connection.pendingAcks.isEmpty() && connection.pendingAcks.peek().isDone()) {
+            // handleFrame answers every failure with an ack of its own
+            connection.pendingAcks.poll().join().writeTo(connection.acks);
+            collected = true;
+        }
+        return collected;
+    }
+
+    private PanelAck handleFrame(PanelFrame frame) {
+        try {
+            if (frame.bankIndex() >= banks.size()) {
+                throw new IllegalArgumentException("Unknown elevator bank " + frame.bankIndex());
+            }
+            ElevatorBank bank = banks.get(frame.bankIndex());
+            PendingCommand command = switch (frame.type()) {
+                case HALL_CALL_UP -> elevatorService.callElevatorAsync(bank, frame.floor(), ElevatorDirection.UP, null);
+                case HALL_CALL_DOWN -> elevatorService.callElevatorAsync(bank, frame.floor(), ElevatorDirection.DOWN, null);
+                case CAR_CALL -> elevatorService.pressFloorButtonAsync(bank, frame.carId(), frame.floor());
+                case OPEN_DOORS -> elevatorService.openDoorsAsync(bank, frame.carId());
+                case CLOSE_DOORS -> elevatorService.closeDoorsAsync(bank, frame.carId());
+            };
+            return new PanelAck(frame.sequence(), PanelAck.Status.ACCEPTED, command.carId());
+        } catch (ElevatorEmergencyException e) {
+            return new PanelAck(frame.sequence(), PanelAck.Status.EMERGENCY, frame.carId());
+        } catch (IllegalArgumentException e) {
+            log.debug("Panel frame {} rejected: {}", frame.sequence(), e.getMessage());
+            return new PanelAck(frame.sequence(), PanelAck.Status.REJECTED, frame.carId());
+        } catch (RuntimeException e) {
+            // one broken frame must not take down the selector thread and every other panel with it
+            log.warn("Panel frame {} failed: {}", frame.sequence(), e.getMessage());
+            return new PanelAck(frame.sequence(), PanelAck.Status.REJECTED, frame.carId());
+        }
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Could not close panel connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Front line for button presses. Impatient passengers press a lit button again and again, and every press used to go
+ * all the way to the car's mailbox just for the car to find the floor already queued. A press of a button that is
+ * still lit is absorbed here on the request thread instead, in O(1) and without a lock: a car call when the car
+ * already has the floor as a car call, a hall call when the car the call was last given to still has it queued.
+ * The caller gets the car that serves the press right away and nothing is queued with the car.
+ *
+ * Only presses the car would have ignored as duplicates are absorbed, the car has to be idle or moving and not at the
+ * floor, the same states its commands accept. Anything else goes to the car as before, so an emergency stop or an
+ * invalid floor is still reported the usual way. The check reads the lock-free floor sets of the car, so a press that
+ * races with the car arriving at the floor may be absorbed just before the button goes dark, same as pressing a
+ * button a moment before the doors open.
+ *
+ * Every press is counted per floor whether it is absorbed or not. The presses of a lit hall button since it lit up
+ * tell how crowded the landing is, see {@link #getHallPresses}.
+ * Every bank has its own buttons
+ */
+@Component
+@Slf4j
+public class ButtonPressCoalescer {
+
+    private static final int NO_CAR = 0;
+
+    @Value("${elevator.coalescing.enabled:true}")
+    boolean enabled;
+
+    private final Map<ElevatorBank, BankButtons> buttonsByBank = new ConcurrentHashMap<>();
+
+    private final LongAdder absorbedPresses = new LongAdder();
+
+    // buttons of one bank, indexed by floor
+    private static final class BankButtons {
+        // car the hall call of the floor was last given to, NO_CAR if none
+        private final AtomicIntegerArray hallUpCars;
+        private final AtomicIntegerArray hallDownCars;
+        // presses of the hall button since it last lit up
+        private final AtomicLongArray hallUpPresses;
+        private final AtomicLongArray hallDownPresses;
+        // presses of the floor's button inside any car of the bank
+        private final AtomicLongArray carCallPresses;
+
+        private BankButtons(int maxFloor) {
+            hallUpCars = new AtomicIntegerArray(maxFloor + 1);
+            hallDownCars = new AtomicIntegerArray(maxFloor + 1);
+            hallUpPresses = new AtomicLongArray(maxFloor + 1);
+            hallDownPresses = new AtomicLongArray(maxFloor + 1);
+            carCallPresses = new AtomicLongArray(maxFloor + 1);
+        }
+
+        private AtomicIntegerArray hallCars(ElevatorDirection direction) {
+            return direction == ElevatorDirection.UP ? hallUpCars : hallDownCars;
+        }
+
+        private AtomicLongArray hallPresses(ElevatorDirection direction) {
+            return direction == ElevatorDirection.UP ? hallUpPresses : hallDownPresses;
+        }
+
+        private boolean hasFloor(int floor) {
+            return floor >= 0 && floor < carCallPresses.length();
+        }
+    }
+
+    /**
+     * Count a floor button pressed inside a car
+     *
+     * @return true if the car already has the floor as a car call and the press needs to go no further
+     */
+    public boolean absorbCarCall(ElevatorCar car, int floor) {
+        BankButtons buttons = buttonsOf(car.getBank());
+        if (!buttons.hasFloor(floor)) {
+            return false;
+        }
+        buttons.carCallPresses.incrementAndGet(floor);
+        if (!enabled || !car.getDestinationManager().getCarCallFloors().contains(floor) || !isTakingPresses(car, floor)) {
+            return false;
+        }
+        absorbedPresses.increment();
+        log.trace("Absorbed repeated press of floor button {} in car {}", floor, car.getId());
+        return true;
+    }
+
+    /**
+     * Count a hall button pressed on a floor. zoneName is the zone whose buttons were pressed, null for any zone
+     *
+     * @return the car that still has the call queued, null if the press has to be dispatched
+     */
+    public ElevatorCar absorbHallCall(ElevatorBank bank, int floor, ElevatorDirection direction, String zoneName) {
+        BankButtons buttons = buttonsOf(bank);
+        if (!buttons.hasFloor(floor) || direction == null || direction == ElevatorDirection.NONE) {
+            return null;
+        }
+        ElevatorCar car = pendingCar(bank, buttons, floor, direction, zoneName);
+        if (car == null) {
+            // this press lights the button, the count starts over
+            buttons.hallPresses(direction).set(floor, 1);
+            return null;
+        }
+        buttons.hallPresses(direction).incrementAndGet(floor);
+        if (!enabled) {
+            return null;
+        }
+        absorbedPresses.increment();
+        log.trace("Absorbed repeated hall call floor {} {}, car {} is on its way", floor, direction, car.getId());
+        return car;
+    }
+
+    /**
+     * Remember which car a hall call went to, repeated presses of the button are absorbed while the car has it queued
+     */
+    public void hallCallAssigned(ElevatorCar car, int floor, ElevatorDirection direction) {
+        BankButtons buttons = buttonsOf(car.getBank());
+        if (buttons.hasFloor(floor)) {
+            buttons.hallCars(direction).set(floor, car.getId());
+        }
+    }
+
+    /**
+     * Presses of the hall button since it last lit up, a rough count of the people waiting at the landing.
+     * Keeps its last value after the call is served, until the button is pressed again
+     */
+    public long getHallPresses(ElevatorBank bank, int floor, ElevatorDirection direction) {
+        BankButtons buttons = buttonsOf(bank);
+        return buttons.hasFloor(floor) ? buttons.hallPresses(direction).get(floor) : 0;
+    }
+
+    /**
+     * Presses of the floor's button inside the cars of the bank since startup
+     */
+    public long getCarCallPresses(ElevatorBank bank, int floor) {
+        BankButtons buttons = buttonsOf(bank);
+        return buttons.hasFloor(floor) ? buttons.carCallPresses.get(floor) : 0;
+    }
+
+    /**
+     * Presses of every bank that were absorbed since startup
+     */
+    public long getAbsorbedPresses() {
+        return absorbedPresses.sum();
+    }
+
+    private ElevatorCar pendingCar(ElevatorBank bank, BankButtons buttons, int floor, ElevatorDirection direction,
+                                   String zoneName) {
+        int carId = buttons.hallCars(direction).get(floor);
+        if (carId == NO_CAR) {
+            return null;
+        }
+        ElevatorCar car = bank.getCar(carId);
+        // a press on the buttons of one zone is only absorbed by a car of that zone
+        if (zoneName != null && !zoneName.equals(car.getState().getZoneName())) {
+            return null;
+        }
+        if (!car.getDestinationManager().isHallCallPending(floor, direction) || !isTakingPresses(car, floor)) {
+            return null;
+        }
+        return car;
+    }
+
+    // a car at the floor reopens its doors for a press, a car in any other state than idle or moving rejects it
+    private static boolean isTakingPresses(ElevatorCar car, int floor) {
+        ElevatorDTO snapshot = car.getSnapshot();
+        return snapshot.currentFloor() != floor
+                && (snapshot.state() == ElevatorMovement.IDLE || snapshot.state() == ElevatorMovement.MOVING);
+    }
+
+    private BankButtons buttonsOf(ElevatorBank bank) {
+        return buttonsByBank.computeIfAbsent(bank, key -> new BankButtons(key.getMaxFloor()));
+    }
+}
@@ -0,0 +1,266 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategyType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Group of elevator cars that serve the same building. Every car is independent, it has its own
+ * {@link ElevatorState} and its own {@link ElevatorDestinationManager}. Cars are numbered starting at 1
+ * and all share the timing and floor configuration from application.properties, only the scheduling strategy and
+ * the {@link ElevatorZone} can be set per car. A car without a zone serves every floor.
+ *
+ * This bean is the default bank, the one the plain REST endpoints and the simulation drive. Every other bank of the
+ * {@link ElevatorPortfolio} is created from it with {@link #createBank} and runs with the same car settings
+ */
+@Component
+@Slf4j
+public class ElevatorBank {
+
+    public static final String DEFAULT_BUILDING = "default";
+    public static final String DEFAULT_BANK = "main";
+
+    @Getter
+    private final String buildingId;
+    @Getter
+    private final String bankId;
+    // strategy of cars without an override, banks created from this one use it for every car
+    private final SchedulingStrategyType defaultStrategyType;
+    private final Map<Integer, ElevatorCar> cars = new LinkedHashMap<>();
+    private final List<ElevatorCar> carList = new ArrayList<>();
+    private final Map<String, ElevatorZone> zones = new LinkedHashMap<>();
+
+    @Autowired
+    public ElevatorBank(@Value("${elevator.car-count:1}") int carCount,
+                        @Value("${elevator.max-floor:20}") int maxFloor,
+                        @Value("${elevator.floor-travel-time:4000}") long floorTravelTimeMs,
+                        @Value("${elevator.door-operation-time:3000}") long doorOperationTimeMs,
+                        @Value("${elevator.door-wait-time:5000}") long doorWaitTimeMs,
+                        @Value("${elevator.load.capacity:1000}") int capacityKg,
+                        @Value("${elevator.load.bypass-threshold:0.8}") double bypassThreshold,
+                        @Value("${elevator.scheduling.strategy:COLLECTIVE}") String defaultStrategy,
+                        @Value("${elevator.scheduling.car-strategies:}") String carStrategies,
+                        @Value("${elevator.zoning.zones:}") String zoneDefinitions,
+                        @Value("${elevator.zoning.car-zones:}") String carZones,
+                        @Value("${elevator.zoning.express-floor-travel-time:${elevator.floor-travel-time:4000}}") long expressFloorTravelTimeMs) {
+
+        if (carCount < 1) {
+            throw new IllegalArgumentException("Elevator bank needs at least one car, configured: " + carCount);
+        }
+        buildingId = DEFAULT_BUILDING;
+        bankId = DEFAULT_BANK;
+        if (capacityKg < 1 || bypassThreshold <= 0 || bypassThreshold > 1) {
+            throw new IllegalArgumentException("Car capacity must be positive and the bypass threshold between 0 and 1, configured: "
+                    + capacityKg + "kg, " + bypassThreshold);
+        }
+        defaultStrategyType = SchedulingStrategyType.fromName(defaultStrategy);
+        Map<Integer, SchedulingStrategyType> strategyPerCar = parseCarStrategies(carStrategies, carCount);
+        parseZones(zoneDefinitions, maxFloor);
+        Map<Integer, ElevatorZone> zonePerCar = parseCarZones(carZones, carCount);
+
+        for (int id = 1; id <= carCount; id++) {
+            ElevatorState state = new ElevatorState(id);
+            state.setMaxFloor(maxFloor);
+            state.setFloorTravelTimeMs(floorTravelTimeMs);
+            state.setDoorOperationTimeMs(doorOperationTimeMs);
+            state.setDoorWaitTimeMs(doorWaitTimeMs);
+            state.setCapacityKg(capacityKg);
+            state.setBypassLoadKg((int) Math.round(capacityKg * bypassThreshold));
+            state.setExpressFloorTravelTimeMs(expressFloorTravelTimeMs);
+            state.setZone(zonePerCar.get(id));
+            SchedulingStrategyType strategyType = strategyPerCar.getOrDefault(id, defaultStrategyType);
+            addCar(new ElevatorCar(state, new ElevatorDestinationManager(maxFloor, strategyType.getStrategy())));
+            log.info("Car {} schedules its floors with {}{}", id, strategyType,
+                    state.getZone() == null ? "" : ", zone " + state.getZone().name() + " " + state.getZone().floors());
+        }
+    }
+
+    /**
+     * Build a bank from already created cars, useful when the cars need custom state
+     */
+    public ElevatorBank(List<ElevatorCar> cars) {
+        this(DEFAULT_BUILDING, DEFAULT_BANK, SchedulingStrategyType.COLLECTIVE, cars);
+    }
+
+    private ElevatorBank(String buildingId, String bankId, SchedulingStrategyType defaultStrategyType, List<ElevatorCar> cars) {
+        if (cars.isEmpty()) {
+            throw new IllegalArgumentException("Elevator bank needs at least one car");
+        }
+        this.buildingId = buildingId;
+        this.bankId = bankId;
+        this.defaultStrategyType = defaultStrategyType;
+        cars.forEach(this::addCar);
+    }
+
+    /**
+     * A new bank of another building with the timing, load and strategy settings of the cars of this one.
+     * The new bank has no zones, its cars are numbered from 1 again
+     */
+    public ElevatorBank createBank(String buildingId, String bankId, int carCount, int maxFloor) {
+        if (carCount < 1 || maxFloor < 2) {
+            throw new IllegalArgumentException("Bank " + buildingId + "/" + bankId
+                    + " needs at least one car and two floors, configured: " + carCount + " car(s), " + maxFloor + " floor(s)");
+        }
+        ElevatorState template = carList.get(0).getState();
+        List<ElevatorCar> newCars = new ArrayList<>(carCount);
+        for (int id = 1; id <= carCount; id++) {
+            ElevatorState state = new ElevatorState(id);
+            state.setMaxFloor(maxFloor);
+            state.setFloorTravelTimeMs(template.getFloorTravelTimeMs());
+            state.setDoorOperationTimeMs(template.getDoorOperationTimeMs());
+            state.setDoorWaitTimeMs(template.getDoorWaitTimeMs());
+            state.setCapacityKg(template.getCapacityKg());
+            state.setBypassLoadKg(template.getBypassLoadKg());
+            state.setExpressFloorTravelTimeMs(template.getExpressFloorTravelTimeMs());
+            newCars.add(new ElevatorCar(state, new ElevatorDestinationManager(maxFloor, defaultStrategyType.getStrategy())));
+        }
+        return new ElevatorBank(buildingId, bankId, defaultStrategyType, newCars);
+    }
+
+    /**
+     * Look up a car by its id, unknown ids are a client error
+     */
+    public ElevatorCar getCar(int carId) {
+        ElevatorCar car = cars.get(carId);
+        if (car == null) {
+            throw new IllegalArgumentException("Unknown elevator car " + carId + ", valid ids are " + cars.keySet());
+        }
+        return car;
+    }
+
+    public List<ElevatorCar> getCars() {
+        return Collections.unmodifiableList(carList);
+    }
+
+    /**
+     * Cars that can answer a hall call on a floor, only the cars of the given zone when there is one
+     */
+    public List<ElevatorCar> getCarsServing(int floor, String zoneName) {
+        ElevatorZone zone = zoneName == null ? null : getZone(zoneName);
+        List<ElevatorCar> servingCars = new ArrayList<>();
+        for (ElevatorCar car : carList) {
+            if (car.getState().servesFloor(floor) && (zone == null || car.getState().getZone() == zone)) {
+                servingCars.add(car);
+            }
+        }
+        if (servingCars.isEmpty()) {
+            throw new IllegalArgumentException("No elevator car" + (zone == null ? "" : " of zone " + zoneName)
+                    + " serves floor " + floor);
+        }
+        return servingCars;
+    }
+
+    /**
+     * Look up a zone by its name, unknown zones are a client error
+     */
+    public ElevatorZone getZone(String zoneName) {
+        ElevatorZone zone = zones.get(zoneName);
+        // cars built outside of the bank bring their own zone
+        for (int i = 0; zone == null && i < carList.size(); i++) {
+            ElevatorZone carZone = carList.get(i).getState().getZone();
+            zone = carZone != null && carZone.name().equals(zoneName) ? carZone : null;
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Unknown zone " + zoneName + ", zones are " + zones.keySet());
+        }
+        return zone;
+    }
+
+    public List<ElevatorZone> getZones() {
+        return List.copyOf(zones.values());
+    }
+
+    public int getCarCount() {
+        return cars.size();
+    }
+
+    public int getMaxFloor() {
+        return carList.get(0).getState().getMaxFloor();
+    }
+
+    @Override
+    public String toString() {
+        return buildingId + "/" + bankId;
+    }
+
+    // per car overrides of the default strategy, written as carId=STRATEGY pairs like "2=LOOK,3=SHORTEST_SEEK"
+    private static Map<Integer, SchedulingStrategyType> parseCarStrategies(String carStrategies, int carCount) {
+        Map<Integer, SchedulingStrategyType> strategyPerCar = new HashMap<>();
+        for (String entry : carStrategies.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Car strategy must look like carId=STRATEGY, was: " + entry.trim());
+            }
+            int carId;
+            try {
+                carId = Integer.parseInt(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Car strategy has an invalid car id: " + entry.trim());
+            }
+            if (carId < 1 || carId > carCount) {
+                throw new IllegalArgumentException("Car strategy for unknown car " + carId + ", the bank has " + carCount + " car(s)");
+            }
+            strategyPerCar.put(carId, SchedulingStrategyType.fromName(parts[1]));
+        }
+        return strategyPerCar;
+    }
+
+    // zones written as name:floors separated by semicolons like "low:1-20;high:1,41-60"
+    private void parseZones(String zoneDefinitions, int maxFloor) {
+        for (String definition : zoneDefinitions.split(";")) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            ElevatorZone zone = ElevatorZone.parse(definition, 1, maxFloor);
+            if (zones.putIfAbsent(zone.name(), zone) != null) {
+                throw new IllegalArgumentException("Duplicate zone " + zone.name());
+            }
+        }
+    }
+
+    // the zone of every car written as carId=zone pairs like "1=low,2=low,3=high"
+    private Map<Integer, ElevatorZone> parseCarZones(String carZones, int carCount) {
+        Map<Integer, ElevatorZone> zonePerCar = new HashMap<>();
+        for (String entry : carZones.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Car zone must look like carId=zone, was: " + entry.trim());
+            }
+            int carId;
+            try {
+                carId = Integer.parseInt(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Car zone has an invalid car id: " + entry.trim());
+            }
+            if (carId < 1 || carId > carCount) {
+                throw new IllegalArgumentException("Car zone for unknown car " + carId + ", the bank has " + carCount + " car(s)");
+            }
+            zonePerCar.put(carId, getZone(parts[1].trim()));
+        }
+        return zonePerCar;
+    }
+
+    private void addCar(ElevatorCar car) {
+        if (cars.putIfAbsent(car.getId(), car) != null) {
+            throw new IllegalArgumentException("Duplicate elevator car id " + car.getId());
+        }
+        carList.add(car);
+        car.joinBank(this);
+    }
+}
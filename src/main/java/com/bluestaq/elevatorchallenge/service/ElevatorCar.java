@@ -0,0 +1,135 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single car within an {@link ElevatorBank}. Pairs the car's state with the destination manager that
+ * holds the floors only this car has been asked to serve. Every change to either of them goes through the car's
+ * {@link ElevatorCommandMailbox}, so only one thread ever writes to a car.
+ *
+ * Everybody else reads the car through its snapshot, an immutable and versioned {@link ElevatorDTO} that the writer
+ * swaps in after every change. Reading it is a single volatile load, it can never show a half applied transition
+ * and readers never contend with the writer or with each other.
+ */
+@Getter
+public class ElevatorCar {
+
+    private final ElevatorState state;
+    private final ElevatorDestinationManager destinationManager;
+    private final ElevatorCommandMailbox mailbox = new ElevatorCommandMailbox();
+
+    private volatile ElevatorDTO snapshot;
+
+    // the bank the car was added to, set before any thread but the creator sees the car
+    private ElevatorBank bank;
+
+    // destination sets at the time of the last snapshot, only touched by the writer
+    private long[] snapshotUpwardWords;
+    private long[] snapshotDownwardWords;
+    private long[] snapshotCarCallWords;
+
+    public ElevatorCar(ElevatorState state, ElevatorDestinationManager destinationManager) {
+        this.state = state;
+        this.destinationManager = destinationManager;
+        refreshSnapshot();
+    }
+
+    public int getId() {
+        return state.getId();
+    }
+
+    void joinBank(ElevatorBank bank) {
+        this.bank = bank;
+    }
+
+    /**
+     * Publish a new snapshot if anything changed since the last one. Must only be called by the car's writer.
+     * Checking an unchanged car allocates nothing, the snapshot is only copied when there is something new
+     *
+     * @return true if a new version was published
+     */
+    boolean refreshSnapshot() {
+        ElevatorDTO previous = snapshot;
+        if (previous != null && !hasChangedSince(previous)) {
+            return false;
+        }
+
+        publishSnapshot(previous == null ? 1 : previous.version() + 1);
+        return true;
+    }
+
+    /**
+     * Put the car back into a state it had before a restart. A car that was between floors comes back idle at the
+     * last floor it reached and picks up its destinations from there, door timers start over. Destinations outside
+     * of the building are dropped in case the building got smaller. Must only be called by the car's writer
+     */
+    void restore(ElevatorDTO savedState, long nowMs) {
+        if (!state.isValidFloor(savedState.currentFloor())) {
+            throw new IllegalArgumentException("Saved floor " + savedState.currentFloor() + " of car " + getId()
+                    + " is outside of the building");
+        }
+
+        state.setCurrentFloor(savedState.currentFloor());
+        state.setCurrentMovementState(savedState.state() == ElevatorMovement.MOVING ? ElevatorMovement.IDLE : savedState.state());
+        state.setDirection(savedState.direction());
+        state.setCurrentDoorState(savedState.doorState());
+        state.setMovementOperationStartTimeMs(-1);
+        if (savedState.doorState() != ElevatorDoor.CLOSED) {
+            state.setDoorOperationStartTimeMs(nowMs);
+        }
+
+        // a stop that isn't a car call was queued for a hall call of its direction
+        destinationManager.clearAllDestinations();
+        savedState.upwardDestinations().stream()
+                .filter(state::isValidFloor)
+                .forEach(floor -> destinationManager.restoreStop(floor, ElevatorDirection.UP, savedState.carCalls().contains(floor)));
+        savedState.downwardDestinations().stream()
+                .filter(state::isValidFloor)
+                .forEach(floor -> destinationManager.restoreStop(floor, ElevatorDirection.DOWN, savedState.carCalls().contains(floor)));
+
+        // carry on counting so a version seen before the restart never matches a different state
+        publishSnapshot(Math.max(savedState.version(), snapshot.version()) + 1);
+    }
+
+    private void publishSnapshot(long version) {
+        snapshotUpwardWords = destinationManager.getUpwardFloors().toWords();
+        snapshotDownwardWords = destinationManager.getDownwardFloors().toWords();
+        snapshotCarCallWords = destinationManager.getCarCallFloors().toWords();
+        snapshot = new ElevatorDTO(
+                getId(),
+                version,
+                state.getCurrentFloor(),
+                state.getCurrentMovementState(),
+                state.getDirection(),
+                state.getCurrentDoorState(),
+                Collections.unmodifiableList(withoutParkingStop(destinationManager.getAllDestinations())),
+                Collections.unmodifiableList(withoutParkingStop(destinationManager.getUpwardFloors().toList())),
+                Collections.unmodifiableList(withoutParkingStop(destinationManager.getDownwardFloors().toDescendingList())),
+                Collections.unmodifiableList(destinationManager.getCarCallFloors().toList()),
+                state.getLoadKg());
+    }
+
+    // nobody asked for a parking stop, readers see a car that is moving without destinations
+    private List<Integer> withoutParkingStop(List<Integer> floors) {
+        int parkingFloor = destinationManager.getParkingFloor();
+        if (parkingFloor == ElevatorDestinationManager.NO_DESTINATION || !destinationManager.isParkingStop(parkingFloor)) {
+            return floors;
+        }
+        return floors.stream().filter(floor -> floor != parkingFloor).toList();
+    }
+
+    private boolean hasChangedSince(ElevatorDTO previous) {
+        return previous.currentFloor() != state.getCurrentFloor()
+                || previous.state() != state.getCurrentMovementState()
+                || previous.direction() != state.getDirection()
+                || previous.doorState() != state.getCurrentDoorState()
+                || previous.loadKg() != state.getLoadKg()
+                || !destinationManager.getUpwardFloors().hasSameFloors(snapshotUpwardWords)
+                || !destinationManager.getDownwardFloors().hasSameFloors(snapshotDownwardWords)
+                || !destinationManager.getCarCallFloors().hasSameFloors(snapshotCarCallWords);
+    }
+}
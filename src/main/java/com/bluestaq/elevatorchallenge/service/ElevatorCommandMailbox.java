@@ -0,0 +1,125 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free multi producer, single consumer command queue of one elevator car. Request threads submit commands
+ * and the car's control thread applies them in arrival order, so the state and destinations of a car are only ever
+ * written by one thread and nothing on the request path takes a lock.
+ *
+ * Whoever applies commands has to hold the writer role. Normally that is the control thread started by the
+ * {@link ElevatorTickScheduler}. When no control thread owns the car (simulation mode and unit tests) the
+ * submitting thread takes the writer role just long enough to run its own command.
+ */
+public class ElevatorCommandMailbox {
+
+    private final ConcurrentLinkedQueue<QueuedCommand<?>> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Thread> writer = new AtomicReference<>();
+
+    @Getter
+    private final ElevatorWakeUpSignal wakeUpSignal = new ElevatorWakeUpSignal();
+
+    // tells the control thread there is work, null while no control thread owns the car
+    private volatile Runnable commandListener;
+
+    /**
+     * Queue a command for the car. The returned future completes with the command's result, or exceptionally
+     * with whatever the command threw, once the writer has applied it
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> command) {
+        QueuedCommand<T> queuedCommand = new QueuedCommand<>(command, new CompletableFuture<>());
+        // offer before looking for a control thread, a control thread that unbinds afterwards still drains it
+        commands.offer(queuedCommand);
+
+        Runnable listener = commandListener;
+        if (listener != null) {
+            listener.run();
+        } else {
+            // nobody owns the car, apply the queue on this thread until our own command has run
+            while (!queuedCommand.result().isDone()) {
+                runAsWriter(() -> drain(Integer.MAX_VALUE));
+            }
+        }
+        return queuedCommand.result();
+    }
+
+    /**
+     * Apply up to maxBatch queued commands in order. Must be called while holding the writer role
+     *
+     * @return the number of commands applied
+     */
+    public int drain(int maxBatch) {
+        int applied = 0;
+        QueuedCommand<?> queuedCommand;
+        while (applied < maxBatch && (queuedCommand = commands.poll()) != null) {
+            queuedCommand.apply();
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Run the action as the single writer of this car, spinning while another thread holds the role.
+     * Re-entrant for the thread that already is the writer
+     */
+    public void runAsWriter(Runnable action) {
+        Thread currentThread = Thread.currentThread();
+        if (writer.get() == currentThread) {
+            action.run();
+            return;
+        }
+
+        while (!writer.compareAndSet(null, currentThread)) {
+            Thread.onSpinWait();
+        }
+        try {
+            action.run();
+        } finally {
+            writer.set(null);
+        }
+    }
+
+    public boolean hasPendingCommands() {
+        return !commands.isEmpty();
+    }
+
+    /**
+     * Make the calling thread the control thread of this car, submitters stop applying commands themselves
+     */
+    public void bindControlThread() {
+        bindControlThread(wakeUpSignal::signal);
+    }
+
+    /**
+     * Make the calling thread the control thread of this car, for a thread that looks after many cars. Submitters
+     * call the listener after queueing, it has to be cheap and must not block
+     */
+    public void bindControlThread(Runnable commandListener) {
+        this.commandListener = commandListener;
+    }
+
+    /**
+     * Release the car again. Anything still queued is applied on the way out so no submitter waits forever
+     */
+    public void unbindControlThread() {
+        commandListener = null;
+        runAsWriter(() -> drain(Integer.MAX_VALUE));
+    }
+
+    private record QueuedCommand<T>(Supplier<T> command, CompletableFuture<T> result) {
+
+        void apply() {
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                // the submitter gets the failure, the control thread keeps running
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
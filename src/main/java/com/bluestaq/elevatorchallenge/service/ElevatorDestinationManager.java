@@ -1,18 +1,20 @@
 package com.bluestaq.elevatorchallenge.service;
 
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategy;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategyType;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
 
 /**
  * Thread-safe destination manager that implements intelligent elevator scheduling.
- * Uses a classic SCAN elevator algorithm to minimize travel time by serving floors in
- * directional order rather than FIFO like a traditional queue
+ * Serves floors in directional order rather than FIFO like a traditional queue, the order itself comes from a
+ * pluggable {@link SchedulingStrategy} that can be swapped while the car runs (directional collective by default)
  *
- * here is the steps I decided to use for my Algorithm
+ * here is the steps the directional strategies follow
  * 1. Continue in current direction until no more floors in that direction
  * 2. Reverse direction and serve floors in the opposite direction
  * 3. Optimize by grouping floors by direction from current position
@@ -21,34 +23,87 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * this works in an asynchronous environment like a spring-web microservice as it can serve floor requests while in movement
  * and intelligently place them so the elevator doesnt serve floor requests in a silly unoptimized order
  *
+ * every {@link ElevatorCar} owns its own instance, so requests for one car never leak into another car's queue.
+ * Floors are kept in primitive {@link FloorBitSet}s, so the nearest floor lookups are bit scans and nothing is boxed
+ *
+ * Every floor has three independent requests: hall UP, hall DOWN and a car call. A car call is cleared when the car
+ * stops at the floor. A hall call is answered when the car stops there heading its way, but it is only cleared once
+ * the car leaves the floor in the call's direction. A car that leaves the other way puts the call back in the queue
+ * instead of losing it. The upward and downward sets are the stops still to make, the floors the strategy orders
+ *
+ * A full car passes floors it would only stop at for hall calls. A passed call keeps its button lit but leaves the
+ * stops until the car's next stop, where people got out and there may be room again, then it is queued for a later pass.
+ *
+ * An idle car can also be sent to a parking floor. Parking is a stop without any request, it is dropped as soon as
+ * a real request comes in so the car goes straight to the passengers instead
  */
-@Component
 @Slf4j
 public class ElevatorDestinationManager {
 
-    // Thread-safe sorted sets - no explicit mutex lock needed.
+    // returned by getNextDestination when there is nowhere to go
+    public static final int NO_DESTINATION = NO_FLOOR;
+
+    // sized for the tallest towers when the manager is created without a building height
+    private static final int DEFAULT_MAX_FLOOR = 255;
+
+    private static final ElevatorDirection[] HALL_DIRECTIONS = {ElevatorDirection.UP, ElevatorDirection.DOWN};
+
+    // Thread-safe primitive floor sets - no explicit mutex lock needed.
+    // stops still to make, by the direction of the sweep that serves them
+    @Getter
+    final FloorBitSet upwardFloors;
+    @Getter
+    final FloorBitSet downwardFloors;
+    // lit hall buttons, including the ones answered at the current floor until the car leaves
+    @Getter
+    final FloorBitSet hallUpFloors;
+    @Getter
+    final FloorBitSet hallDownFloors;
+    // floors somebody inside the car asked for, the car has to stop there no matter which car serves the hall call
+    @Getter
+    final FloorBitSet carCallFloors;
+    // hall calls a full car passed, they go back into the stops at the car's next stop
+    final FloorBitSet bypassedUpFloors;
+    final FloorBitSet bypassedDownFloors;
+
+    // floor an idle car is on its way to without anyone asking for it, read by the parking policy of the other cars
     @Getter
-    final ConcurrentSkipListSet<Integer> upwardFloors = new ConcurrentSkipListSet<>();
+    private volatile int parkingFloor = NO_DESTINATION;
+
+    // read by the group dispatcher for its arrival estimates, so a swap has to be visible to other threads
     @Getter
-    final ConcurrentSkipListSet<Integer> downwardFloors = new ConcurrentSkipListSet<>(Collections.reverseOrder());
+    private volatile SchedulingStrategy schedulingStrategy;
+
+    public ElevatorDestinationManager() {
+        this(DEFAULT_MAX_FLOOR);
+    }
+
+    public ElevatorDestinationManager(int maxFloor) {
+        this(maxFloor, SchedulingStrategyType.COLLECTIVE.getStrategy());
+    }
+
+    public ElevatorDestinationManager(int maxFloor, SchedulingStrategy schedulingStrategy) {
+        this.schedulingStrategy = Objects.requireNonNull(schedulingStrategy, "schedulingStrategy");
+        upwardFloors = new FloorBitSet(maxFloor);
+        downwardFloors = new FloorBitSet(maxFloor);
+        hallUpFloors = new FloorBitSet(maxFloor);
+        hallDownFloors = new FloorBitSet(maxFloor);
+        carCallFloors = new FloorBitSet(maxFloor);
+        bypassedUpFloors = new FloorBitSet(maxFloor);
+        bypassedDownFloors = new FloorBitSet(maxFloor);
+    }
 
     /**
-     * Add a destination floor intelligently based on elevator state
+     * Add a car call, it is served on the sweep towards it from the car's current floor
      */
     public boolean addDestination(int targetFloor, ElevatorState elevatorState) {
         int currentFloor = elevatorState.getCurrentFloor();
 
-        // check if floor already exists for cleaner logging
-        boolean alreadyExists = upwardFloors.contains(targetFloor) || downwardFloors.contains(targetFloor);
-
-        if (alreadyExists) {
-            log.info("Floor {} already requested, ignoring duplicate request", targetFloor);
+        if (!carCallFloors.add(targetFloor)) {
+            log.debug("Floor {} already requested, ignoring duplicate request", targetFloor);
             return false;  // Don't add duplicate
         }
-
-        // Remove from both sets if present to avoid duplicates
-        upwardFloors.remove(targetFloor);
-        downwardFloors.remove(targetFloor);
+        cancelParking();
 
         boolean shouldGoUp = shouldAddToUpwardSet(targetFloor, currentFloor);
         // Determine which set to add to based on current position and direction
@@ -58,34 +113,28 @@ public class ElevatorDestinationManager {
             downwardFloors.add(targetFloor);
         }
 
-        log.info("Added floor {} to destinations. current Destination List: {}",
-                targetFloor, getAllDestinations());
+        log.debug("Added floor {} to destinations. Up: {}, Down: {}", targetFloor, upwardFloors, downwardFloors);
         return true;
     }
 
     /**
      * Add floor calling request with explicit direction (for UP/DOWN buttons on floors)
-     * This bypasses the SCAN direction logic and directly places floors in the requested queue
+     * This bypasses the SCAN direction logic and directly places floors in the requested queue. The UP and DOWN
+     * buttons of a floor are separate calls, a DOWN call is never merged into an UP stop at the same floor
      */
     public boolean addFloorRequestWithDirection(int targetFloor, ElevatorDirection requestedDirection, ElevatorState elevatorState) {
+        FloorBitSet hallFloors = hallFloors(requestedDirection);
+        FloorBitSet stops = stops(requestedDirection);
 
         // Check for duplicates
-        boolean alreadyExists = upwardFloors.contains(targetFloor) || downwardFloors.contains(targetFloor);
-        if (alreadyExists) {
-            log.info("Floor {} already requested with direction: {}, ignoring duplicate request", targetFloor, requestedDirection);
+        if (isHallCallPending(targetFloor, requestedDirection)) {
+            log.debug("Floor {} already requested with direction: {}, ignoring duplicate request", targetFloor, requestedDirection);
             return false;
         }
 
-        // Remove from both sets (safety)
-        upwardFloors.remove(targetFloor);
-        downwardFloors.remove(targetFloor);
-
-        // Add to correct queue based on requested direction
-        if (requestedDirection == ElevatorDirection.UP) {
-            upwardFloors.add(targetFloor);
-        } else {
-            downwardFloors.add(targetFloor);
-        }
+        cancelParking();
+        hallFloors.add(targetFloor);
+        stops.add(targetFloor);
 
         log.info("Added floor {} to destinations (direction {}). Current destinations: UP: {}  DOWN: {}",
                 targetFloor, requestedDirection, upwardFloors,  downwardFloors);
@@ -93,66 +142,29 @@ public class ElevatorDestinationManager {
     }
 
     /**
-     * Get the next destination based on current elevator state.
-     * Implements the SCAN algorithm: continue in current direction until no more floors,
-     * then reverse direction.
+     * True while the hall button is lit and the car still has to stop for it, another press of it changes nothing.
+     * Safe to call from any thread
+     */
+    public boolean isHallCallPending(int floor, ElevatorDirection direction) {
+        return hallFloors(direction).contains(floor) && stops(direction).contains(floor);
+    }
+
+    /**
+     * Get the next destination based on current elevator state, in the order of the car's scheduling strategy.
+     * Returns NO_DESTINATION when there is nowhere to go
      */
-    public Integer getNextDestination(ElevatorState elevatorState) {
+    public int getNextDestination(ElevatorState elevatorState) {
         int currentFloor = elevatorState.getCurrentFloor();
         ElevatorDirection currentDirection = elevatorState.getDirection();
 
-        // If no destinations, return null
+        // If no destinations, return early
         if (upwardFloors.isEmpty() && downwardFloors.isEmpty()) {
-            return null;
-        }
-
-        Integer nextFloor = null;
-
-        // SCAN algorithm implementation
-        switch (currentDirection) {
-            case UP:
-                // Going up, we look for floors above current in upward set
-                nextFloor = getNextFloorAboveCurrent(currentFloor, upwardFloors);
-                if (nextFloor == null) {
-                    // No more floors above in upward direction, switch to downward
-                    nextFloor = getNextFloorBelowCurrent(currentFloor, downwardFloors);
-                    // If still no floor below current, get highest floor in downward set
-                    if (nextFloor == null && !downwardFloors.isEmpty()) {
-                        nextFloor = Collections.max(downwardFloors);
-                    }
-                }
-                break;
-
-            case DOWN:
-                // Going down we look for floors below current in downward set
-                nextFloor = getNextFloorBelowCurrent(currentFloor, downwardFloors);
-                if (nextFloor == null) {
-                    // No more floors below in downward direction, switch to upward
-                    nextFloor = getNextFloorAboveCurrent(currentFloor, upwardFloors);
-                    // If still no floor above current, get lowest floor in upward set
-                    if (nextFloor == null && !upwardFloors.isEmpty()) {
-                        nextFloor = Collections.min(upwardFloors);
-                    }
-                }
-                break;
-
-            case NONE: // When stationary, start with upward preference
-                // First try upward direction
-                nextFloor = getNextFloorAboveCurrent(currentFloor, upwardFloors);
-                if (nextFloor == null && !upwardFloors.isEmpty()) {
-                    nextFloor = Collections.min(upwardFloors);
-                }
-                if (nextFloor == null) {
-                    // No floors in upward set, try downward
-                    nextFloor = getNextFloorBelowCurrent(currentFloor, downwardFloors);
-                    if (nextFloor == null && !downwardFloors.isEmpty()) {
-                        nextFloor = Collections.max(downwardFloors);
-                    }
-                }
-                break;
+            return NO_DESTINATION;
         }
 
-        if (nextFloor != null) {
+        int nextFloor = schedulingStrategy.nextDestination(upwardFloors, downwardFloors, currentFloor, currentDirection);
+
+        if (nextFloor != NO_DESTINATION && log.isTraceEnabled()) {
             log.trace("Next destination: {} (current: {}, direction: {}, upward floors: {}, downward floors: {})",
                     nextFloor, currentFloor, currentDirection, upwardFloors, downwardFloors);
         }
@@ -161,11 +173,141 @@ public class ElevatorDestinationManager {
     }
 
     /**
-     * Remove a destination from the specified list. This should be called on floor arrival
+     * Swap the scheduling strategy, the car follows the new order from its next decision on
+     */
+    public void setSchedulingStrategy(SchedulingStrategy schedulingStrategy) {
+        this.schedulingStrategy = Objects.requireNonNull(schedulingStrategy, "schedulingStrategy");
+    }
+
+    /**
+     * The car stopped at a floor while travelling in the given direction. The car call is cleared, the hall call of
+     * the travel direction is answered, and the one of the other direction too when the car turns around here or
+     * the strategy would send it straight back to this floor. A hall call the car passes on is left queued
+     *
+     * @return false if nothing was requested at the floor
+     */
+    public boolean arriveAt(int floor, ElevatorDirection travelDirection) {
+        requeueBypassedHallCalls();
+        boolean requested = carCallFloors.remove(floor) | upwardFloors.contains(floor) | downwardFloors.contains(floor);
+
+        // stops that were only there for the car call
+        if (!hallUpFloors.contains(floor)) {
+            upwardFloors.remove(floor);
+        }
+        if (!hallDownFloors.contains(floor)) {
+            downwardFloors.remove(floor);
+        }
+
+        if (travelDirection == ElevatorDirection.NONE) {
+            // a car that was standing still has no direction to prefer, everybody waiting here can get in
+            upwardFloors.remove(floor);
+            downwardFloors.remove(floor);
+        } else {
+            stops(travelDirection).remove(floor);
+            FloorBitSet oppositeStops = stops(travelDirection.opposite());
+            if (oppositeStops.contains(floor)) {
+                int nextFloor = schedulingStrategy.nextDestination(upwardFloors, downwardFloors, floor, travelDirection);
+                if (nextFloor == NO_DESTINATION || nextFloor == floor
+                        || ElevatorDirection.between(floor, nextFloor) != travelDirection) {
+                    oppositeStops.remove(floor);
+                }
+            }
+        }
+
+        return requested;
+    }
+
+    /**
+     * The car leaves a floor it stopped at. The answered hall call of the departure direction is cleared, an
+     * answered call of the other direction goes back into the queue as those passengers are still waiting
+     */
+    public void departFrom(int floor, ElevatorDirection departureDirection) {
+        if (departureDirection == ElevatorDirection.NONE) {
+            return;
+        }
+        if (isAnswered(floor, departureDirection)) {
+            hallFloors(departureDirection).remove(floor);
+        }
+        ElevatorDirection oppositeDirection = departureDirection.opposite();
+        if (isAnswered(floor, oppositeDirection)) {
+            stops(oppositeDirection).add(floor);
+            log.info("Leaving floor {} {}, its {} hall call stays queued", floor, departureDirection.name(), oppositeDirection.name());
+        }
+    }
+
+    /**
+     * The doors closed on a car that has nowhere to go, so nobody is waiting to leave in either direction anymore
+     */
+    public void releaseAnsweredHallCalls(int floor) {
+        for (ElevatorDirection direction : HALL_DIRECTIONS) {
+            if (isAnswered(floor, direction)) {
+                hallFloors(direction).remove(floor);
+            }
+        }
+    }
+
+    /**
+     * Take back a hall call the car has not answered yet, so another car can serve it
+     *
+     * @return false if the call isn't waiting on this car
+     */
+    public boolean withdrawHallCall(int floor, ElevatorDirection direction) {
+        FloorBitSet stops = stops(direction);
+        FloorBitSet bypassedFloors = bypassedFloors(direction);
+        if (!hallFloors(direction).contains(floor) || !(stops.contains(floor) || bypassedFloors.contains(floor))) {
+            return false;
+        }
+        hallFloors(direction).remove(floor);
+        stops.remove(floor);
+        bypassedFloors.remove(floor);
+        log.info("Withdrew hall call floor {} {}. Up: {}, Down: {}", floor, direction.name(), upwardFloors, downwardFloors);
+        return true;
+    }
+
+    /**
+     * A full car passes the floor without stopping. Only works for floors nobody inside the car asked for
+     *
+     * @return false if the car has to stop at the floor anyway
+     */
+    public boolean bypassHallCalls(int floor) {
+        if (carCallFloors.contains(floor)) {
+            return false;
+        }
+        boolean bypassed = false;
+        for (ElevatorDirection direction : HALL_DIRECTIONS) {
+            if (hallFloors(direction).contains(floor) && stops(direction).remove(floor)) {
+                bypassedFloors(direction).add(floor);
+                bypassed = true;
+            }
+        }
+        return bypassed;
+    }
+
+    /**
+     * Queue the hall calls the car passed while it was full again
+     */
+    public void requeueBypassedHallCalls() {
+        for (ElevatorDirection direction : HALL_DIRECTIONS) {
+            FloorBitSet bypassedFloors = bypassedFloors(direction);
+            bypassedFloors.forEach(stops(direction)::add);
+            bypassedFloors.clear();
+        }
+    }
+
+    /**
+     * Drop every request of a floor, both hall calls and the car call
      */
     public boolean removeDestination(int floor) {
         boolean removedFromUp = upwardFloors.remove(floor);
         boolean removedFromDown = downwardFloors.remove(floor);
+        hallUpFloors.remove(floor);
+        hallDownFloors.remove(floor);
+        carCallFloors.remove(floor);
+        bypassedUpFloors.remove(floor);
+        bypassedDownFloors.remove(floor);
+        if (floor == parkingFloor) {
+            parkingFloor = NO_DESTINATION;
+        }
 
         boolean wasRemoved = removedFromUp || removedFromDown;
 
@@ -179,6 +321,49 @@ public class ElevatorDestinationManager {
         return wasRemoved;
     }
 
+    /**
+     * Put back a stop the car had before a restart
+     */
+    public void restoreStop(int floor, ElevatorDirection sweepDirection, boolean carCall) {
+        stops(sweepDirection).add(floor);
+        if (carCall) {
+            carCallFloors.add(floor);
+        } else {
+            hallFloors(sweepDirection).add(floor);
+        }
+    }
+
+    /**
+     * Send an idle car to a floor nobody asked for, it stops there with the doors closed
+     */
+    public void parkAt(int floor, int currentFloor) {
+        stops(ElevatorDirection.between(currentFloor, floor)).add(floor);
+        parkingFloor = floor;
+    }
+
+    /**
+     * @return true if the car would only stop at the floor to park there
+     */
+    public boolean isParkingStop(int floor) {
+        return floor == parkingFloor && !carCallFloors.contains(floor)
+                && !hallUpFloors.contains(floor) && !hallDownFloors.contains(floor);
+    }
+
+    /**
+     * Drop the parking stop, a stop somebody asked for at the same floor stays
+     */
+    public void cancelParking() {
+        int floor = parkingFloor;
+        if (floor == NO_DESTINATION) {
+            return;
+        }
+        if (isParkingStop(floor)) {
+            upwardFloors.remove(floor);
+            downwardFloors.remove(floor);
+        }
+        parkingFloor = NO_DESTINATION;
+    }
+
     /**
      * Check if there are any remaining destinations
      */
@@ -190,9 +375,14 @@ public class ElevatorDestinationManager {
      * Get all destinations for display/logging purposes
      */
     public List<Integer> getAllDestinations() {
-        List<Integer> allDestinations = new ArrayList<>();
-        allDestinations.addAll(upwardFloors);
-        allDestinations.addAll(downwardFloors);
+        List<Integer> allDestinations = new ArrayList<>(upwardFloors.size() + downwardFloors.size());
+        upwardFloors.forEach(allDestinations::add);
+        // a floor can be queued for both directions, it is still one destination
+        downwardFloors.forEach(floor -> {
+            if (!upwardFloors.contains(floor)) {
+                allDestinations.add(floor);
+            }
+        });
         Collections.sort(allDestinations);
         return allDestinations;
     }
@@ -203,6 +393,12 @@ public class ElevatorDestinationManager {
     public void clearAllDestinations() {
         upwardFloors.clear();
         downwardFloors.clear();
+        hallUpFloors.clear();
+        hallDownFloors.clear();
+        carCallFloors.clear();
+        bypassedUpFloors.clear();
+        bypassedDownFloors.clear();
+        parkingFloor = NO_DESTINATION;
         log.info("All destinations cleared");
     }
 
@@ -210,37 +406,27 @@ public class ElevatorDestinationManager {
      * Get count of destinations
      */
     public int getDestinationCount() {
-        return upwardFloors.size() + downwardFloors.size();
+        return getAllDestinations().size();
     }
 
     // ==================== PRIVATE HELPER METHODS ====================
 
-    /**
-     * Finds the closest floor above the current floor from the specified set.
-     * This method implements the nearest-first strategy
-     */
-    private Integer getNextFloorAboveCurrent(int currentFloor, Set<Integer> floorSet) {
-        Integer nextUp = null;
-        for (Integer floor : floorSet) {
-            if (floor > currentFloor && (nextUp == null || floor < nextUp)) {
-                nextUp = floor;
-            }
-        }
-        return nextUp;
+    // answered: the button is still lit but the car is standing at the floor for it
+    private boolean isAnswered(int floor, ElevatorDirection direction) {
+        return hallFloors(direction).contains(floor) && !stops(direction).contains(floor)
+                && !bypassedFloors(direction).contains(floor);
     }
 
-    /**
-     * Finds the closest floor below the current floor from the specified set.
-     * This method implements the nearest-first strategy
-     */
-    private Integer getNextFloorBelowCurrent(int currentFloor, Set<Integer> floorSet) {
-        Integer nextDown = null;
-        for (Integer floor : floorSet) {
-            if (floor < currentFloor && (nextDown == null || floor > nextDown)) {
-                nextDown = floor;
-            }
-        }
-        return nextDown;
+    private FloorBitSet hallFloors(ElevatorDirection direction) {
+        return direction == ElevatorDirection.UP ? hallUpFloors : hallDownFloors;
+    }
+
+    private FloorBitSet stops(ElevatorDirection direction) {
+        return direction == ElevatorDirection.UP ? upwardFloors : downwardFloors;
+    }
+
+    private FloorBitSet bypassedFloors(ElevatorDirection direction) {
+        return direction == ElevatorDirection.UP ? bypassedUpFloors : bypassedDownFloors;
     }
 
     private boolean shouldAddToUpwardSet(int targetFloor, int currentFloor) {
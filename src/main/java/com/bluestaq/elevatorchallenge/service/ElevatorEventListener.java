@@ -0,0 +1,68 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+
+/**
+ * Hook for anything that wants to follow what the cars do, like the traffic generator or the metrics. Called on
+ * the car's control thread right after the transition happened, so implementations have to be quick and must not
+ * submit commands to the same car from inside the callback. Times are epoch ms of the elevator clock.
+ */
+public interface ElevatorEventListener {
+
+    /**
+     * A hall call was accepted by the car the dispatcher assigned it to
+     */
+    default void onHallCallAssigned(ElevatorCar car, int floor, ElevatorDirection direction, long timeMs) {
+    }
+
+    /**
+     * A hall call was taken away from the car it was assigned to, so another car can serve it. The call of the other
+     * direction of the floor stays with the car
+     */
+    default void onHallCallWithdrawn(ElevatorCar car, int floor, ElevatorDirection direction) {
+    }
+
+    /**
+     * A floor button was pressed inside the car and the floor was added to its destinations
+     */
+    default void onCarCall(ElevatorCar car, int floor, long timeMs) {
+    }
+
+    /**
+     * A car passed or reached a floor while moving
+     */
+    default void onFloorTraveled(ElevatorCar car, int floor) {
+    }
+
+    /**
+     * A car stopped at a floor and started opening its doors. arrivalTimeMs is when the car reached the floor.
+     * A hall call the car passes on is still pending on the car afterwards, see
+     * {@link ElevatorDestinationManager#isHallCallPending}
+     */
+    default void onCarArrived(ElevatorCar car, int floor, long arrivalTimeMs) {
+    }
+
+    /**
+     * The doors of a car finished closing, which completes one door cycle
+     */
+    default void onDoorsClosed(ElevatorCar car, int floor) {
+    }
+
+    /**
+     * The emergency stop of a car was activated
+     */
+    default void onEmergencyStop(ElevatorCar car) {
+    }
+
+    /**
+     * Floor, doors, direction, movement, destinations or load of a car changed. previous is null for the first state
+     */
+    default void onStateChanged(ElevatorCar car, ElevatorDTO previous, ElevatorDTO current) {
+    }
+
+    /**
+     * A control cycle of the car finished, durationNanos is the real CPU time it took, independent of the clock
+     */
+    default void onControlCycle(ElevatorCar car, long durationNanos) {
+    }
+}
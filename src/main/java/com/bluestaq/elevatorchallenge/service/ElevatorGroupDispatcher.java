@@ -0,0 +1,182 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.exception.ElevatorEmergencyException;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Group dispatcher that decides which car of the bank answers a hall call (UP/DOWN button on a floor).
+ * Car calls pressed inside a car never come through here, they always stay with the car they were pressed in.
+ *
+ * Assignment is based on the estimated time of arrival of every car:
+ * 1. a car that already has the floor queued for the same direction keeps it, so we never send two cars for the same call
+ * 2. otherwise every car plans its route with the new stop added, following the order of its own
+ *    {@link SchedulingStrategy} it will really drive, and the car with the lowest cost wins. The cost is the time
+ *    until the car stops at the floor, counting floor travel, every stop it makes on the way and the doors it still
+ *    has to cycle at its current floor, plus the delay the new stop adds for the passengers of every stop planned after it
+ * 3. cars in emergency mode are never assigned
+ * 4. a car that is full would pass the floor, it only gets the call when every car is full
+ * In a zoned building the service only hands in the cars that serve the floor, and a waiting call only ever moves to
+ * another car of the same zone
+ *
+ * Waiting calls are looked at again by the {@link HallCallReassigner} as the cars move, see {@link #findBetterCar}.
+ *
+ * The dispatcher runs on request threads, so it only looks at the published snapshot of every car and never at the
+ * live state the car threads are changing underneath it.
+ */
+@Component
+@Slf4j
+public class ElevatorGroupDispatcher {
+
+    /**
+     * Pick the car that should serve a hall call on the given floor
+     */
+    public ElevatorCar assignHallCall(int floor, ElevatorDirection requestedDirection, List<ElevatorCar> cars) {
+        ElevatorCar bestCar = null;
+        long bestCost = Long.MAX_VALUE;
+        boolean bestFull = false;
+
+        for (ElevatorCar car : cars) {
+            ElevatorDTO snapshot = car.getSnapshot();
+            if (snapshot.state() == ElevatorMovement.EMERGENCY) {
+                continue;
+            }
+
+            // a car that is already going to stop here on its way in the same direction serves the call without any
+            // extra cost, a stop for the other direction doesn't help the passengers
+            boolean full = isFull(car);
+            if (!full && stopsFor(snapshot, requestedDirection).contains(floor)) {
+                log.debug("Hall call floor {} {} already queued on car {}", floor, requestedDirection, car.getId());
+                return car;
+            }
+
+            long cost = estimateCost(car, floor, requestedDirection);
+            if (bestCar == null || (bestFull && !full) || (full == bestFull && cost < bestCost)) {
+                bestCost = cost;
+                bestCar = car;
+                bestFull = full;
+            }
+        }
+
+        if (bestCar == null) {
+            throw new ElevatorEmergencyException("All elevator cars are in emergency stop mode - hall calls are blocked");
+        }
+
+        log.debug("Hall call floor {} {} assigned to car {} (cost {} ms)", floor, requestedDirection, bestCar.getId(), bestCost);
+        return bestCar;
+    }
+
+    /**
+     * Look at a waiting hall call again. Another car only takes over when it beats the assigned car by more than
+     * one stop, so calls don't bounce between two cars with about the same cost. A full assigned car loses the call
+     * to any car with room
+     *
+     * @return the car that should serve the call now, or null if the assigned car should keep it
+     */
+    public ElevatorCar findBetterCar(ElevatorCar assignedCar, int floor, ElevatorDirection requestedDirection,
+                                     List<ElevatorCar> cars) {
+        long costToBeat = isFull(assignedCar) ? Long.MAX_VALUE
+                : estimateCost(assignedCar, floor, requestedDirection) - stopTimeMs(assignedCar.getState());
+
+        ElevatorCar betterCar = null;
+        for (ElevatorCar car : cars) {
+            if (car == assignedCar || car.getSnapshot().state() == ElevatorMovement.EMERGENCY || isFull(car)
+                    || car.getState().getZone() != assignedCar.getState().getZone()) {
+                continue;
+            }
+            long cost = estimateCost(car, floor, requestedDirection);
+            if (cost < costToBeat) {
+                costToBeat = cost;
+                betterCar = car;
+            }
+        }
+        return betterCar;
+    }
+
+    /**
+     * Cost in ms of a car serving a hall call: when it would stop at the floor plus the extra stop time every later
+     * stop of the car has to wait for. A car that already has the floor queued is costed with the stop it has
+     */
+    long estimateCost(ElevatorCar car, int floor, ElevatorDirection requestedDirection) {
+        ElevatorDTO snapshot = car.getSnapshot();
+        // the timings are fixed configuration, everything that moves comes from the snapshot
+        ElevatorState config = car.getState();
+        long stopTime = stopTimeMs(config);
+
+        // the route is planned on copies of the car's stops, the hall call joins the set of its direction
+        // the same way the car would queue it
+        FloorBitSet upwardFloors = toFloorSet(snapshot.upwardDestinations(), config);
+        FloorBitSet downwardFloors = toFloorSet(snapshot.downwardDestinations(), config);
+        (requestedDirection == ElevatorDirection.UP ? upwardFloors : downwardFloors).add(floor);
+
+        SchedulingStrategy strategy = car.getDestinationManager().getSchedulingStrategy();
+        int position = snapshot.currentFloor();
+        ElevatorDirection direction = snapshot.direction();
+        long time = remainingDoorTimeMs(snapshot.doorState(), config);
+
+        // an idle car at the floor just opens its doors
+        if (position == floor && snapshot.state() == ElevatorMovement.IDLE) {
+            return time;
+        }
+
+        while (true) {
+            int nextFloor = strategy.nextDestination(upwardFloors, downwardFloors, position, direction);
+            if (nextFloor == ElevatorDestinationManager.NO_DESTINATION) {
+                // with nothing left in its direction the car drops it and starts over, like it does after an arrival
+                nextFloor = strategy.nextDestination(upwardFloors, downwardFloors, position, ElevatorDirection.NONE);
+            }
+            if (nextFloor == ElevatorDestinationManager.NO_DESTINATION) {
+                // can't happen while the hall call is in one of the sets, but never loop forever
+                return Long.MAX_VALUE;
+            }
+
+            time += config.travelTimeMs(position, nextFloor);
+            // a floor queued for both directions is planned as a single stop, the same as a car that answers both calls
+            upwardFloors.remove(nextFloor);
+            downwardFloors.remove(nextFloor);
+            if (nextFloor == floor) {
+                return time + (long) (upwardFloors.size() + downwardFloors.size()) * stopTime;
+            }
+
+            time += stopTime;
+            if (nextFloor != position) {
+                direction = ElevatorDirection.between(position, nextFloor);
+            }
+            position = nextFloor;
+        }
+    }
+
+    // the snapshot doesn't say how long the doors have been moving, so assume the whole phase is still ahead
+    private static long remainingDoorTimeMs(ElevatorDoor doorState, ElevatorState config) {
+        return switch (doorState) {
+            case OPENING -> config.getDoorOperationTimeMs() + config.getDoorWaitTimeMs() + config.getDoorOperationTimeMs();
+            case OPEN -> config.getDoorWaitTimeMs() + config.getDoorOperationTimeMs();
+            case CLOSING -> config.getDoorOperationTimeMs();
+            case CLOSED -> 0;
+        };
+    }
+
+    // the bypass load is fixed configuration, the load itself comes from the snapshot
+    private static boolean isFull(ElevatorCar car) {
+        return car.getSnapshot().loadKg() >= car.getState().getBypassLoadKg();
+    }
+
+    // a stop opens the doors, keeps them open and closes them again
+    private static long stopTimeMs(ElevatorState config) {
+        return 2 * config.getDoorOperationTimeMs() + config.getDoorWaitTimeMs();
+    }
+
+    private static List<Integer> stopsFor(ElevatorDTO snapshot, ElevatorDirection direction) {
+        return direction == ElevatorDirection.UP ? snapshot.upwardDestinations() : snapshot.downwardDestinations();
+    }
+
+    private static FloorBitSet toFloorSet(List<Integer> floors, ElevatorState config) {
+        FloorBitSet floorSet = new FloorBitSet(config.getMaxFloor());
+        floors.forEach(floorSet::add);
+        return floorSet;
+    }
+}
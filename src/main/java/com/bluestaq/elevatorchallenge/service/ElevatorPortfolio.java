@@ -0,0 +1,122 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every elevator bank this service runs, across all buildings of the portfolio. The default {@link ElevatorBank} is
+ * always there as building "default", bank "main". More banks are configured as building/bank=CARSxFLOORS entries
+ * separated by semicolons, e.g. "hq/low=4x20;hq/high=4x40;plant/main=2x5". They share the car settings of the
+ * default bank and are driven by the same pool of control workers, see {@link ElevatorTickScheduler}.
+ *
+ * The banks are created once on startup and never change, lookups need no locking
+ */
+@Component
+@Slf4j
+public class ElevatorPortfolio {
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    @Value("${elevator.portfolio.banks:}")
+    String bankDefinitions;
+
+    // force a GC before and after the banks are created to log the heap a car takes, slows down startup
+    @Value("${elevator.portfolio.measure-footprint:false}")
+    boolean measureFootprint;
+
+    private final Map<String, ElevatorBank> banks = new LinkedHashMap<>();
+    private final List<ElevatorCar> cars = new ArrayList<>();
+
+    // heap held by one hosted car, -1 when it wasn't measured
+    @Getter
+    private long carFootprintBytes = -1;
+
+    @PostConstruct
+    void init() {
+        addBank(elevatorBank);
+
+        long heapBefore = measureFootprint ? usedHeapAfterGc() : 0;
+        int hostedCars = 0;
+        for (String definition : bankDefinitions.split(";")) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            ElevatorBank bank = parseBank(definition.trim());
+            addBank(bank);
+            hostedCars += bank.getCarCount();
+        }
+        if (measureFootprint && hostedCars > 0) {
+            carFootprintBytes = (usedHeapAfterGc() - heapBefore) / hostedCars;
+            log.info("Each hosted car takes about {} bytes of heap", carFootprintBytes);
+        }
+        log.info("Elevator portfolio runs {} car(s) in {} bank(s)", cars.size(), banks.size());
+    }
+
+    /**
+     * Look up a bank by building and bank id, unknown banks are a client error
+     */
+    public ElevatorBank getBank(String buildingId, String bankId) {
+        ElevatorBank bank = banks.get(key(buildingId, bankId));
+        if (bank == null) {
+            throw new IllegalArgumentException("Unknown elevator bank " + key(buildingId, bankId) + ", banks are " + banks.keySet());
+        }
+        return bank;
+    }
+
+    public List<ElevatorBank> getBanks() {
+        return List.copyOf(banks.values());
+    }
+
+    /**
+     * Every car of every bank, in the order the banks were configured
+     */
+    public List<ElevatorCar> getCars() {
+        return Collections.unmodifiableList(cars);
+    }
+
+    // building/bank=CARSxFLOORS, e.g. "hq/low=4x20"
+    private ElevatorBank parseBank(String definition) {
+        String[] parts = definition.split("=");
+        String[] ids = parts[0].split("/");
+        String[] layout = parts.length == 2 ? parts[1].toLowerCase().split("x") : new String[0];
+        if (parts.length != 2 || ids.length != 2 || ids[0].isBlank() || ids[1].isBlank() || layout.length != 2) {
+            throw new IllegalArgumentException("Bank must look like building/bank=CARSxFLOORS, was: " + definition);
+        }
+        try {
+            return elevatorBank.createBank(ids[0].trim(), ids[1].trim(),
+                    Integer.parseInt(layout[0].trim()), Integer.parseInt(layout[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bank has an invalid car or floor count: " + definition);
+        }
+    }
+
+    private void addBank(ElevatorBank bank) {
+        if (banks.putIfAbsent(key(bank.getBuildingId(), bank.getBankId()), bank) != null) {
+            throw new IllegalArgumentException("Duplicate elevator bank " + bank);
+        }
+        cars.addAll(bank.getCars());
+    }
+
+    private static String key(String buildingId, String bankId) {
+        return buildingId + "/" + bankId;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
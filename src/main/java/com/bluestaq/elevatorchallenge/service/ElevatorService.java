@@ -1,191 +1,748 @@
 package com.bluestaq.elevatorchallenge.service;
 
 
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandRequest;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandRequest.CommandType;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandResult;
 import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
 import com.bluestaq.elevatorchallenge.exception.ElevatorEmergencyException;
 import com.bluestaq.elevatorchallenge.service.commands.CallElevatorCommand;
 import com.bluestaq.elevatorchallenge.service.commands.CloseDoorsCommand;
+import com.bluestaq.elevatorchallenge.service.commands.ElevatorCommand;
 import com.bluestaq.elevatorchallenge.service.commands.OpenDoorsCommand;
 import com.bluestaq.elevatorchallenge.service.commands.PressButtonCommand;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategy;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategyType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class ElevatorService {
 
     @Autowired
-    ElevatorState elevatorState;
+    ElevatorBank elevatorBank;
 
     @Autowired
-    OpenDoorsCommand openDoorsCommand;
+    ElevatorGroupDispatcher groupDispatcher;
 
     @Autowired
-    CloseDoorsCommand closeDoorsCommand;
+    IdleParkingPolicy parkingPolicy;
+
+    @Autowired
+    TrafficModeDetector trafficModeDetector;
 
     @Autowired
-    PressButtonCommand pressButtonCommand;
+    ButtonPressCoalescer coalescer;
 
     @Autowired
-    ElevatorDestinationManager destinationManager;
+    OpenDoorsCommand openDoorsCommand;
+
+    @Autowired
+    CloseDoorsCommand closeDoorsCommand;
 
+    // all timing goes through this clock so a simulation can run faster than real time
     @Autowired
-    CallElevatorCommand callElevatorCommand;
+    Clock clock;
+
+    private final List<ElevatorEventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Register a listener that gets told about car events, see {@link ElevatorEventListener}
+     */
+    public void addEventListener(ElevatorEventListener listener) {
+        eventListeners.add(listener);
+    }
 
     // ==================== Rest request handling ====================
+    //every request that touches a car is queued in that car's mailbox and applied by the car's control thread.
+    //the ...Async variants return as soon as the command is queued, the others wait until it has been applied
 
     /**
      * Handle open doors request from REST controller.
-     * Executes immediately if conditions are valid.
+     * Executes on the car's control thread if conditions are valid.
      */
-    public void openDoors() {
-        log.info("REST request: Open doors at floor {}", elevatorState.getCurrentFloor());
-        checkEmergencyState();
+    public void openDoors(int carId) {
+        openDoors(elevatorBank, carId);
+    }
 
-        try {
-            // Use strategy to execute command outside of elevator logic loop
-            openDoorsCommand.executeCommand(elevatorState);
-        } catch (IllegalArgumentException e) {
-            log.error("Cannot open doors: {}", e.getMessage());
-            throw e;
-        }
+    /**
+     * Open the doors of a car in any bank of the portfolio
+     */
+    public void openDoors(ElevatorBank bank, int carId) {
+        await(openDoorsAsync(bank, carId).applied());
+    }
+
+    /**
+     * Queue an open doors request without waiting for the car to apply it
+     */
+    public PendingCommand openDoorsAsync(ElevatorBank bank, int carId) {
+        ElevatorCar car = acceptingCar(bank, carId);
+        return submitCommand(car, () -> {
+            log.info("REST request: Open doors of car {} at floor {}", carId, car.getState().getCurrentFloor());
+            checkEmergencyState(car);
+
+            try {
+                // Use strategy to execute command outside of elevator logic loop
+                openDoorsCommand.executeCommand(car);
+            } catch (IllegalArgumentException e) {
+                log.error("Cannot open doors: {}", e.getMessage());
+                throw e;
+            }
+        });
     }
 
     /**
      * Handle close doors request from REST controller.
-     * Executes immediately if conditions are valid.
+     * Executes on the car's control thread if conditions are valid.
+     */
+    public void closeDoors(int carId) {
+        closeDoors(elevatorBank, carId);
+    }
+
+    /**
+     * Close the doors of a car in any bank of the portfolio
+     */
+    public void closeDoors(ElevatorBank bank, int carId) {
+        await(closeDoorsAsync(bank, carId).applied());
+    }
+
+    /**
+     * Queue a close doors request without waiting for the car to apply it
+     */
+    public PendingCommand closeDoorsAsync(ElevatorBank bank, int carId) {
+        ElevatorCar car = acceptingCar(bank, carId);
+        return submitCommand(car, () -> {
+            log.info("REST request: Close doors of car {} at floor {}", carId, car.getState().getCurrentFloor());
+            checkEmergencyState(car);
+
+            try {
+                // Use strategy to execute command outside of elevator logic loop
+                closeDoorsCommand.executeCommand(car);
+            } catch (IllegalArgumentException e) {
+                log.error("Cannot close doors: {}", e.getMessage());
+                // Let GlobalExceptionHandler handle the HTTP response code for this error
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Handle floor button press request from REST controller.
+     * A car call is only ever added to the car it was pressed in. Uses SCAN algorithm for optimal routing.
+     */
+    public void pressFloorButton(int carId, int targetFloorNumber) {
+        pressFloorButton(elevatorBank, carId, targetFloorNumber);
+    }
+
+    /**
+     * Press a floor button in a car of any bank of the portfolio
+     */
+    public void pressFloorButton(ElevatorBank bank, int carId, int targetFloorNumber) {
+        await(pressFloorButtonAsync(bank, carId, targetFloorNumber).applied());
+    }
+
+    /**
+     * Queue a floor button press without waiting for the car to apply it
+     */
+    public PendingCommand pressFloorButtonAsync(ElevatorBank bank, int carId, int targetFloorNumber) {
+        ElevatorCar car = acceptingCar(bank, carId);
+        // the floors a car serves never change, so a press nobody could make is turned away before it is queued
+        if (!car.getState().servesFloor(targetFloorNumber)) {
+            throw new IllegalArgumentException("Floor " + targetFloorNumber + " is not served by car " + carId);
+        }
+        if (coalescer.absorbCarCall(car, targetFloorNumber)) {
+            return appliedCommand(car);
+        }
+        // a new immutable command per request so concurrent presses never share state
+        PressButtonCommand pressButtonCommand = new PressButtonCommand(targetFloorNumber);
+        return submitCommand(car, () -> {
+            log.info("REST request: Press floor button {} in car {}", targetFloorNumber, carId);
+            checkEmergencyState(car);
+
+            //if elevator is IDLE and currentFloor button is pressed we open the doors
+            if (!checkIfButtonPressedOnCurrentFloor(car, targetFloorNumber)) {
+                executeCallCommand(car, pressButtonCommand);
+            }
+        });
+    }
+
+    /**
+     * Handle a hall call from REST controller. The group dispatcher picks the car that serves the call.
+     *
+     * @return the id of the car assigned to the call
+     */
+    public int callElevator(int currentFloorNumber, ElevatorDirection requestedDirection) {
+        return callElevator(currentFloorNumber, requestedDirection, null);
+    }
+
+    /**
+     * Handle a hall call pressed on the buttons of one zone, only the cars of that zone are looked at.
+     * Without a zone every car that serves the floor can take the call
+     *
+     * @return the id of the car assigned to the call
+     */
+    public int callElevator(int currentFloorNumber, ElevatorDirection requestedDirection, String zoneName) {
+        return callElevator(elevatorBank, currentFloorNumber, requestedDirection, zoneName);
+    }
+
+    /**
+     * Handle a hall call in any bank of the portfolio, only the cars of that bank are looked at
+     *
+     * @return the id of the car assigned to the call
+     */
+    public int callElevator(ElevatorBank bank, int currentFloorNumber, ElevatorDirection requestedDirection, String zoneName) {
+        PendingCommand pendingCommand = callElevatorAsync(bank, currentFloorNumber, requestedDirection, zoneName);
+        await(pendingCommand.applied());
+        return pendingCommand.carId();
+    }
+
+    /**
+     * Dispatch a hall call and queue it with the chosen car without waiting for the car to apply it
+     */
+    public PendingCommand callElevatorAsync(ElevatorBank bank, int currentFloorNumber, ElevatorDirection requestedDirection,
+                                            String zoneName) {
+        // the button is still lit, the car that has the call is on its way
+        ElevatorCar pendingCar = coalescer.absorbHallCall(bank, currentFloorNumber, requestedDirection, zoneName);
+        if (pendingCar != null) {
+            return appliedCommand(pendingCar);
+        }
+        log.info("REST request: Call elevator {}, Direction {}{}", currentFloorNumber, requestedDirection,
+                zoneName == null ? "" : ", Zone " + zoneName);
+        CallElevatorCommand callElevatorCommand = new CallElevatorCommand(currentFloorNumber, requestedDirection);
+
+        List<ElevatorCar> servingCars = bank.getCarsServing(currentFloorNumber, zoneName);
+        // the end floors only have the one button, turned away before it is queued like an unknown floor
+        ElevatorState servingState = servingCars.getFirst().getState();
+        if ((currentFloorNumber == servingState.getMinFloor() && requestedDirection == ElevatorDirection.DOWN)
+                || (currentFloorNumber == servingState.getMaxFloor() && requestedDirection == ElevatorDirection.UP)) {
+            throw new IllegalArgumentException("Floor " + currentFloorNumber + " has no " + requestedDirection + " button");
+        }
+        ElevatorCar car = groupDispatcher.assignHallCall(currentFloorNumber, requestedDirection, servingCars);
+
+        PendingCommand pendingCommand = submitCommand(car, () -> {
+            // the car may have been stopped since the dispatcher looked at it
+            checkEmergencyState(car);
+
+            //if elevator is IDLE and currentFloor button is pressed we open the doors
+            if (!checkIfButtonPressedOnCurrentFloor(car, currentFloorNumber)) {
+                executeCallCommand(car, callElevatorCommand);
+            }
+        });
+        parkingPolicy.recordHallCall(bank, currentFloorNumber, clock.millis());
+        trafficModeDetector.recordHallCall(bank, currentFloorNumber, requestedDirection, clock.millis());
+        return pendingCommand;
+    }
+
+    /**
+     * Move a hall call that is still waiting to another car. The call is only taken from the first car if that car
+     * has not served it yet and nobody inside it asked for the floor. The new car keeps the time of the original call
+     *
+     * @return true if the call was moved
+     */
+    public boolean reassignHallCall(int fromCarId, int toCarId, int floor, ElevatorDirection requestedDirection, long callTimeMs) {
+        return reassignHallCall(elevatorBank, fromCarId, toCarId, floor, requestedDirection, callTimeMs);
+    }
+
+    /**
+     * Move a waiting hall call between two cars of the same bank
      */
-    public void closeDoors() {
-        log.info("REST request: Close doors at floor {}", elevatorState.getCurrentFloor());
-        checkEmergencyState();
+    public boolean reassignHallCall(ElevatorBank bank, int fromCarId, int toCarId, int floor, ElevatorDirection requestedDirection,
+                                    long callTimeMs) {
+        ElevatorCar fromCar = bank.getCar(fromCarId);
+        ElevatorCar toCar = bank.getCar(toCarId);
+        CallElevatorCommand callElevatorCommand = new CallElevatorCommand(floor, requestedDirection);
+
+        boolean withdrawn = await(submitToCar(fromCar, () -> withdrawHallCall(fromCar, floor, requestedDirection)));
+        if (!withdrawn) {
+            return false;
+        }
 
         try {
-            // Use strategy to execute command outside of elevator logic loop
-            closeDoorsCommand.executeCommand(elevatorState);
-        } catch (IllegalArgumentException e) {
-            log.error("Cannot close doors: {}", e.getMessage());
-            // Let GlobalExceptionHandler handle the HTTP response code for this error
-            throw e;
+            dispatchHallCall(toCar, callElevatorCommand, callTimeMs);
+            log.info("Hall call floor {} {} moved from car {} to car {}", floor, requestedDirection, fromCarId, toCarId);
+        } catch (RuntimeException e) {
+            // the new car changed since it was picked, let the dispatcher find another one
+            log.warn("Car {} could not take hall call floor {}: {}", toCarId, floor, e.getMessage());
+            redispatchHallCall(bank, floor, requestedDirection, fromCar.getState().getZoneName(), callTimeMs);
         }
+        return true;
     }
 
     /**
-     * Handle floor button press request from REST controller.
-     * Uses SCAN algorithm for optimal routing.
+     * Dispatch a hall call again that its car lost, for example to an emergency stop. Keeps the time of the original call
+     * and stays in the bank and zone of the car that had it
+     *
+     * @return the id of the car now assigned to the call
      */
-    public void pressFloorButton(int targetFloorNumber) {
-        log.info("REST request: Press floor button {}", targetFloorNumber);
-        checkEmergencyState();
+    public int redispatchHallCall(ElevatorBank bank, int floor, ElevatorDirection requestedDirection, String zoneName, long callTimeMs) {
+        CallElevatorCommand callElevatorCommand = new CallElevatorCommand(floor, requestedDirection);
+        ElevatorCar car = groupDispatcher.assignHallCall(floor, requestedDirection, bank.getCarsServing(floor, zoneName));
+        dispatchHallCall(car, callElevatorCommand, callTimeMs);
+        return car.getId();
+    }
 
-        //if elevator is IDLE and currentFloor button is pressed we open the doors
-        if(checkIfButtonPressedOnCurrentFloor(targetFloorNumber)){
-            return;
+    private void dispatchHallCall(ElevatorCar car, CallElevatorCommand callElevatorCommand, long callTimeMs) {
+        execute(car, () -> {
+            checkEmergencyState(car);
+            if (!checkIfButtonPressedOnCurrentFloor(car, callElevatorCommand.targetFloor())
+                    && callElevatorCommand.executeCommand(car)) {
+                coalescer.hallCallAssigned(car, callElevatorCommand.targetFloor(), callElevatorCommand.requestedDirection());
+                publishEvent(car, listener -> listener.onHallCallAssigned(car, callElevatorCommand.targetFloor(),
+                        callElevatorCommand.requestedDirection(), callTimeMs));
+            }
+        });
+    }
+
+    // runs on the car's control thread
+    private boolean withdrawHallCall(ElevatorCar car, int floor, ElevatorDirection requestedDirection) {
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
+        if (destinationManager.getCarCallFloors().contains(floor)
+                || !destinationManager.withdrawHallCall(floor, requestedDirection)) {
+            return false;
+        }
+
+        publishEvent(car, listener -> listener.onHallCallWithdrawn(car, floor, requestedDirection));
+        return true;
+    }
+
+    /**
+     * New reading of a car's load weighing. A car at or above the bypass load passes hall calls until people got out
+     */
+    public void updateCarLoad(int carId, int loadKg) {
+        updateCarLoad(elevatorBank, carId, loadKg);
+    }
+
+    /**
+     * New load reading of a car in any bank of the portfolio
+     */
+    public void updateCarLoad(ElevatorBank bank, int carId, int loadKg) {
+        if (loadKg < 0) {
+            throw new IllegalArgumentException("Car load can't be negative, was " + loadKg + "kg");
         }
+        ElevatorCar car = bank.getCar(carId);
+        execute(car, () -> {
+            ElevatorState elevatorState = car.getState();
+            if (loadKg > elevatorState.getCapacityKg()) {
+                log.warn("Car {} is overloaded, {}kg of {}kg", carId, loadKg, elevatorState.getCapacityKg());
+            }
+            elevatorState.setLoadKg(loadKg);
+            log.debug("Car {} load {}kg", carId, loadKg);
+        });
+    }
+
+    /**
+     * Emergency stop button is pressed in a car
+     */
+    public void emergencyStop(int carId) {
+        emergencyStop(elevatorBank, carId);
+    }
 
+    /**
+     * Emergency stop of a car in any bank of the portfolio
+     */
+    public void emergencyStop(ElevatorBank bank, int carId) {
+        ElevatorCar car = bank.getCar(carId);
+        execute(car, () -> {
+            ElevatorState elevatorState = car.getState();
+            ElevatorDestinationManager destinationManager = car.getDestinationManager();
+            log.warn("EMERGENCY STOP ACTIVATED in car {} at floor {}", carId, elevatorState.getCurrentFloor());
+
+            // Stop all movement and clear destinations
+            elevatorState.setCurrentMovementState(ElevatorMovement.EMERGENCY);
+            elevatorState.setDirection(ElevatorDirection.NONE);
+            elevatorState.setMovementOperationStartTimeMs(-1);
 
-        pressButtonCommand.setTargetFloor(targetFloorNumber);
-        pressButtonCommand.executeCommand(elevatorState);
+            // Clear all floor requests
+            int clearedCount = destinationManager.getDestinationCount();
+            destinationManager.clearAllDestinations();
 
+            log.error("EMERGENCY: Cleared {} floor request(s). All operations blocked until cleared.", clearedCount);
+            publishEvent(car, listener -> listener.onEmergencyStop(car));
+        });
     }
 
-    public void callElevator(int currentFloorNumber, ElevatorDirection requestedDirection) {
-        log.info("REST request: Call elevator {}, Direction {}", currentFloorNumber, requestedDirection);
-        checkEmergencyState();
+    /**
+     * Emergency has been cleared for a car
+     */
+    public void emergencyClear(int carId) {
+        emergencyClear(elevatorBank, carId);
+    }
 
-        //if elevator is IDLE and currentFloor button is pressed we open the doors
-        if(checkIfButtonPressedOnCurrentFloor(currentFloorNumber)) {
-            return;
+    /**
+     * Clear the emergency stop of a car in any bank of the portfolio
+     */
+    public void emergencyClear(ElevatorBank bank, int carId) {
+        ElevatorCar car = bank.getCar(carId);
+        execute(car, () -> {
+            ElevatorState elevatorState = car.getState();
+            if (elevatorState.getCurrentMovementState() != ElevatorMovement.EMERGENCY) {
+                throw new IllegalArgumentException("Elevator is not in emergency mode");
+            }
+
+            log.info("Clearing emergency stop of car {} at floor {}", carId, elevatorState.getCurrentFloor());
+
+            // Restore to idle state
+            elevatorState.setCurrentMovementState(ElevatorMovement.IDLE);
+            elevatorState.setDirection(ElevatorDirection.NONE);
+
+            log.info("Emergency cleared. Elevator restored to normal operation");
+        });
+    }
+
+    /**
+     * Handle a batch of car calls, hall calls and door commands from a panel or gateway in one pass.
+     * Repeated presses inside the batch are only applied once, hall calls are dispatched up front and then every
+     * car applies all of its items in a single mailbox command, checking its emergency state once for the lot.
+     *
+     * @return one result per item, in the order of the request
+     */
+    public List<ElevatorCommandResult> executeBatch(List<ElevatorCommandRequest> requests) {
+        log.info("REST request: Batch of {} command(s)", requests.size());
+        ElevatorCommandResult[] results = new ElevatorCommandResult[requests.size()];
+        Map<BatchKey, Integer> firstIndexByKey = new HashMap<>();
+        Map<ElevatorCar, List<BatchItem>> itemsByCar = new LinkedHashMap<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            ElevatorCommandRequest request = requests.get(index);
+            try {
+                BatchKey key = BatchKey.of(request);
+                Integer firstIndex = firstIndexByKey.putIfAbsent(key, index);
+                if (firstIndex != null) {
+                    results[index] = ElevatorCommandResult.duplicate(index, null, "Same command as item " + firstIndex);
+                    continue;
+                }
+                BatchItem item = prepareBatchItem(index, key);
+                itemsByCar.computeIfAbsent(item.car(), car -> new ArrayList<>()).add(item);
+            } catch (RuntimeException e) {
+                results[index] = ElevatorCommandResult.rejected(index, null, e.getMessage());
+            }
+        }
+
+        // queue every car's share first so the cars apply their items in parallel
+        List<CompletableFuture<List<ElevatorCommandResult>>> carResults = itemsByCar.entrySet().stream()
+                .map(entry -> submitToCar(entry.getKey(), () -> applyBatchItems(entry.getKey(), entry.getValue())))
+                .toList();
+        for (CompletableFuture<List<ElevatorCommandResult>> carResult : carResults) {
+            await(carResult).forEach(result -> results[result.index()] = result);
         }
+        return Arrays.asList(results);
+    }
 
-        callElevatorCommand.setTargetFloor(currentFloorNumber);
-        callElevatorCommand.setRequestedDirection(requestedDirection);
-        callElevatorCommand.executeCommand(elevatorState);
+    // validation and dispatching happen on the request thread, only applying the item needs the car's thread
+    private BatchItem prepareBatchItem(int index, BatchKey key) {
+        return switch (key.type()) {
+            case CAR_CALL -> new BatchItem(index, key, elevatorBank.getCar(key.carId()), new PressButtonCommand(key.floor()));
+            case HALL_CALL -> {
+                CallElevatorCommand callElevatorCommand = new CallElevatorCommand(key.floor(), key.direction());
+                ElevatorCar car = groupDispatcher.assignHallCall(key.floor(), key.direction(),
+                        elevatorBank.getCarsServing(key.floor(), null));
+                yield new BatchItem(index, key, car, callElevatorCommand);
+            }
+            case OPEN_DOORS -> new BatchItem(index, key, elevatorBank.getCar(key.carId()), openDoorsCommand);
+            case CLOSE_DOORS -> new BatchItem(index, key, elevatorBank.getCar(key.carId()), closeDoorsCommand);
+        };
     }
 
+    // runs on the car's control thread
+    private List<ElevatorCommandResult> applyBatchItems(ElevatorCar car, List<BatchItem> items) {
+        List<ElevatorCommandResult> results = new ArrayList<>(items.size());
+
+        if (car.getState().getCurrentMovementState() == ElevatorMovement.EMERGENCY) {
+            String message = "Elevator car " + car.getId() + " is in emergency stop mode - all operations are blocked";
+            items.forEach(item -> results.add(ElevatorCommandResult.rejected(item.index(), car.getId(), message)));
+            return results;
+        }
+
+        for (BatchItem item : items) {
+            try {
+                boolean applied = switch (item.key().type()) {
+                    case CAR_CALL, HALL_CALL -> checkIfButtonPressedOnCurrentFloor(car, item.key().floor())
+                            || executeCallCommand(car, item.command());
+                    case OPEN_DOORS, CLOSE_DOORS -> item.command().executeCommand(car);
+                };
+                if (item.key().type() == CommandType.HALL_CALL) {
+                    parkingPolicy.recordHallCall(elevatorBank, item.key().floor(), clock.millis());
+                    trafficModeDetector.recordHallCall(elevatorBank, item.key().floor(), item.key().direction(), clock.millis());
+                }
+                results.add(applied ? ElevatorCommandResult.accepted(item.index(), car.getId())
+                        : ElevatorCommandResult.duplicate(item.index(), car.getId(), "Floor " + item.key().floor() + " already requested"));
+            } catch (RuntimeException e) {
+                results.add(ElevatorCommandResult.rejected(item.index(), car.getId(), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    // identity of a press used for duplicate suppression, fields that don't matter for the type are left at 0/null
+    private record BatchKey(CommandType type, int carId, int floor, ElevatorDirection direction) {
+
+        static BatchKey of(ElevatorCommandRequest request) {
+            if (request == null || request.type() == null) {
+                throw new IllegalArgumentException("Command type is required");
+            }
+            int carId = request.carId() == null ? 1 : request.carId();
+            return switch (request.type()) {
+                case CAR_CALL -> new BatchKey(request.type(), carId, requireFloor(request), null);
+                case HALL_CALL -> new BatchKey(request.type(), 0, requireFloor(request), request.direction());
+                case OPEN_DOORS, CLOSE_DOORS -> new BatchKey(request.type(), carId, 0, null);
+            };
+        }
+
+        private static int requireFloor(ElevatorCommandRequest request) {
+            if (request.floor() == null) {
+                throw new IllegalArgumentException("Floor is required for " + request.type());
+            }
+            return request.floor();
+        }
+    }
+
+    private record BatchItem(int index, BatchKey key, ElevatorCar car, ElevatorCommand command) {}
+
     /**
-     * Emergency stop button is pressed
+     * Get the current state of a single car. This is the immutable snapshot the car published after its last change,
+     * reading it is a single volatile load that never touches or waits for the car itself
      */
-    public void emergencyStop() {
-        log.warn("EMERGENCY STOP ACTIVATED at floor {}", elevatorState.getCurrentFloor());
+    public ElevatorDTO getCurrentElevatorState(int carId) {
+        return getCurrentElevatorState(elevatorBank, carId);
+    }
 
-        // Stop all movement and clear destinations
-        elevatorState.setCurrentMovementState(ElevatorMovement.EMERGENCY);
-        elevatorState.setDirection(ElevatorDirection.NONE);
-        elevatorState.setMovementOperationStartTimeMs(-1);
+    public ElevatorDTO getCurrentElevatorState(ElevatorBank bank, int carId) {
+        return bank.getCar(carId).getSnapshot();
+    }
+
+    /**
+     * Get the current state of every car in the bank
+     */
+    public List<ElevatorDTO> getElevatorBankState() {
+        return getElevatorBankState(elevatorBank);
+    }
 
-        // Clear all floor requests
-        int clearedCount = destinationManager.getDestinationCount();
-        destinationManager.clearAllDestinations();
+    public List<ElevatorDTO> getElevatorBankState(ElevatorBank bank) {
+        return bank.getCars().stream()
+                .map(ElevatorCar::getSnapshot)
+                .toList();
+    }
 
-        log.error("EMERGENCY: Cleared {} floor request(s). All operations blocked until cleared.", clearedCount);
+    /**
+     * Swap the scheduling strategy of a running car. The swap goes through the car's mailbox, so it never lands in
+     * the middle of a decision of the control thread, queued floors stay and are served in the new order
+     */
+    public void setSchedulingStrategy(int carId, SchedulingStrategyType strategyType) {
+        ElevatorCar car = elevatorBank.getCar(carId);
+        execute(car, () -> {
+            car.getDestinationManager().setSchedulingStrategy(strategyType.getStrategy());
+            log.info("Car {} now schedules its floors with {}", carId, strategyType);
+        });
     }
 
     /**
-     * Emergency has been cleared
+     * @return the scheduling strategy a car is running, or null for a strategy that isn't one of the configurable types
      */
-    public void emergencyClear() {
-        if (elevatorState.getCurrentMovementState() != ElevatorMovement.EMERGENCY) {
-            throw new IllegalArgumentException("Elevator is not in emergency mode");
+    public SchedulingStrategyType getSchedulingStrategy(int carId) {
+        SchedulingStrategy strategy = elevatorBank.getCar(carId).getDestinationManager().getSchedulingStrategy();
+        for (SchedulingStrategyType type : SchedulingStrategyType.values()) {
+            if (type.getStrategy() == strategy) {
+                return type;
+            }
         }
+        return null;
+    }
+
+    /**
+     * The operating mode the bank picked from the recent calls
+     */
+    public TrafficMode getTrafficMode() {
+        return getTrafficMode(elevatorBank);
+    }
 
-        log.info("Clearing emergency stop at floor {}", elevatorState.getCurrentFloor());
+    public TrafficMode getTrafficMode(ElevatorBank bank) {
+        return trafficModeDetector.getMode(bank, clock.millis());
+    }
 
-        // Restore to idle state
-        elevatorState.setCurrentMovementState(ElevatorMovement.IDLE);
-        elevatorState.setDirection(ElevatorDirection.NONE);
+    /**
+     * Put a car back into the state it was in before the service restarted, used by the journal on startup
+     */
+    public void restoreCarState(ElevatorDTO savedState) {
+        ElevatorCar car = elevatorBank.getCar(savedState.carId());
+        execute(car, () -> {
+            car.restore(savedState, clock.millis());
+            log.info("Restored car {} at floor {}, movement {}, doors {}, destinations {}", car.getId(),
+                    car.getState().getCurrentFloor(), car.getState().getCurrentMovementState(),
+                    car.getState().getCurrentDoorState(), car.getDestinationManager().getAllDestinations());
+        });
+    }
+
+    // queue a command in the car's mailbox and wait until its control thread has applied it
+    private void execute(ElevatorCar car, Runnable command) {
+        await(submitCommand(car, command).applied());
+    }
+
+    // queue a command in the car's mailbox and return right away
+    private PendingCommand submitCommand(ElevatorCar car, Runnable command) {
+        return new PendingCommand(car.getId(), submitToCar(car, () -> {
+            command.run();
+            return null;
+        }));
+    }
+
+    // a press that needs nothing from the car, it counts as applied right away
+    private static PendingCommand appliedCommand(ElevatorCar car) {
+        return new PendingCommand(car.getId(), CompletableFuture.completedFuture(null));
+    }
+
+    // a car that is stopped can be turned away before anything is queued, the command checks again when it runs
+    private ElevatorCar acceptingCar(ElevatorBank bank, int carId) {
+        ElevatorCar car = bank.getCar(carId);
+        if (car.getSnapshot().state() == ElevatorMovement.EMERGENCY) {
+            throw new ElevatorEmergencyException("Elevator car " + carId + " is in emergency stop mode - all operations are blocked");
+        }
+        return car;
+    }
 
-        log.info("Emergency cleared. Elevator restored to normal operation");
+    // every command that goes through here re-publishes the car's state once it has been applied
+    private <T> CompletableFuture<T> submitToCar(ElevatorCar car, Supplier<T> command) {
+        return car.getMailbox().submit(() -> {
+            try {
+                return command.get();
+            } finally {
+                refreshPublishedState(car);
+            }
+        });
+    }
+
+    // wait for a queued command, a failure is rethrown as is so the GlobalExceptionHandler still maps it
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Get the current elevator state
+     * Publish a new snapshot of the car if anything changed and tell the listeners. Runs on the car's writer
      */
-    public ElevatorDTO getCurrentElevatorState() {
-        return new ElevatorDTO(
-                elevatorState.getCurrentFloor(),
-                elevatorState.getCurrentMovementState(),
-                elevatorState.getDirection(),
-                elevatorState.getCurrentDoorState(),
-                destinationManager.getAllDestinations(),
-                destinationManager.getUpwardFloors(),
-                destinationManager.getDownwardFloors());
+    private void refreshPublishedState(ElevatorCar car) {
+        ElevatorDTO previous = car.getSnapshot();
+        if (car.refreshSnapshot()) {
+            ElevatorDTO current = car.getSnapshot();
+            publishEvent(car, listener -> listener.onStateChanged(car, previous, current));
+        }
     }
 
     // ==================== SCHEDULED PROCESSING (MAIN LOOP) ====================
-    //run this function every second to simulate the elevator logic. we will check every
-    //tick:
-    //1. door status, are we open or closed?
-    //2. can we move?
-    //3. execute elevator movement
-    @Scheduled(fixedRate = 1000)
+    //every car is owned by one control worker of the ElevatorTickScheduler, its control thread, which runs a control
+    //cycle whenever the car's next deadline expires or a new command arrives. each cycle:
+    //1. applies the queued commands
+    //2. door status, are we open or closed?
+    //3. can we move?
+    //4. execute elevator movement
+
+    /**
+     * One control cycle of a car, applies at most maxBatch queued commands before ticking so a flood of button
+     * presses can not starve door and floor timers.
+     *
+     * @return true if commands are still waiting in the mailbox
+     */
+    boolean runControlCycle(ElevatorCar car, int maxBatch) {
+        ElevatorCommandMailbox mailbox = car.getMailbox();
+        mailbox.runAsWriter(() -> {
+            long cycleStart = System.nanoTime();
+            mailbox.drain(maxBatch);
+            processCarOperations(car);
+            refreshPublishedState(car);
+            long cycleDuration = System.nanoTime() - cycleStart;
+            publishEvent(car, listener -> listener.onControlCycle(car, cycleDuration));
+        });
+        return mailbox.hasPendingCommands();
+    }
+
+    /**
+     * Tick every car of the default bank on the calling thread, used when no control threads run (simulation and tests)
+     */
     public void processElevatorOperations() {
-        //wrapping in a try catch block for debugging and so the service main loop doesnt crash
+        for (ElevatorCar car : elevatorBank.getCars()) {
+            runControlCycle(car, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Earliest deadline across every car of the default bank, the simulation jumps ahead to this time
+     */
+    public long getNextDeadlineMs() {
+        long nextDeadline = Long.MAX_VALUE;
+        for (ElevatorCar car : elevatorBank.getCars()) {
+            nextDeadline = Math.min(nextDeadline, getNextDeadlineMs(car));
+        }
+        return nextDeadline;
+    }
+
+    /**
+     * Epoch ms at which a car next needs the tick loop, computed from the door and movement timers.
+     * An idle car with queued destinations needs processing right away, one without destinations when it is due to be
+     * parked. Long.MAX_VALUE means the car has nothing to do
+     */
+    long getNextDeadlineMs(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
+        long doorOperationStartTime = elevatorState.getDoorOperationStartTimeMs();
+
+        return switch (elevatorState.getCurrentMovementState()) {
+            case EMERGENCY -> Long.MAX_VALUE;
+            // a moving car without a start time is stuck, there is no point waking up for it
+            case MOVING -> elevatorState.getMovementOperationStartTimeMs() <= 0 ? Long.MAX_VALUE
+                    : elevatorState.getMovementOperationStartTimeMs() + nextFloorTravelTimeMs(elevatorState);
+            case IDLE -> switch (elevatorState.getCurrentDoorState()) {
+                case OPENING, CLOSING -> doorOperationStartTime + elevatorState.getDoorOperationTimeMs();
+                case OPEN -> doorOperationStartTime + trafficModeDetector.doorWaitTimeMs(car, clock.millis());
+                case CLOSED -> car.getDestinationManager().hasDestinations() ? 0
+                        : parkingPolicy.parkingDeadlineMs(elevatorState, trafficModeDetector.getMode(car.getBank(), clock.millis()));
+            };
+        };
+    }
+
+    private void processCarOperations(ElevatorCar car) {
+        //wrapping in a try catch block for debugging and so one car failing doesnt crash the service main loop
         try {
 
             // Skip processing if in emergency mode
-            if (elevatorState.getCurrentMovementState() == ElevatorMovement.EMERGENCY) {
+            if (car.getState().getCurrentMovementState() == ElevatorMovement.EMERGENCY) {
                 return;
             }
 
             // 1. Check door operation
-            handleDoorOperations();
+            handleDoorOperations(car);
 
 
             // 2. movement handling and validation
-            handleElevatorMovement();
+            handleElevatorMovement(car);
         } catch (Exception e) {
-            log.error("Cannot process elevator operations: {}", e.getMessage());
+            log.error("Cannot process elevator operations for car {}: {}", car.getId(), e.getMessage());
         }
 
     }
 
 
     // ==================== Door Timing and validations ====================
-    private void handleDoorOperations() {
+    private void handleDoorOperations(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
 
         //if the elevator is moving we know the doors should be closed so we skip door logic loop
         if (elevatorState.getCurrentMovementState() == ElevatorMovement.MOVING) {
@@ -193,32 +750,29 @@ public class ElevatorService {
         }
 
         //grab the current timings since the last execution
-        long currentTime = System.currentTimeMillis();
-        long operationStartTime = elevatorState.getDoorOperationStartTimeMs();
-        ElevatorDoor currentDoorState = elevatorState.getCurrentDoorState();
-
-
-        switch (currentDoorState) {
-            case OPENING:
-                handleDoorOpening(currentTime, operationStartTime);
-                break;
-
-            case OPEN:
-                handleDoorOpen(currentTime, operationStartTime);
-                break;
-
-            case CLOSING:
-                handleDoorClosing(currentTime, operationStartTime);
-                break;
-
-            case CLOSED:
-                // Nothing to do - doors are closed and stable
-                log.trace("Doors are already closed at floor {}", elevatorState.getCurrentFloor());
-                break;
+        long currentTime = clock.millis();
+
+        //keep applying transitions while their deadline has already passed, so a late tick catches up
+        //on every door phase that elapsed instead of drifting one phase per tick
+        boolean transitioned = true;
+        while (transitioned) {
+            long operationStartTime = elevatorState.getDoorOperationStartTimeMs();
+
+            transitioned = switch (elevatorState.getCurrentDoorState()) {
+                case OPENING -> handleDoorOpening(car, currentTime, operationStartTime);
+                case OPEN -> handleDoorOpen(car, currentTime, operationStartTime);
+                case CLOSING -> handleDoorClosing(car, currentTime, operationStartTime);
+                case CLOSED -> {
+                    // Nothing to do - doors are closed and stable
+                    log.trace("Doors are already closed at floor {}", elevatorState.getCurrentFloor());
+                    yield false;
+                }
+            };
         }
     }
 
-    private void handleDoorOpening(long currentTime, long operationStartTime) {
+    private boolean handleDoorOpening(ElevatorCar car, long currentTime, long operationStartTime) {
+        ElevatorState elevatorState = car.getState();
         long elapsedTime = currentTime - operationStartTime;
 
         log.trace("Doors are still opening at floor {}", elevatorState.getCurrentFloor());
@@ -227,30 +781,41 @@ public class ElevatorService {
         if (elapsedTime >= elevatorState.getDoorOperationTimeMs()) {
             // if true, we transition: OPENING -> OPEN
             elevatorState.setCurrentDoorState(ElevatorDoor.OPEN);
-            elevatorState.setDoorOperationStartTimeMs(currentTime); // Reset timer for auto-close
+            // Reset timer for auto-close, anchored to when the doors finished opening rather than when we noticed
+            elevatorState.setDoorOperationStartTimeMs(operationStartTime + elevatorState.getDoorOperationTimeMs());
 
             log.info("Doors fully opened at floor {}", elevatorState.getCurrentFloor());
+            return true;
         }
         //if not enough time has passed we wait for the next tick
+        return false;
     }
 
-    private void handleDoorOpen(long currentTime, long operationStartTime) {
+    private boolean handleDoorOpen(ElevatorCar car, long currentTime, long operationStartTime) {
+        ElevatorState elevatorState = car.getState();
         long elapsedTime = currentTime - operationStartTime;
 
         log.trace("Doors open at floor {}", elevatorState.getCurrentFloor());
 
-        //check if enough time has elapsed to start auto close
-        if (elapsedTime >= elevatorState.getDoorWaitTimeMs()) {
+        //check if enough time has elapsed to start auto close, cars fill up at the lobby for longer in up-peak
+        long doorWaitTime = trafficModeDetector.doorWaitTimeMs(car, currentTime);
+        if (elapsedTime >= doorWaitTime) {
             // Auto-close time reached we transition: OPEN -> CLOSING
             log.info("Auto-closing doors at floor {} after {} ms", elevatorState.getCurrentFloor(), elapsedTime);
 
             // Use the close doors command to ensure safety validation
-            closeDoorsCommand.executeCommand(elevatorState);
+            closeDoorsCommand.executeCommand(car);
+            // the doors started closing when the wait time ran out, not when this tick ran
+            elevatorState.setDoorOperationStartTimeMs(operationStartTime + doorWaitTime);
+            return true;
         }
         // If not time to auto-close yet, just wait for the next tick
+        return false;
     }
 
-    private void handleDoorClosing(long currentTime, long operationStartTime) {
+    private boolean handleDoorClosing(ElevatorCar car, long currentTime, long operationStartTime) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
         long elapsedTime = currentTime - operationStartTime;
 
         log.trace("Doors closing at floor {} ", elevatorState.getCurrentFloor());
@@ -261,10 +826,14 @@ public class ElevatorService {
             elevatorState.setCurrentDoorState(ElevatorDoor.CLOSED);
 
             log.info("Doors fully closed at floor {}", elevatorState.getCurrentFloor());
+            publishEvent(car, listener -> listener.onDoorsClosed(car, elevatorState.getCurrentFloor()));
 
             // log statement for when the elevator is idle with no new destinations
             if (!destinationManager.hasDestinations() &&
                     elevatorState.getCurrentMovementState() == ElevatorMovement.IDLE) {
+                // nobody got in to go anywhere, the hall calls answered here are done
+                destinationManager.releaseAnsweredHallCalls(elevatorState.getCurrentFloor());
+                elevatorState.setIdleSinceMs(operationStartTime + elevatorState.getDoorOperationTimeMs());
 
                 log.info("Elevator has no current destinations. State - Floor: {}, Movement: {}, Direction: {}",
                         elevatorState.getCurrentFloor(),
@@ -275,13 +844,16 @@ public class ElevatorService {
             // Now elevator is ready for movement operations with the door closed
             // Clear the door operation timestamp since we're done
             elevatorState.setDoorOperationStartTimeMs(0);
+            return true;
         }
         // If not enough time has passed, just wait for next tick
+        return false;
     }
 
     // ==================== ELEVATOR MOVEMENT LOGIC ====================
 
-    private void handleElevatorMovement() {
+    private void handleElevatorMovement(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
         // we don't move if doors aren't closed, they will eventually close after some time
         if (elevatorState.getCurrentDoorState() != ElevatorDoor.CLOSED) {
             return;
@@ -292,42 +864,69 @@ public class ElevatorService {
         //if doors are closed we handle the idle and moving states
         switch (currentMovement) {
             case IDLE:
-                handleIdleState();
+                handleIdleState(car);
                 break;
             case MOVING:
-                handleMovingState();
+                handleMovingState(car);
                 break;
         }
     }
 
-    private void handleIdleState() {
+    private void handleIdleState(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
         // Check if we have destinations
         if (!destinationManager.hasDestinations()) {
             log.trace("No destinations, remaining idle at floor {}", elevatorState.getCurrentFloor());
+            parkIdleCar(car);
             return;
         }
 
         // Get next destination using SCAN algorithm
-        Integer nextFloor = destinationManager.getNextDestination(elevatorState);
+        int nextFloor = destinationManager.getNextDestination(elevatorState);
 
-        if (nextFloor == null) {
+        if (nextFloor == ElevatorDestinationManager.NO_DESTINATION) {
             log.trace("No valid next destination");
             return;
         }
 
         // If we're already at the destination, handle the arrival immediately
-        if (nextFloor.equals(elevatorState.getCurrentFloor())) {
+        if (nextFloor == elevatorState.getCurrentFloor()) {
             log.info("already at destination floor {} ", nextFloor);
-            arriveAtTargetFloor();
+            arriveAtTargetFloor(car, clock.millis());
             return;
         }
 
         // Start movement to next floor if we have any destinations in the queue
-        startMovementToFloor(nextFloor);
+        startMovementToFloor(car, nextFloor);
+    }
+
+    // a car that has been waiting long enough moves to where the next hall call is most likely to come from
+    private void parkIdleCar(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
+        long currentTime = clock.millis();
+        TrafficMode trafficMode = trafficModeDetector.getMode(car.getBank(), currentTime);
+        if (currentTime < parkingPolicy.parkingDeadlineMs(elevatorState, trafficMode)) {
+            return;
+        }
+
+        // a car that stays put looks again later, another car may have left the floor it was covering
+        elevatorState.setIdleSinceMs(currentTime);
+        int parkingFloor = parkingPolicy.claimParkingFloor(car, car.getBank().getCars(), currentTime, trafficMode);
+        if (parkingFloor == ElevatorDestinationManager.NO_DESTINATION) {
+            log.trace("Car {} stays at floor {}", car.getId(), elevatorState.getCurrentFloor());
+            return;
+        }
+
+        log.info("Car {} idle at floor {}, parking at floor {} ({} traffic)", car.getId(), elevatorState.getCurrentFloor(),
+                parkingFloor, trafficMode);
+        startMovementToFloor(car, parkingFloor);
     }
 
-    private void handleMovingState() {
-        long currentTime = System.currentTimeMillis();
+    private void handleMovingState(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
+        long currentTime = clock.millis();
         long movementStartTime = elevatorState.getMovementOperationStartTimeMs();
 
         if (movementStartTime <= 0) {
@@ -335,29 +934,40 @@ public class ElevatorService {
             return;
         }
 
-        long elapsedTime = currentTime - movementStartTime;
-        long travelTime = elevatorState.getFloorTravelTimeMs();
+        // Move one floor for every full travel interval that has elapsed. Each floor is timed from the end of the
+        // previous one, so a late tick applies all the floors it missed instead of drifting behind
+        while (elevatorState.getCurrentMovementState() == ElevatorMovement.MOVING
+                && currentTime - elevatorState.getMovementOperationStartTimeMs() >= nextFloorTravelTimeMs(elevatorState)) {
+            if (!moveOneFloor(car, elevatorState.getMovementOperationStartTimeMs() + nextFloorTravelTimeMs(elevatorState))) {
+                return;
+            }
+        }
 
-        // Check if enough time has passed to move one floor
-        if (elapsedTime >= travelTime) {
-            // Move one floor in the current direction
-            moveOneFloor();
-        } else {
+        if (elevatorState.getCurrentMovementState() == ElevatorMovement.MOVING && log.isTraceEnabled()) {
             // Get current destination from destination manager for logging
-            Integer currentDestination = destinationManager.getNextDestination(elevatorState);
+            int currentDestination = destinationManager.getNextDestination(elevatorState);
             log.trace("Still moving to floor {} ({}ms remaining)",
                     currentDestination,
-                    travelTime - elapsedTime);
+                    nextFloorTravelTimeMs(elevatorState) - (currentTime - elevatorState.getMovementOperationStartTimeMs()));
         }
     }
 
-    //stop at the next planned destination based on the current moving direction
-    private void moveOneFloor() {
+    // floors the car doesn't serve are passed on an express run
+    private static long nextFloorTravelTimeMs(ElevatorState elevatorState) {
+        int step = elevatorState.getDirection() == ElevatorDirection.DOWN ? -1 : 1;
+        return elevatorState.travelTimeToFloorMs(elevatorState.getCurrentFloor() + step);
+    }
+
+    //stop at the next planned destination based on the current moving direction. arrivalTime is when the car
+    //reached the new floor, returns false if the car could not move
+    private boolean moveOneFloor(ElevatorCar car, long arrivalTime) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
         ElevatorDirection direction = elevatorState.getDirection();
         int currentFloor = elevatorState.getCurrentFloor();
 
         // get the destination BEFORE we move
-        Integer nextDestination = destinationManager.getNextDestination(elevatorState);
+        int nextDestination = destinationManager.getNextDestination(elevatorState);
 
         int newFloor;
 
@@ -371,7 +981,7 @@ public class ElevatorService {
                 break;
             default:
                 log.error("Trying to move but direction is NONE!");
-                return;
+                return false;
         }
 
         // Validate new floor is within bounds
@@ -380,37 +990,84 @@ public class ElevatorService {
             // Stop movement and reassess direction
             elevatorState.setCurrentMovementState(ElevatorMovement.IDLE);
             elevatorState.setDirection(ElevatorDirection.NONE);
-            return;
+            return false;
         }
 
         // Update current floor
         elevatorState.setCurrentFloor(newFloor);
         log.info("Elevator Moving to floor {}", newFloor);
+        publishEvent(car, listener -> listener.onFloorTraveled(car, newFloor));
 
         // Check if we should stop at this floor using the destination we got before moving
-        if (nextDestination != null && nextDestination == newFloor) {
-            arriveAtTargetFloor();
+        if (nextDestination == newFloor && destinationManager.isParkingStop(newFloor)) {
+            // nobody is waiting here, the car stops with its doors closed
+            destinationManager.cancelParking();
+            log.info("Car {} parked at floor {}", car.getId(), newFloor);
+            elevatorState.setCurrentMovementState(ElevatorMovement.IDLE);
+            elevatorState.setDirection(ElevatorDirection.NONE);
+            elevatorState.setMovementOperationStartTimeMs(-1);
+            elevatorState.setIdleSinceMs(arrivalTime);
+        } else if (nextDestination == newFloor && bypassHallCalls(car, newFloor, direction)) {
+            // the people waiting here are left for another car or a later pass
+            elevatorState.setMovementOperationStartTimeMs(arrivalTime);
+        } else if (nextDestination == newFloor) {
+            arriveAtTargetFloor(car, arrivalTime);
+        } else if (!hasDestinationAhead(car, newFloor, direction)) {
+            // nothing left in the direction we are going, the floor we were heading for was taken away (a hall call
+            // moved to another car) or the only call is behind us. Stop here and let the idle handling turn us around
+            log.info("No destinations ahead, stopping at floor {}", newFloor);
+            destinationManager.requeueBypassedHallCalls();
+            elevatorState.setCurrentMovementState(ElevatorMovement.IDLE);
+            elevatorState.setDirection(ElevatorDirection.NONE);
+            elevatorState.setMovementOperationStartTimeMs(-1);
+            if (!destinationManager.hasDestinations()) {
+                elevatorState.setIdleSinceMs(arrivalTime);
+            }
         } else {
-            // Continue moving - reset timer for next floor movement
-            elevatorState.setMovementOperationStartTimeMs(System.currentTimeMillis());
+            // Continue moving - the next floor is timed from the moment we reached this one
+            elevatorState.setMovementOperationStartTimeMs(arrivalTime);
 
             // Debug logging to understand what's happening, still useful at trace level
-            if (nextDestination != null) {
-                log.trace("Passing floor {} - next destination is floor {}", newFloor, nextDestination);
-            } else {
-                log.trace("Passing floor {} - no destinations", newFloor);
-            }
+            log.trace("Passing floor {} - next destination is floor {}", newFloor, nextDestination);
         }
+        return true;
     }
 
-    private void startMovementToFloor(Integer nextRequestedFloor) {
+    // a full car doesn't stop for hall calls alone, as long as it has somewhere to go further on
+    private boolean bypassHallCalls(ElevatorCar car, int floor, ElevatorDirection direction) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
+        if (!elevatorState.isFull() || !destinationManager.bypassHallCalls(floor)) {
+            return false;
+        }
+        if (!hasDestinationAhead(car, floor, direction)) {
+            // the car would only turn around and come back, it may as well stop now
+            destinationManager.requeueBypassedHallCalls();
+            return false;
+        }
+        log.info("Car {} is full ({}kg), passing the hall call(s) at floor {}", car.getId(), elevatorState.getLoadKg(), floor);
+        return true;
+    }
+
+    private boolean hasDestinationAhead(ElevatorCar car, int floor, ElevatorDirection direction) {
+        int nextDestination = car.getDestinationManager().getNextDestination(car.getState());
+        return nextDestination != ElevatorDestinationManager.NO_DESTINATION
+                && ElevatorDirection.between(floor, nextDestination) == direction;
+    }
+
+    private void startMovementToFloor(ElevatorCar car, int nextRequestedFloor) {
+        ElevatorState elevatorState = car.getState();
         // Using ElevatorState for timing tracking only
-        elevatorState.setMovementOperationStartTimeMs(System.currentTimeMillis());
+        elevatorState.setMovementOperationStartTimeMs(clock.millis());
+        elevatorState.setIdleSinceMs(-1);
 
         // Set direction based on target
         ElevatorDirection newMovementDirection = ElevatorDirection.between(
                 elevatorState.getCurrentFloor(), nextRequestedFloor);
 
+        // hall calls answered at this floor are served now, or wait for the next car heading their way
+        car.getDestinationManager().departFrom(elevatorState.getCurrentFloor(), newMovementDirection);
+
         //populate the state singleton with these values
         elevatorState.setDirection(newMovementDirection);
         elevatorState.setCurrentMovementState(ElevatorMovement.MOVING);
@@ -419,7 +1076,9 @@ public class ElevatorService {
                 newMovementDirection.getDescription().toLowerCase(), nextRequestedFloor, elevatorState.getCurrentFloor());
     }
 
-    private void arriveAtTargetFloor() {
+    private void arriveAtTargetFloor(ElevatorCar car, long arrivalTime) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
         int currentFloor = elevatorState.getCurrentFloor();
 
         log.info("Arrived at destination floor {}", currentFloor);
@@ -430,8 +1089,8 @@ public class ElevatorService {
         try {
 
             log.trace("About to remove destination. Current destinations: {}", destinationManager.getAllDestinations());
-            // Remove this specific floor from destinations
-            boolean removed = destinationManager.removeDestination(currentFloor);
+            // Clear the car call and answer the hall calls of this floor
+            boolean removed = destinationManager.arriveAt(currentFloor, elevatorState.getDirection());
             if (removed) {
                 log.debug("Successfully removed destination floor {}. Remaining destinations: {}",
                         currentFloor, destinationManager.getAllDestinations());
@@ -441,10 +1100,12 @@ public class ElevatorService {
 
             // Open doors automatically
             log.info("Opening doors at floor {}", currentFloor);
-            openDoorsCommand.executeCommand(elevatorState);
+            openDoorsCommand.executeCommand(car);
+            // doors start opening the moment the car arrived, even when this tick ran late
+            elevatorState.setDoorOperationStartTimeMs(arrivalTime);
 
             // Update direction for next destination
-            updateDirectionForNextDestination();
+            updateDirectionForNextDestination(car);
 
         } catch (Exception e) {
             log.error("Error handling arrival at floor {}: {}", currentFloor, e.getMessage(), e);
@@ -453,16 +1114,20 @@ public class ElevatorService {
         // Clear movement timing
         elevatorState.setMovementOperationStartTimeMs(-1);
 
+        publishEvent(car, listener -> listener.onCarArrived(car, currentFloor, arrivalTime));
+
         log.info("Arrival complete. State - Floor: {}, Movement: {}, Direction: {}",
                 elevatorState.getCurrentFloor(),
                 elevatorState.getCurrentMovementState(),
                 elevatorState.getDirection());
     }
 
-    private void updateDirectionForNextDestination() {
-        Integer nextFloor = destinationManager.getNextDestination(elevatorState);
+    private void updateDirectionForNextDestination(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
+        int nextFloor = destinationManager.getNextDestination(elevatorState);
 
-        if (nextFloor != null) {
+        if (nextFloor != ElevatorDestinationManager.NO_DESTINATION) {
             ElevatorDirection nextDirection = ElevatorDirection.between(
                     elevatorState.getCurrentFloor(), nextFloor);
             elevatorState.setDirection(nextDirection);
@@ -474,14 +1139,45 @@ public class ElevatorService {
         }
     }
 
+    // run a car call or hall call command and let the listeners know when it added a destination
+    private boolean executeCallCommand(ElevatorCar car, ElevatorCommand command) {
+        boolean destinationAdded = command.executeCommand(car);
+        if (destinationAdded) {
+            long now = clock.millis();
+            if (command instanceof CallElevatorCommand callElevatorCommand) {
+                coalescer.hallCallAssigned(car, callElevatorCommand.targetFloor(), callElevatorCommand.requestedDirection());
+                publishEvent(car, listener -> listener.onHallCallAssigned(car, callElevatorCommand.targetFloor(),
+                        callElevatorCommand.requestedDirection(), now));
+            } else if (command instanceof PressButtonCommand pressButtonCommand) {
+                trafficModeDetector.recordCarCall(car.getBank(), car.getState().getCurrentFloor(), pressButtonCommand.targetFloor(), now);
+                publishEvent(car, listener -> listener.onCarCall(car, pressButtonCommand.targetFloor(), now));
+            }
+        }
+        return destinationAdded;
+    }
+
+    // tell every listener about an event of a car
+    private void publishEvent(ElevatorCar car, Consumer<ElevatorEventListener> event) {
+        for (ElevatorEventListener listener : eventListeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                // a broken listener must never stop the car
+                log.error("Event listener failed for car {}: {}", car.getId(), e.getMessage());
+            }
+        }
+    }
+
     // emergency state checker
-    private void checkEmergencyState() {
+    private void checkEmergencyState(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
         if (elevatorState.getCurrentMovementState() == ElevatorMovement.EMERGENCY) {
-            throw new ElevatorEmergencyException();
+            throw new ElevatorEmergencyException("Elevator car " + car.getId() + " is in emergency stop mode - all operations are blocked");
         }
     }
     // emergency state checker
-    private boolean checkIfButtonPressedOnCurrentFloor(int targetFloorNumber) {
+    private boolean checkIfButtonPressedOnCurrentFloor(ElevatorCar car, int targetFloorNumber) {
+        ElevatorState elevatorState = car.getState();
         // Check if this is a "current floor" request that should cycle doors
         if (targetFloorNumber == elevatorState.getCurrentFloor() &&
                 elevatorState.getCurrentMovementState() == ElevatorMovement.IDLE) {
@@ -492,12 +1188,12 @@ public class ElevatorService {
             switch (elevatorState.getCurrentDoorState()) {
                 case CLOSED:
                     log.info("Opening doors for current floor request");
-                    openDoorsCommand.executeCommand(elevatorState);
+                    openDoorsCommand.executeCommand(car);
                     break;
 
                 case OPEN:
                     log.info("Closing doors for current floor request");
-                    closeDoorsCommand.executeCommand(elevatorState);
+                    closeDoorsCommand.executeCommand(car);
                     break;
 
                 case OPENING:
@@ -506,7 +1202,7 @@ public class ElevatorService {
 
                 case CLOSING:
                     log.info("Doors closing - reopening for current floor request");
-                    openDoorsCommand.executeCommand(elevatorState);
+                    openDoorsCommand.executeCommand(car);
                     break;
             }
             return true;
@@ -3,23 +3,20 @@ package com.bluestaq.elevatorchallenge.service;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
 
 /**
- * Singleton elevator component that manages the elevator's state and behavior.
- * This class represents a single elevator with its current position, direction, and destinations.
+ * Per-car state that tracks a single elevator car's position, direction, door and timing information.
+ * One instance exists for every car in the {@link ElevatorBank}, the configuration values are populated
+ * by the bank when the car is created.
  * it is initialized at the ground floor ie floor 1
  * it will be in the idle state with the doors closed
  */
-
-@Component
 @Slf4j
 @Getter
 @Setter
 public class ElevatorState {
 
-    private final int id = 1;
+    private final int id;
     private int currentFloor = 1;
     private ElevatorDirection direction = ElevatorDirection.NONE;
     private ElevatorMovement currentMovementState = ElevatorMovement.IDLE;
@@ -34,19 +31,39 @@ public class ElevatorState {
     //tracker for starting movement operations
     private long movementOperationStartTimeMs = -1;
 
-    // Configuration injected from application.properties
-    @Value("${elevator.max-floor:20}")
+    //when the car ran out of work or was last looked at for parking, -1 while it is busy. cars start out idle
+    private long idleSinceMs = 0;
+
+    //last reading of the load weighing device in kg
+    private int loadKg = 0;
+
+    // Configuration values, the bank overrides these from application.properties
     private int maxFloor = 20;
 
-    @Value("${elevator.floor-travel-time:4000}")
     private long floorTravelTimeMs = 1000;
 
-    @Value("${elevator.door-operation-time:3000}")
+    // floors the car doesn't serve are passed at express speed
+    private long expressFloorTravelTimeMs = 1000;
+
+    // floors the car stops at in a zoned building, null when it serves every floor
+    private ElevatorZone zone;
+
     private long doorOperationTimeMs = 3000;
 
-    @Value("${elevator.door-wait-time:5000}")
     private long doorWaitTimeMs = 5000;
 
+    private int capacityKg = 1000;
+
+    // from this load on the car passes hall calls, there is no room left for the people waiting there
+    private int bypassLoadKg = 800;
+
+    public ElevatorState() {
+        this(1);
+    }
+
+    public ElevatorState(int id) {
+        this.id = id;
+    }
 
     // ==================== VALIDATION METHODS ====================
 
@@ -57,4 +74,52 @@ public class ElevatorState {
         return floor >= minFloor && floor <= maxFloor;
     }
 
+    /**
+     * Check if the car stops at a floor, in a zoned building it only serves the floors of its zone
+     */
+    public boolean servesFloor(int floor) {
+        return isValidFloor(floor) && (zone == null || zone.serves(floor));
+    }
+
+    public String getZoneName() {
+        return zone == null ? null : zone.name();
+    }
+
+    public int getLowestServedFloor() {
+        return zone == null ? minFloor : zone.floors().min();
+    }
+
+    public int getHighestServedFloor() {
+        return zone == null ? maxFloor : zone.floors().max();
+    }
+
+    /**
+     * Travel time of the hop that reaches a floor, a floor the car doesn't serve is passed on an express run
+     */
+    public long travelTimeToFloorMs(int floor) {
+        return zone == null || zone.serves(floor) ? floorTravelTimeMs : expressFloorTravelTimeMs;
+    }
+
+    /**
+     * Travel time between two floors without stopping
+     */
+    public long travelTimeMs(int fromFloor, int toFloor) {
+        if (zone == null) {
+            return Math.abs(toFloor - fromFloor) * floorTravelTimeMs;
+        }
+        long travelTime = 0;
+        int step = toFloor > fromFloor ? 1 : -1;
+        for (int floor = fromFloor; floor != toFloor; floor += step) {
+            travelTime += travelTimeToFloorMs(floor + step);
+        }
+        return travelTime;
+    }
+
+    /**
+     * Check if the car is too full to pick anybody up
+     */
+    public boolean isFull() {
+        return loadKg >= bypassLoadKg;
+    }
+
 }
@@ -0,0 +1,233 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deadline driven main loop of every bank in the {@link ElevatorPortfolio}. The cars are split over a fixed pool of
+ * control workers, car n goes to worker n modulo the pool size, so a bank's cars are spread over all of them. A
+ * worker is the only thread that ever writes to its cars. It applies the commands queued in a car's
+ * {@link ElevatorCommandMailbox}, asks the {@link ElevatorService} when the car's door or floor travel timer expires
+ * next, keeps that deadline in its {@link ElevatorTimingWheel} and sleeps until the next tick that has a timer. Only
+ * the cars whose timers expired are processed. A new command puts the car on the worker's ready queue and
+ * wakes the worker up early, so door transitions and floor arrivals happen on time, an idle car costs no CPU at all
+ * and thousands of cars need no more threads than there are cores.
+ * Not used in simulation mode, there the ElevatorSimulator drives the same loop on a virtual clock
+ */
+@Component
+@Profile("!simulation")
+@Slf4j
+public class ElevatorTickScheduler implements SmartLifecycle {
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorPortfolio portfolio;
+
+    @Autowired
+    Clock clock;
+
+    // commands applied per control cycle before the car gets ticked again
+    @Value("${elevator.mailbox.batch-size:64}")
+    int batchSize;
+
+    // size of the worker pool, 0 means one worker per core
+    @Value("${elevator.workers:0}")
+    int workerCount;
+
+    // granularity of the door and travel timers, a deadline fires up to one tick late
+    @Value("${elevator.timer.tick:10ms}")
+    Duration timerTick;
+
+    // buckets per timing wheel, a power of two
+    @Value("${elevator.timer.wheel-size:512}")
+    int wheelSize;
+
+    private volatile boolean running;
+    private final List<ControlWorker> workers = new ArrayList<>();
+
+    @PostConstruct
+    void assignCars() {
+        if (workerCount < 0) {
+            throw new IllegalArgumentException("Worker count can't be negative, configured: " + workerCount);
+        }
+        // fail on startup rather than in the worker threads
+        new ElevatorTimingWheel<>(timerTick.toMillis(), wheelSize, 0);
+        List<ElevatorCar> cars = portfolio.getCars();
+        int poolSize = Math.min(cars.size(), workerCount == 0 ? Runtime.getRuntime().availableProcessors() : workerCount);
+        for (int index = 0; index < poolSize; index++) {
+            workers.add(new ControlWorker(index));
+        }
+        for (int index = 0; index < cars.size(); index++) {
+            workers.get(index % poolSize).cars.add(cars.get(index));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (ControlWorker worker : workers) {
+            worker.thread = Thread.ofPlatform()
+                    .name("elevator-worker-" + worker.index)
+                    .daemon()
+                    .start(worker::run);
+        }
+        log.info("Elevator scheduler started {} control worker(s) for {} car(s)", workers.size(), portfolio.getCars().size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        // a finished thread has no CPU time anymore, so it is read while the workers are still alive
+        long[] cpuTimeNanos = new long[workers.size()];
+        for (ControlWorker worker : workers) {
+            cpuTimeNanos[worker.index] = getWorkerCpuTimeNanos(worker.index);
+            worker.thread.interrupt();
+        }
+        for (ControlWorker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.info("Control worker {} ran {} control cycle(s) of {} car(s) in {}ms of CPU", worker.index,
+                    worker.cycles, worker.cars.size(), cpuTimeNanos[worker.index] / 1_000_000);
+        }
+        log.info("Elevator scheduler stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    public int getWorkerCarCount(int worker) {
+        return workers.get(worker).cars.size();
+    }
+
+    public long getWorkerCycles(int worker) {
+        return workers.get(worker).cycles;
+    }
+
+    /**
+     * CPU time the worker thread used so far, -1 before it started or when the JVM can't measure thread CPU time
+     */
+    public long getWorkerCpuTimeNanos(int worker) {
+        Thread thread = workers.get(worker).thread;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (thread == null || !threads.isThreadCpuTimeSupported()) {
+            return -1;
+        }
+        return threads.getThreadCpuTime(thread.threadId());
+    }
+
+    // a car of a worker, only touched by the worker thread except for the ready flag
+    private static final class CarSlot {
+        private final ElevatorCar car;
+        // set while the car is on the ready queue, so a burst of commands queues it once
+        private final AtomicBoolean ready = new AtomicBoolean();
+        // the car's one timer on the worker's wheel, moved whenever the car's next deadline changes
+        private ElevatorTimingWheel.Timer<CarSlot> timer;
+
+        private CarSlot(ElevatorCar car) {
+            this.car = car;
+        }
+    }
+
+    private final class ControlWorker {
+        private final int index;
+        private final List<ElevatorCar> cars = new ArrayList<>();
+        private final ElevatorWakeUpSignal wakeUpSignal = new ElevatorWakeUpSignal();
+        private final Queue<CarSlot> readyCars = new ConcurrentLinkedQueue<>();
+        private ElevatorTimingWheel<CarSlot> timers;
+        private volatile Thread thread;
+        // only written by the worker thread
+        private volatile long cycles;
+
+        private ControlWorker(int index) {
+            this.index = index;
+        }
+
+        private void run() {
+            timers = new ElevatorTimingWheel<>(timerTick.toMillis(), wheelSize, clock.millis());
+            List<CarSlot> slots = cars.stream().map(CarSlot::new).toList();
+            for (CarSlot slot : slots) {
+                slot.timer = timers.newTimer(slot);
+                slot.car.getMailbox().bindControlThread(() -> markReady(slot));
+                // first cycle right away, a car restored from the journal may already have work
+                markReady(slot);
+            }
+
+            List<CarSlot> dueCars = new ArrayList<>();
+            try {
+                while (running) {
+                    // take the cars that are due now, whatever becomes due while they run waits for the next pass
+                    CarSlot slot;
+                    while ((slot = readyCars.poll()) != null) {
+                        slot.ready.set(false);
+                        dueCars.add(slot);
+                    }
+                    timers.advance(clock.millis(), dueCars::add);
+                    dueCars.forEach(this::runControlCycle);
+                    dueCars.clear();
+
+                    if (readyCars.isEmpty()) {
+                        long nextDeadline = timers.nextTickMs();
+                        log.trace("Worker {} sleeping until {}", index, nextDeadline);
+                        wakeUpSignal.awaitUntil(nextDeadline, clock);
+                    }
+                }
+            } finally {
+                slots.forEach(slot -> slot.car.getMailbox().unbindControlThread());
+            }
+        }
+
+        private void runControlCycle(CarSlot slot) {
+            ElevatorCar car = slot.car;
+            try {
+                // more commands waiting means go again on the next pass, after the other cars had their turn
+                if (elevatorService.runControlCycle(car, batchSize)) {
+                    markReady(slot);
+                }
+                // a reset dwell or a new floor moves the timer, a car with nothing to do takes it off the wheel
+                long deadline = elevatorService.getNextDeadlineMs(car);
+                if (deadline == Long.MAX_VALUE) {
+                    timers.cancel(slot.timer);
+                } else if (!slot.timer.isScheduled() || slot.timer.getDeadlineMs() != deadline) {
+                    timers.schedule(slot.timer, deadline);
+                }
+            } catch (RuntimeException e) {
+                // one broken car must not stop the other cars of the worker
+                log.error("Control cycle of car {} of bank {} failed: {}", car.getId(), car.getBank(), e.getMessage());
+            }
+            cycles++;
+        }
+
+        private void markReady(CarSlot slot) {
+            if (!slot.ready.getAndSet(true)) {
+                readyCars.offer(slot);
+                wakeUpSignal.signal();
+            }
+        }
+    }
+}
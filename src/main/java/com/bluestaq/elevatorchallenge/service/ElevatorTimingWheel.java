@@ -0,0 +1,166 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for the door and floor travel deadlines of many cars. Time is cut into ticks, a deadline goes
+ * into the bucket of its tick modulo the wheel size, and deadlines more than one rotation away wait out their
+ * remaining rounds in that bucket. Scheduling, moving and cancelling a timer is O(1) no matter how many cars are
+ * waiting, and advancing the clock only looks at the buckets of the ticks that passed.
+ *
+ * A deadline expires on the first tick boundary at or after it, so never early and at most one tick late.
+ * Every timer is created once per car and reused, rescheduling a car allocates nothing.
+ * Not thread safe, a wheel belongs to the one control worker that drives its cars
+ */
+public class ElevatorTimingWheel<T> {
+
+    private final long tickMs;
+    private final int mask;
+    private final Timer<T>[] buckets;
+    private final List<Timer<T>> expired = new ArrayList<>();
+    // first tick that has not been processed yet
+    private long currentTick;
+    private int size;
+
+    /**
+     * A reusable timer of one task, scheduled in at most one bucket at a time
+     */
+    public static final class Timer<T> {
+        private final T task;
+        private long deadlineMs;
+        private long remainingRounds;
+        // -1 while not scheduled
+        private int bucket = -1;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(T task) {
+            this.task = task;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        public boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    /**
+     * Create a wheel of wheelSize buckets of tickMs each, wheelSize has to be a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public ElevatorTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Timer tick must be positive, was " + tickMs + "ms");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Timer wheel size must be a power of two, was " + wheelSize);
+        }
+        this.tickMs = tickMs;
+        this.mask = wheelSize - 1;
+        this.buckets = (Timer<T>[]) new Timer[wheelSize];
+        this.currentTick = startMs / tickMs;
+    }
+
+    public Timer<T> newTimer(T task) {
+        return new Timer<>(task);
+    }
+
+    /**
+     * Schedule the timer for a deadline, moving it if it was already scheduled. A deadline in the past expires on
+     * the next tick
+     */
+    public void schedule(Timer<T> timer, long deadlineMs) {
+        cancel(timer);
+        // first tick boundary at or after the deadline, but never a tick that was already processed
+        long tick = Math.max(Math.ceilDiv(deadlineMs, tickMs), currentTick);
+        timer.deadlineMs = deadlineMs;
+        timer.remainingRounds = (tick - currentTick) / buckets.length;
+        timer.bucket = (int) (tick & mask);
+        timer.next = buckets[timer.bucket];
+        if (timer.next != null) {
+            timer.next.previous = timer;
+        }
+        buckets[timer.bucket] = timer;
+        size++;
+    }
+
+    /**
+     * Take the timer off the wheel, does nothing if it isn't scheduled
+     */
+    public void cancel(Timer<T> timer) {
+        if (!timer.isScheduled()) {
+            return;
+        }
+        if (timer.previous == null) {
+            buckets[timer.bucket] = timer.next;
+        } else {
+            timer.previous.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.previous = null;
+        timer.next = null;
+        timer.bucket = -1;
+        size--;
+    }
+
+    /**
+     * Process every tick up to now and hand the task of each expired timer to the consumer. The timers are off the
+     * wheel before the consumer sees them, so it can schedule them again right away
+     */
+    public void advance(long nowMs, Consumer<T> onExpired) {
+        long lastTick = Math.floorDiv(nowMs, tickMs);
+        if (size == 0) {
+            // nothing can expire, skip the empty ticks of a long sleep
+            currentTick = Math.max(currentTick, lastTick + 1);
+            return;
+        }
+        for (; currentTick <= lastTick; currentTick++) {
+            Timer<T> timer = buckets[(int) (currentTick & mask)];
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                if (timer.remainingRounds == 0) {
+                    cancel(timer);
+                    expired.add(timer);
+                } else {
+                    timer.remainingRounds--;
+                }
+                timer = next;
+            }
+        }
+        for (Timer<T> timer : expired) {
+            onExpired.accept(timer.task);
+        }
+        expired.clear();
+    }
+
+    /**
+     * Epoch ms of the next tick that has a timer in its bucket, Long.MAX_VALUE if the wheel is empty. A bucket may
+     * only hold timers of a later rotation, so this is when to look again, not always when something expires
+     */
+    public long nextTickMs() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        for (int offset = 0; offset <= mask; offset++) {
+            if (buckets[(int) ((currentTick + offset) & mask)] != null) {
+                return (currentTick + offset) * tickMs;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free wake up signal between the REST request threads and the control thread of one elevator car.
+ * Request threads call {@link #signal()} after queueing a command, the control thread sleeps in
+ * {@link #awaitUntil(long, Clock)} until either its next deadline or the next signal, whichever comes first.
+ * A signal sent while the control thread is busy is remembered, so the car never misses a command.
+ */
+public class ElevatorWakeUpSignal {
+
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private volatile Thread waitingThread;
+
+    /**
+     * Wake the control thread up, cheap enough to call on every request
+     */
+    public void signal() {
+        if (!signalled.getAndSet(true)) {
+            Thread waiter = waitingThread;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Park the calling thread until the deadline (epoch ms of the given clock) passes or a signal arrives.
+     * Clears the signal on return
+     */
+    public void awaitUntil(long deadlineMs, Clock clock) {
+        waitingThread = Thread.currentThread();
+        try {
+            while (!signalled.get() && !Thread.currentThread().isInterrupted()) {
+                long remainingMs = deadlineMs - clock.millis();
+                if (remainingMs <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remainingMs));
+            }
+        } finally {
+            signalled.set(false);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.bluestaq.elevatorchallenge.service;
+
+/**
+ * Floors a group of cars serves in a tall building, like the low-rise, mid-rise and high-rise zones of a tower.
+ * A zone is any set of floors, a high-rise zone serves the lobby and its own floors and runs express through the
+ * floors in between, a shuttle between the lobby and a sky lobby serves just those two floors.
+ *
+ * Written as "name:floors" where floors is a comma separated list of floors and ranges, e.g. "high:1,41-60"
+ */
+public record ElevatorZone(String name, FloorBitSet floors) {
+
+    /**
+     * Parse a zone definition, every floor has to be inside of the building
+     */
+    public static ElevatorZone parse(String definition, int minFloor, int maxFloor) {
+        String[] parts = definition.split(":");
+        if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+            throw new IllegalArgumentException("Zone must look like name:floors, was: " + definition.trim());
+        }
+
+        FloorBitSet floors = new FloorBitSet(maxFloor);
+        for (String range : parts[1].split(",")) {
+            String[] bounds = range.split("-");
+            int first;
+            int last;
+            try {
+                first = Integer.parseInt(bounds[0].trim());
+                last = bounds.length == 2 ? Integer.parseInt(bounds[1].trim()) : first;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Zone " + parts[0].trim() + " has an invalid floor range: " + range.trim());
+            }
+            if (bounds.length > 2 || first > last || first < minFloor || last > maxFloor) {
+                throw new IllegalArgumentException("Zone " + parts[0].trim() + " has floors outside of the building: "
+                        + range.trim() + ", floors are " + minFloor + " to " + maxFloor);
+            }
+            for (int floor = first; floor <= last; floor++) {
+                floors.add(floor);
+            }
+        }
+        return new ElevatorZone(parts[0].trim(), floors);
+    }
+
+    public boolean serves(int floor) {
+        return floors.contains(floor);
+    }
+}
@@ -0,0 +1,232 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Primitive, allocation free set of floor numbers backed by 64 bit words. Each floor is one bit, so a tower with
+ * a few hundred floors fits in a handful of longs and no floor is ever boxed.
+ *
+ * "next requested floor above/below X" is answered with Long.numberOfTrailingZeros/numberOfLeadingZeros, which
+ * the JIT compiles down to single bit scan instructions, instead of walking every entry of a sorted set.
+ * Updates use compare and set on the individual words, so concurrent adds and removes never lose a floor.
+ */
+public class FloorBitSet {
+
+    // returned by the search methods when there is no matching floor
+    public static final int NO_FLOOR = -1;
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+
+    private final AtomicLongArray words;
+    private final int maxFloor;
+
+    /**
+     * Create a set that can hold the floors 0 to maxFloor (inclusive)
+     */
+    public FloorBitSet(int maxFloor) {
+        if (maxFloor < 0) {
+            throw new IllegalArgumentException("Max floor must not be negative, was " + maxFloor);
+        }
+        this.maxFloor = maxFloor;
+        this.words = new AtomicLongArray((maxFloor >>> WORD_SHIFT) + 1);
+    }
+
+    /**
+     * Add a floor, returns true if it was not already in the set
+     */
+    public boolean add(int floor) {
+        int index = wordIndex(floor);
+        long bit = 1L << floor;
+        long current;
+        do {
+            current = words.get(index);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, current, current | bit));
+        return true;
+    }
+
+    /**
+     * Remove a floor, returns true if it was in the set
+     */
+    public boolean remove(int floor) {
+        int index = wordIndex(floor);
+        long bit = 1L << floor;
+        long current;
+        do {
+            current = words.get(index);
+            if ((current & bit) == 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, current, current & ~bit));
+        return true;
+    }
+
+    /**
+     * Copy of the backing words, used to remember the content of the set at some point in time
+     */
+    public long[] toWords() {
+        long[] copy = new long[words.length()];
+        for (int index = 0; index < copy.length; index++) {
+            copy[index] = words.get(index);
+        }
+        return copy;
+    }
+
+    /**
+     * True if the set holds exactly the floors of a {@link #toWords()} copy, checked without allocating
+     */
+    public boolean hasSameFloors(long[] otherWords) {
+        if (otherWords.length != words.length()) {
+            return false;
+        }
+        for (int index = 0; index < otherWords.length; index++) {
+            if (words.get(index) != otherWords[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(int floor) {
+        if (floor < 0 || floor > maxFloor) {
+            return false;
+        }
+        return (words.get(floor >>> WORD_SHIFT) & (1L << floor)) != 0;
+    }
+
+    /**
+     * Closest floor strictly above the given floor, or NO_FLOOR
+     */
+    public int nextAbove(int floor) {
+        int start = floor + 1;
+        if (start > maxFloor) {
+            return NO_FLOOR;
+        }
+        start = Math.max(start, 0);
+
+        int index = start >>> WORD_SHIFT;
+        // mask off every bit below the start floor in the first word
+        long word = words.get(index) & (-1L << start);
+        while (true) {
+            if (word != 0) {
+                return (index << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length()) {
+                return NO_FLOOR;
+            }
+            word = words.get(index);
+        }
+    }
+
+    /**
+     * Closest floor strictly below the given floor, or NO_FLOOR
+     */
+    public int nextBelow(int floor) {
+        int start = floor - 1;
+        if (start < 0) {
+            return NO_FLOOR;
+        }
+        start = Math.min(start, maxFloor);
+
+        int index = start >>> WORD_SHIFT;
+        // mask off every bit above the start floor in the first word
+        long word = words.get(index) & (-1L >>> (WORD_MASK - (start & WORD_MASK)));
+        while (true) {
+            if (word != 0) {
+                return (index << WORD_SHIFT) + WORD_MASK - Long.numberOfLeadingZeros(word);
+            }
+            if (--index < 0) {
+                return NO_FLOOR;
+            }
+            word = words.get(index);
+        }
+    }
+
+    /**
+     * Lowest floor in the set, or NO_FLOOR when empty
+     */
+    public int min() {
+        return nextAbove(-1);
+    }
+
+    /**
+     * Highest floor in the set, or NO_FLOOR when empty
+     */
+    public int max() {
+        return nextBelow(maxFloor + 1);
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < words.length(); i++) {
+            if (words.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < words.length(); i++) {
+            size += Long.bitCount(words.get(i));
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+
+    /**
+     * Visit every floor in ascending order without allocating
+     */
+    public void forEach(IntConsumer action) {
+        for (int floor = min(); floor != NO_FLOOR; floor = nextAbove(floor)) {
+            action.accept(floor);
+        }
+    }
+
+    /**
+     * Floors in ascending order, for display and logging only
+     */
+    public List<Integer> toList() {
+        List<Integer> floors = new ArrayList<>(size());
+        forEach(floors::add);
+        return floors;
+    }
+
+    /**
+     * Floors in descending order, for display and logging only
+     */
+    public List<Integer> toDescendingList() {
+        List<Integer> floors = new ArrayList<>(size());
+        for (int floor = max(); floor != NO_FLOOR; floor = nextBelow(floor)) {
+            floors.add(floor);
+        }
+        return floors;
+    }
+
+    public int getMaxFloor() {
+        return maxFloor;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private int wordIndex(int floor) {
+        if (floor < 0 || floor > maxFloor) {
+            throw new IllegalArgumentException("Floor " + floor + " is outside of the range 0 to " + maxFloor);
+        }
+        return floor >>> WORD_SHIFT;
+    }
+}
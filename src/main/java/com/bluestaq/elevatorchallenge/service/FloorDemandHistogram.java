@@ -0,0 +1,81 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import java.time.Duration;
+
+/**
+ * Hall calls counted per floor and time of day slot, learned one call at a time. A slot that collected enough calls
+ * is halved, so old days fade out and the counts follow a building whose use changes without ever growing unbounded.
+ *
+ * Time of day is taken in UTC, the slots only have to line up from one day to the next.
+ * Calls are recorded from request threads and read from car threads, every method is synchronized
+ */
+class FloorDemandHistogram {
+
+    private static final long DAY_MS = Duration.ofDays(1).toMillis();
+
+    // calls a slot keeps before its counts are halved
+    private static final int MAX_SLOT_CALLS = 10_000;
+
+    private final long slotMs;
+    private final int[][] callsBySlot;
+    private final int[] slotTotals;
+
+    FloorDemandHistogram(int maxFloor, Duration slotLength) {
+        if (slotLength.isNegative() || slotLength.isZero() || slotLength.toMillis() > DAY_MS) {
+            throw new IllegalArgumentException("Demand time slot must be between 1ms and a day, was " + slotLength);
+        }
+        slotMs = slotLength.toMillis();
+        int slots = (int) ((DAY_MS + slotMs - 1) / slotMs);
+        callsBySlot = new int[slots][maxFloor + 1];
+        slotTotals = new int[slots];
+    }
+
+    /**
+     * Count a hall call, floors outside of the building are ignored
+     */
+    synchronized void record(int floor, long timeMs) {
+        int slot = slotOf(timeMs);
+        int[] calls = callsBySlot[slot];
+        if (floor < 0 || floor >= calls.length) {
+            return;
+        }
+        calls[floor]++;
+        if (++slotTotals[slot] > MAX_SLOT_CALLS) {
+            halve(slot);
+        }
+    }
+
+    /**
+     * Expected calls per floor around a time of day, the slot of the time counts in full and the slots on either
+     * side count half, so a prediction near the edge of a slot doesn't jump
+     *
+     * @return weights indexed by floor
+     */
+    synchronized double[] demandAround(long timeMs) {
+        int slot = slotOf(timeMs);
+        int slots = callsBySlot.length;
+        int[] current = callsBySlot[slot];
+        int[] previous = callsBySlot[(slot + slots - 1) % slots];
+        int[] next = callsBySlot[(slot + 1) % slots];
+
+        double[] demand = new double[current.length];
+        for (int floor = 0; floor < demand.length; floor++) {
+            demand[floor] = current[floor] + 0.5 * (previous[floor] + next[floor]);
+        }
+        return demand;
+    }
+
+    private int slotOf(long timeMs) {
+        return (int) (Math.floorMod(timeMs, DAY_MS) / slotMs);
+    }
+
+    private void halve(int slot) {
+        int total = 0;
+        int[] calls = callsBySlot[slot];
+        for (int floor = 0; floor < calls.length; floor++) {
+            calls[floor] /= 2;
+            total += calls[floor];
+        }
+        slotTotals[slot] = total;
+    }
+}
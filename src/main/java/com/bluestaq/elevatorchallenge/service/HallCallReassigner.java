@@ -0,0 +1,168 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps hall call assignments up to date while passengers wait. A car that looked best when the button was pressed
+ * can fall behind later, because it picked up more car calls or another car became idle close by. Every interval
+ * the waiting hall calls are costed again by the {@link ElevatorGroupDispatcher} and moved to a car that will be
+ * there clearly sooner. Calls of a car that gets emergency stopped are dispatched to the other cars right away.
+ * Calls only ever move between cars of the same bank, one thread looks after every bank of the portfolio.
+ *
+ * Calls are tracked from the car events, the moving happens on a thread of its own so a car thread never waits
+ * for another car. Not used in simulation mode, the simulated passengers stick with the car they were given
+ */
+@Component
+@Profile("!simulation")
+@Slf4j
+public class HallCallReassigner implements ElevatorEventListener, SmartLifecycle {
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorPortfolio portfolio;
+
+    @Autowired
+    ElevatorGroupDispatcher groupDispatcher;
+
+    @Autowired
+    Clock clock;
+
+    private static final ElevatorDirection[] HALL_DIRECTIONS = {ElevatorDirection.UP, ElevatorDirection.DOWN};
+
+    @Value("${elevator.dispatch.reassign-interval:1s}")
+    Duration reassignInterval;
+
+    // call time of the waiting hall calls by car and button, car ids repeat across banks
+    private final Map<ElevatorCar, Map<HallButton, Long>> pendingCalls = new ConcurrentHashMap<>();
+    // calls whose car was stopped before it got there
+    private final Queue<OrphanedHallCall> orphanedCalls = new ConcurrentLinkedQueue<>();
+    private final ElevatorWakeUpSignal wakeUpSignal = new ElevatorWakeUpSignal();
+
+    private volatile boolean running;
+    private Thread reassignThread;
+
+    // the UP and DOWN buttons of a floor are separate calls, one car can have both
+    private record HallButton(int floor, ElevatorDirection direction) {}
+
+    private record OrphanedHallCall(ElevatorBank bank, int floor, ElevatorDirection direction, String zoneName, long callTimeMs) {}
+
+    @PostConstruct
+    void register() {
+        portfolio.getCars().forEach(car -> pendingCalls.put(car, new ConcurrentHashMap<>()));
+        elevatorService.addEventListener(this);
+    }
+
+    @Override
+    public void onHallCallAssigned(ElevatorCar car, int floor, ElevatorDirection direction, long timeMs) {
+        pendingCalls.get(car).putIfAbsent(new HallButton(floor, direction), timeMs);
+    }
+
+    @Override
+    public void onHallCallWithdrawn(ElevatorCar car, int floor, ElevatorDirection direction) {
+        pendingCalls.get(car).remove(new HallButton(floor, direction));
+    }
+
+    @Override
+    public void onCarArrived(ElevatorCar car, int floor, long arrivalTimeMs) {
+        // a call the car passes on, or one it only stopped at for a car call, is still waiting
+        for (ElevatorDirection direction : HALL_DIRECTIONS) {
+            if (!car.getDestinationManager().isHallCallPending(floor, direction)) {
+                pendingCalls.get(car).remove(new HallButton(floor, direction));
+            }
+        }
+    }
+
+    @Override
+    public void onEmergencyStop(ElevatorCar car) {
+        Map<HallButton, Long> carCalls = pendingCalls.get(car);
+        String zoneName = car.getState().getZoneName();
+        carCalls.forEach((button, callTimeMs) -> orphanedCalls.add(
+                new OrphanedHallCall(car.getBank(), button.floor(), button.direction(), zoneName, callTimeMs)));
+        carCalls.clear();
+        wakeUpSignal.signal();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        reassignThread = Thread.ofPlatform()
+                .name("elevator-hall-call-reassigner")
+                .daemon()
+                .start(this::runReassignLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (reassignThread != null) {
+            reassignThread.interrupt();
+            try {
+                reassignThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runReassignLoop() {
+        while (running) {
+            wakeUpSignal.awaitUntil(clock.millis() + reassignInterval.toMillis(), clock);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                reassignHallCalls();
+            } catch (RuntimeException e) {
+                log.error("Could not reassign hall calls: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One pass over every waiting hall call, dispatches orphaned calls first as they have no car at all
+     */
+    void reassignHallCalls() {
+        int orphanCount = orphanedCalls.size();
+        for (int i = 0; i < orphanCount; i++) {
+            OrphanedHallCall call = orphanedCalls.poll();
+            try {
+                int carId = elevatorService.redispatchHallCall(call.bank(), call.floor(), call.direction(), call.zoneName(), call.callTimeMs());
+                log.info("Hall call floor {} {} of a stopped car of bank {} dispatched to car {}", call.floor(), call.direction(),
+                        call.bank(), carId);
+            } catch (RuntimeException e) {
+                // every car is stopped, try again on the next pass
+                orphanedCalls.add(call);
+            }
+        }
+
+        for (ElevatorCar car : portfolio.getCars()) {
+            pendingCalls.get(car).forEach((button, callTimeMs) -> {
+                ElevatorCar betterCar = groupDispatcher.findBetterCar(car, button.floor(), button.direction(), car.getBank().getCars());
+                if (betterCar != null) {
+                    elevatorService.reassignHallCall(car.getBank(), car.getId(), betterCar.getId(), button.floor(),
+                            button.direction(), callTimeMs);
+                }
+            });
+        }
+    }
+}
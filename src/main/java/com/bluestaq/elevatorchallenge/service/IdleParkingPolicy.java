@@ -0,0 +1,219 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides where a car that ran out of work waits for the next hall call. Every hall call is counted in a
+ * {@link FloorDemandHistogram} by floor and time of day. Once a car has been idle for a while it is sent to the floor
+ * that minimises the expected distance to the next call, given where the other waiting cars of the bank already are.
+ * The first idle car covers the busiest part of the building, the next one the part the first car is far from, so
+ * parked cars spread over the building instead of bunching at the same floor.
+ *
+ * A car only moves when it saves at least a floor of travel per expected call, so it doesn't wander around while it
+ * waits. A waiting car is looked at again every idle delay, when one of the parked cars is taken away by a call the
+ * others spread out again.
+ *
+ * The {@link TrafficMode} of the bank overrides the learned demand: in up-peak every idle car goes straight back to
+ * the lobby, in down-peak idle cars spread over the upper half of the building.
+ * A car of a zone only parks at floors of its zone and only spreads out against the other cars of its zone
+ */
+@Component
+@Slf4j
+public class IdleParkingPolicy {
+
+    // expected floors of travel saved per call before moving a car is worth it
+    private static final double MIN_SAVED_FLOORS = 1.0;
+
+    @Value("${elevator.parking.enabled:true}")
+    boolean enabled;
+
+    // how long a car waits where it stopped before it is parked, and how often a waiting car is looked at again
+    @Value("${elevator.parking.idle-delay:20s}")
+    Duration idleDelay;
+
+    @Value("${elevator.parking.time-slot:15m}")
+    Duration timeSlot;
+
+    // calls needed around the time of day before the learned demand is trusted
+    @Value("${elevator.parking.min-calls:20}")
+    int minCalls;
+
+    // every bank learns the demand of its own floors
+    private final Map<ElevatorBank, FloorDemandHistogram> demandByBank = new ConcurrentHashMap<>();
+    // cars of a bank claim their floors one at a time, banks never share a floor so they don't wait for each other
+    private final Map<ElevatorBank, Object> parkingLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Learn from a hall call, every press counts even when the car was already waiting at the floor
+     */
+    public void recordHallCall(ElevatorBank bank, int floor, long timeMs) {
+        if (enabled) {
+            demandByBank.computeIfAbsent(bank, newBank -> new FloorDemandHistogram(newBank.getMaxFloor(), timeSlot))
+                    .record(floor, timeMs);
+        }
+    }
+
+    /**
+     * Epoch ms at which an idle car should be looked at for parking, Long.MAX_VALUE if it isn't waiting for that
+     */
+    long parkingDeadlineMs(ElevatorState elevatorState, TrafficMode trafficMode) {
+        long idleSince = elevatorState.getIdleSinceMs();
+        if (idleSince < 0) {
+            return Long.MAX_VALUE;
+        }
+        return switch (trafficMode) {
+            // the next load of passengers is already waiting at the lobby
+            case UP_PEAK -> elevatorState.getCurrentFloor() == TrafficModeDetector.LOBBY_FLOOR
+                    || !elevatorState.servesFloor(TrafficModeDetector.LOBBY_FLOOR)
+                    ? idleSince + idleDelay.toMillis() : idleSince;
+            case DOWN_PEAK -> idleSince + idleDelay.toMillis();
+            case NORMAL -> enabled ? idleSince + idleDelay.toMillis() : Long.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Pick the floor an idle car should wait at and queue it as the car's parking stop. Runs on the car's thread, the
+     * other cars are only looked at through their snapshots and parking floors. The cars of a bank decide one at a
+     * time, so two cars that become idle together never claim the same floor
+     *
+     * @return the floor the car parks at, or NO_DESTINATION if it should stay where it is
+     */
+    int claimParkingFloor(ElevatorCar car, List<ElevatorCar> cars, long nowMs, TrafficMode trafficMode) {
+        synchronized (parkingLocks.computeIfAbsent(car.getBank(), bank -> new Object())) {
+            return claimParkingFloorOfBank(car, cars, nowMs, trafficMode);
+        }
+    }
+
+    private int claimParkingFloorOfBank(ElevatorCar car, List<ElevatorCar> cars, long nowMs, TrafficMode trafficMode) {
+        ElevatorState elevatorState = car.getState();
+        // a zone that doesn't reach the lobby has no part in up-peak
+        if (trafficMode == TrafficMode.UP_PEAK && !elevatorState.servesFloor(TrafficModeDetector.LOBBY_FLOOR)) {
+            trafficMode = TrafficMode.NORMAL;
+        }
+        int parkingFloor = switch (trafficMode) {
+            case UP_PEAK -> elevatorState.getCurrentFloor() == TrafficModeDetector.LOBBY_FLOOR
+                    ? ElevatorDestinationManager.NO_DESTINATION : TrafficModeDetector.LOBBY_FLOOR;
+            case DOWN_PEAK -> bestFloorInUpperHalf(car, cars, nowMs);
+            case NORMAL -> bestFloor(car, cars, learnedDemand(car, nowMs, elevatorState.getLowestServedFloor()),
+                    elevatorState.getLowestServedFloor());
+        };
+
+        if (parkingFloor != ElevatorDestinationManager.NO_DESTINATION) {
+            car.getDestinationManager().parkAt(parkingFloor, elevatorState.getCurrentFloor());
+        }
+        return parkingFloor;
+    }
+
+    // the learned demand of the upper floors the car serves, every one of them counts the same until enough calls came in
+    private int bestFloorInUpperHalf(ElevatorCar car, List<ElevatorCar> cars, long nowMs) {
+        ElevatorState elevatorState = car.getState();
+        int lowestFloor = (elevatorState.getLowestServedFloor() + elevatorState.getHighestServedFloor() + 1) / 2;
+        double[] floorDemand = learnedDemand(car, nowMs, lowestFloor);
+        if (floorDemand == null) {
+            floorDemand = new double[elevatorState.getMaxFloor() + 1];
+            for (int floor = lowestFloor; floor <= elevatorState.getMaxFloor(); floor++) {
+                floorDemand[floor] = elevatorState.servesFloor(floor) ? 1 : 0;
+            }
+        }
+        return bestFloor(car, cars, floorDemand, lowestFloor);
+    }
+
+    // demand per served floor from the lowest floor up, or null while too few calls came in around this time of day
+    private double[] learnedDemand(ElevatorCar car, long nowMs, int lowestFloor) {
+        FloorDemandHistogram demand = demandByBank.get(car.getBank());
+        if (!enabled || demand == null) {
+            return null;
+        }
+        ElevatorState elevatorState = car.getState();
+        double[] floorDemand = demand.demandAround(nowMs);
+        double totalDemand = 0;
+        for (int floor = 0; floor < floorDemand.length; floor++) {
+            if (floor < lowestFloor || !elevatorState.servesFloor(floor)) {
+                floorDemand[floor] = 0;
+            }
+            totalDemand += floorDemand[floor];
+        }
+        return totalDemand < minCalls ? null : floorDemand;
+    }
+
+    // the floor from lowestFloor up that brings the car closest to the expected calls, if moving there is worth it
+    private int bestFloor(ElevatorCar car, List<ElevatorCar> cars, double[] floorDemand, int lowestFloor) {
+        if (floorDemand == null) {
+            return ElevatorDestinationManager.NO_DESTINATION;
+        }
+        double totalDemand = 0;
+        for (double calls : floorDemand) {
+            totalDemand += calls;
+        }
+
+        List<Integer> otherCarFloors = waitingFloorsOfOtherCars(car, cars);
+        ElevatorState elevatorState = car.getState();
+        int currentFloor = elevatorState.getCurrentFloor();
+        double currentCost = expectedDistance(floorDemand, currentFloor, otherCarFloors);
+
+        int bestFloor = currentFloor;
+        double bestCost = currentCost;
+        for (int floor = lowestFloor; floor <= elevatorState.getMaxFloor(); floor++) {
+            if (!elevatorState.servesFloor(floor)) {
+                continue;
+            }
+            double cost = expectedDistance(floorDemand, floor, otherCarFloors);
+            // ties go to the floor closer to the car
+            if (cost < bestCost || (cost == bestCost && Math.abs(floor - currentFloor) < Math.abs(bestFloor - currentFloor))) {
+                bestCost = cost;
+                bestFloor = floor;
+            }
+        }
+
+        if (bestFloor == currentFloor || (currentCost - bestCost) / totalDemand < MIN_SAVED_FLOORS) {
+            return ElevatorDestinationManager.NO_DESTINATION;
+        }
+        log.debug("Car {} parks at floor {}, expected distance to the next call {} -> {} floors", car.getId(), bestFloor,
+                String.format("%.1f", currentCost / totalDemand), String.format("%.1f", bestCost / totalDemand));
+        return bestFloor;
+    }
+
+    // cars that are parked, on their way to park or idle without work cover the calls close to them, busy cars don't.
+    // Cars of another zone don't take the calls of this one
+    private static List<Integer> waitingFloorsOfOtherCars(ElevatorCar car, List<ElevatorCar> cars) {
+        List<Integer> floors = new ArrayList<>();
+        for (ElevatorCar otherCar : cars) {
+            if (otherCar == car || otherCar.getState().getZone() != car.getState().getZone()) {
+                continue;
+            }
+            int parkingFloor = otherCar.getDestinationManager().getParkingFloor();
+            ElevatorDTO snapshot = otherCar.getSnapshot();
+            if (parkingFloor != ElevatorDestinationManager.NO_DESTINATION) {
+                floors.add(parkingFloor);
+            } else if (snapshot.state() == ElevatorMovement.IDLE && snapshot.destinationFloors().isEmpty()) {
+                floors.add(snapshot.currentFloor());
+            }
+        }
+        return floors;
+    }
+
+    // demand weighted distance from every floor to the closest waiting car, with this car at the candidate floor
+    private static double expectedDistance(double[] floorDemand, int candidateFloor, List<Integer> otherCarFloors) {
+        double cost = 0;
+        for (int floor = 0; floor < floorDemand.length; floor++) {
+            if (floorDemand[floor] == 0) {
+                continue;
+            }
+            int distance = Math.abs(floor - candidateFloor);
+            for (int otherFloor : otherCarFloors) {
+                distance = Math.min(distance, Math.abs(floor - otherFloor));
+            }
+            cost += floorDemand[floor] * distance;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,11 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A command that was queued in a car's mailbox. carId is the car it was queued for, for a hall call the car the
+ * dispatcher picked. applied completes once the car's control thread has applied the command, or exceptionally
+ * with whatever the command threw
+ */
+public record PendingCommand(int carId, CompletableFuture<Void> applied) {
+}
@@ -0,0 +1,14 @@
+package com.bluestaq.elevatorchallenge.service;
+
+/**
+ * Operating mode of the bank, picked by the {@link TrafficModeDetector} from the recent calls
+ */
+public enum TrafficMode {
+
+    // no dominant flow, idle cars park by the learned demand of each floor
+    NORMAL,
+    // people entering the building, idle cars go back to the lobby and fill up there
+    UP_PEAK,
+    // people leaving the building, idle cars wait high up where the calls come from
+    DOWN_PEAK
+}
@@ -0,0 +1,173 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifies the recent calls of the building into a {@link TrafficMode}. Every hall call and car call of the last
+ * window is kept with what it says about the traffic: an UP call at the lobby or a car call pressed at the lobby is
+ * somebody entering the building, a DOWN call above the lobby or a car call to the lobby is somebody leaving it.
+ * When most of the window is people entering the bank runs in up-peak, when most of it is people leaving in down-peak.
+ * Either way the flow also has to clearly outweigh the flow the other way, lunch time has plenty of both and is no
+ * peak. A mode is only left once its share has dropped well below the threshold again, so the bank doesn't flap
+ * between modes when the traffic sits right on the edge.
+ *
+ * In up-peak idle cars return to the lobby straight away and keep their doors open longer there, in down-peak idle
+ * cars park in the upper half of the building, see {@link IdleParkingPolicy}.
+ *
+ * Every bank has its own window. Calls are recorded from request and car threads, the window of a bank is
+ * synchronized on its own
+ */
+@Component
+@Slf4j
+public class TrafficModeDetector {
+
+    // no basements, the lobby is the ground floor
+    public static final int LOBBY_FLOOR = 1;
+
+    // share of the calls in the window that switches a mode on, and the share it has to drop below to switch off
+    private static final double ENTER_SHARE = 0.6;
+    private static final double EXIT_SHARE = 0.4;
+    // how many times the flow the other way the peak flow has to be, to switch a mode on and to keep it
+    private static final double ENTER_DOMINANCE = 3.0;
+    private static final double EXIT_DOMINANCE = 2.0;
+
+    @Value("${elevator.traffic-mode.enabled:true}")
+    boolean enabled;
+
+    @Value("${elevator.traffic-mode.window:5m}")
+    Duration window;
+
+    // calls needed in the window before anything but normal traffic is detected
+    @Value("${elevator.traffic-mode.min-calls:12}")
+    int minCalls;
+
+    // how long a car keeps its doors open at the lobby during up-peak
+    @Value("${elevator.traffic-mode.lobby-dwell:8s}")
+    Duration lobbyDwell;
+
+    // the traffic of every bank is classified on its own, a shuttle bank doesn't see the calls of the office floors
+    private final Map<ElevatorBank, BankTraffic> trafficByBank = new ConcurrentHashMap<>();
+
+    private record WindowedCall(long timeMs, boolean incoming, boolean outgoing) {}
+
+    /**
+     * Count a hall call pressed on a floor
+     */
+    public void recordHallCall(ElevatorBank bank, int floor, ElevatorDirection direction, long timeMs) {
+        if (enabled) {
+            trafficOf(bank).record(timeMs, floor == LOBBY_FLOOR && direction == ElevatorDirection.UP,
+                    floor != LOBBY_FLOOR && direction == ElevatorDirection.DOWN);
+        }
+    }
+
+    /**
+     * Count a car call, fromFloor is where the car stood when the button was pressed
+     */
+    public void recordCarCall(ElevatorBank bank, int fromFloor, int toFloor, long timeMs) {
+        if (enabled) {
+            trafficOf(bank).record(timeMs, fromFloor == LOBBY_FLOOR && toFloor != LOBBY_FLOOR,
+                    toFloor == LOBBY_FLOOR && fromFloor != LOBBY_FLOOR);
+        }
+    }
+
+    /**
+     * The mode the bank should run in now. Calls that left the window are dropped first, so a building that went
+     * quiet falls back to normal without waiting for the next call
+     */
+    public TrafficMode getMode(ElevatorBank bank, long nowMs) {
+        if (!enabled) {
+            return TrafficMode.NORMAL;
+        }
+        BankTraffic traffic = trafficByBank.get(bank);
+        return traffic == null ? TrafficMode.NORMAL : traffic.getMode(nowMs);
+    }
+
+    /**
+     * How long a car stopped at a floor keeps its doors open, longer at the lobby during up-peak so it leaves full
+     */
+    long doorWaitTimeMs(ElevatorCar car, long nowMs) {
+        ElevatorState elevatorState = car.getState();
+        if (elevatorState.getCurrentFloor() == LOBBY_FLOOR && getMode(car.getBank(), nowMs) == TrafficMode.UP_PEAK) {
+            return Math.max(elevatorState.getDoorWaitTimeMs(), lobbyDwell.toMillis());
+        }
+        return elevatorState.getDoorWaitTimeMs();
+    }
+
+    private BankTraffic trafficOf(ElevatorBank bank) {
+        return trafficByBank.computeIfAbsent(bank, BankTraffic::new);
+    }
+
+    // the calls of one bank's window, calls are recorded from request and car threads
+    private final class BankTraffic {
+        private final ElevatorBank bank;
+        private final Deque<WindowedCall> calls = new ArrayDeque<>();
+        private int incomingCalls;
+        private int outgoingCalls;
+        private TrafficMode mode = TrafficMode.NORMAL;
+
+        private BankTraffic(ElevatorBank bank) {
+            this.bank = bank;
+        }
+
+        synchronized TrafficMode getMode(long nowMs) {
+            evictBefore(nowMs - window.toMillis());
+            classify();
+            return mode;
+        }
+
+        synchronized void record(long timeMs, boolean incoming, boolean outgoing) {
+            calls.addLast(new WindowedCall(timeMs, incoming, outgoing));
+            incomingCalls += incoming ? 1 : 0;
+            outgoingCalls += outgoing ? 1 : 0;
+            evictBefore(timeMs - window.toMillis());
+            classify();
+        }
+
+        private void evictBefore(long oldestTimeMs) {
+            while (!calls.isEmpty() && calls.peekFirst().timeMs() < oldestTimeMs) {
+                WindowedCall call = calls.removeFirst();
+                incomingCalls -= call.incoming() ? 1 : 0;
+                outgoingCalls -= call.outgoing() ? 1 : 0;
+            }
+        }
+
+        private void classify() {
+            TrafficMode newMode = mode;
+            if (calls.size() < minCalls) {
+                newMode = TrafficMode.NORMAL;
+            } else {
+                double incomingShare = (double) incomingCalls / calls.size();
+                double outgoingShare = (double) outgoingCalls / calls.size();
+                if (mode == TrafficMode.UP_PEAK && !dominates(incomingShare, outgoingShare, EXIT_SHARE, EXIT_DOMINANCE)
+                        || mode == TrafficMode.DOWN_PEAK && !dominates(outgoingShare, incomingShare, EXIT_SHARE, EXIT_DOMINANCE)) {
+                    newMode = TrafficMode.NORMAL;
+                }
+                if (newMode == TrafficMode.NORMAL) {
+                    if (dominates(incomingShare, outgoingShare, ENTER_SHARE, ENTER_DOMINANCE)) {
+                        newMode = TrafficMode.UP_PEAK;
+                    } else if (dominates(outgoingShare, incomingShare, ENTER_SHARE, ENTER_DOMINANCE)) {
+                        newMode = TrafficMode.DOWN_PEAK;
+                    }
+                }
+            }
+
+            if (newMode != mode) {
+                log.info("Traffic mode of bank {} changed from {} to {}, {} call(s) in the last {}: {} entering and {} leaving the building",
+                        bank, mode, newMode, calls.size(), window, incomingCalls, outgoingCalls);
+                mode = newMode;
+            }
+        }
+    }
+
+    private static boolean dominates(double share, double oppositeShare, double minShare, double minDominance) {
+        return share >= minShare && share >= minDominance * oppositeShare;
+    }
+}
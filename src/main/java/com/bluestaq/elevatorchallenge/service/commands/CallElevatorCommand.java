@@ -1,44 +1,39 @@
 package com.bluestaq.elevatorchallenge.service.commands;
 
 import com.bluestaq.elevatorchallenge.service.*;
-import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 
 /**
  * Command to press a direction button on specified floor. handles elevator queue logic based
- * on the passed in direction
+ * on the passed in direction. The car passed in is the one the group dispatcher assigned to the call
+ *
+ * Immutable value object created for every request, the direction is validated once on construction
  */
-@Component
 @Slf4j
-public class CallElevatorCommand implements ElevatorCommand {
-
-    @Autowired
-    private ElevatorDestinationManager destinationManager;
-
-    @Getter
-    @Setter
-    private int targetFloor;
-
-    @Getter
-    @Setter
-    private ElevatorDirection requestedDirection;
+public record CallElevatorCommand(int targetFloor, ElevatorDirection requestedDirection) implements ElevatorCommand {
 
+    public CallElevatorCommand {
+        // NONE direction not allowed
+        if (requestedDirection == null || requestedDirection == ElevatorDirection.NONE) {
+            throw new IllegalArgumentException("Cannot request direction NONE from elevator");
+        }
+    }
 
     @Override
-    public boolean executeCommand(ElevatorState state) {
-        log.info("Executing Call Elevator request: Floor {} {}", targetFloor, requestedDirection);
+    public boolean executeCommand(ElevatorCar car) {
+        log.debug("Executing Call Elevator request: Floor {} {} on car {}", targetFloor, requestedDirection, car.getId());
+        ElevatorState state = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
 
         //validate we can execute a floor command in the current state
-        if (!canExecuteCommand(state)) {
+        if (!canExecuteCommand(car)) {
             throw new IllegalArgumentException("Cannot press floor button " + targetFloor + " in current elevator state");
         }
 
-        // Don't add to destinations list if already at target floor
-        if (targetFloor == state.getCurrentFloor()) {
+        // Don't add to destinations list if already at target floor. A moving car has just left its current floor,
+        // it has to come back for the call
+        if (targetFloor == state.getCurrentFloor() && state.getCurrentMovementState() != ElevatorMovement.MOVING) {
             log.info("Already at floor {}, movement action ignored", targetFloor);
             return true;
         }
@@ -46,23 +41,26 @@ public class CallElevatorCommand implements ElevatorCommand {
         // Add to destination manager using explicit direction
         boolean destinationAdded = destinationManager.addFloorRequestWithDirection(targetFloor, requestedDirection, state);
 
-        if (destinationAdded) {
-            log.info("Floor {} button pressed successfully. Current Destinations: {}", targetFloor, destinationManager.getAllDestinations());
-            return true;
-        } else {
-            log.error("Failed to add floor {} to destinations", targetFloor);
-            return false;
+        if (!destinationAdded) {
+            // a repeated press of a lit button, nothing to do
+            log.debug("Floor {} already requested in car {}", targetFloor, car.getId());
         }
+        return destinationAdded;
     }
 
     @Override
-    public boolean canExecuteCommand(ElevatorState state) {
+    public boolean canExecuteCommand(ElevatorCar car) {
+        ElevatorState state = car.getState();
         // Validate floor is in range
         if (!state.isValidFloor(targetFloor)) {
             log.warn("Invalid floor {}: must be between {} and {}",
                     targetFloor, state.getMinFloor(), state.getMaxFloor());
             return false;
         }
+        if (!state.servesFloor(targetFloor)) {
+            log.warn("Floor {} is not served by car {}", targetFloor, car.getId());
+            return false;
+        }
         // Validate direction makes sense for floor
         if (!isValidDirectionForCallingFloor(state)) {
             return false;
@@ -91,11 +89,6 @@ public class CallElevatorCommand implements ElevatorCommand {
             return false;
         }
 
-        // NONE direction not allowed
-        if (requestedDirection == ElevatorDirection.NONE) {
-            throw new IllegalArgumentException("Cannot request direction NONE from elevator");
-        }
-
         return true;
     }
 
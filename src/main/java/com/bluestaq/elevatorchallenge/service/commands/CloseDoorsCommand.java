@@ -1,6 +1,7 @@
 package com.bluestaq.elevatorchallenge.service.commands;
 
 
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
 import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
 import com.bluestaq.elevatorchallenge.service.ElevatorState;
 import com.bluestaq.elevatorchallenge.service.SafetyValidator;
@@ -8,6 +9,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+
 @Slf4j
 @Component
 public class CloseDoorsCommand implements ElevatorCommand {
@@ -15,9 +18,13 @@ public class CloseDoorsCommand implements ElevatorCommand {
     @Autowired
     SafetyValidator safetyValidator;
 
+    @Autowired
+    Clock clock;
+
 
     @Override
-    public boolean executeCommand(ElevatorState state) {
+    public boolean executeCommand(ElevatorCar car) {
+        ElevatorState state = car.getState();
 
         // Quick exit if doors already closed
         if (state.getCurrentDoorState() == ElevatorDoor.CLOSED) {
@@ -26,9 +33,9 @@ public class CloseDoorsCommand implements ElevatorCommand {
         }
 
         //Validate and then execute the door closing procedure
-        if(canExecuteCommand(state)) {
+        if(canExecuteCommand(car)) {
             state.setCurrentDoorState(ElevatorDoor.CLOSING);
-            state.setDoorOperationStartTimeMs(System.currentTimeMillis());
+            state.setDoorOperationStartTimeMs(clock.millis());
             log.info("Door closing initiated at floor {}", state.getCurrentFloor());
             return true;
         }
@@ -39,8 +46,8 @@ public class CloseDoorsCommand implements ElevatorCommand {
     }
 
     @Override
-    public boolean canExecuteCommand(ElevatorState state) {
-        return safetyValidator.canCloseDoors(state);
+    public boolean canExecuteCommand(ElevatorCar car) {
+        return safetyValidator.canCloseDoors(car.getState());
     }
 
 }
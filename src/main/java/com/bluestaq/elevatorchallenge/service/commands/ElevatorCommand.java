@@ -1,10 +1,10 @@
 package com.bluestaq.elevatorchallenge.service.commands;
 
-import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
 
-//elevator command interface grouping similar functionality of a command
+//elevator command interface grouping similar functionality of a command, every command targets a single car
 public interface ElevatorCommand {
 
-    boolean executeCommand(ElevatorState elevator);
-    boolean canExecuteCommand(ElevatorState elevator);
+    boolean executeCommand(ElevatorCar car);
+    boolean canExecuteCommand(ElevatorCar car);
 }
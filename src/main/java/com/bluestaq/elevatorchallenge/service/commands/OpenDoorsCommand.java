@@ -1,6 +1,7 @@
 package com.bluestaq.elevatorchallenge.service.commands;
 
 
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
 import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
 import com.bluestaq.elevatorchallenge.service.ElevatorState;
 import com.bluestaq.elevatorchallenge.service.SafetyValidator;
@@ -8,6 +9,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+
  @Slf4j
  @Component
  public class OpenDoorsCommand implements ElevatorCommand {
@@ -15,8 +18,12 @@ import org.springframework.stereotype.Component;
     @Autowired
     SafetyValidator safetyValidator;
 
+    @Autowired
+    Clock clock;
+
     @Override
-    public boolean executeCommand(ElevatorState state) {
+    public boolean executeCommand(ElevatorCar car) {
+        ElevatorState state = car.getState();
 
         // Quick exit if doors already open
         if (state.getCurrentDoorState() == ElevatorDoor.OPEN) {
@@ -25,9 +32,9 @@ import org.springframework.stereotype.Component;
         }
 
         //validate and execute the door Opening procedure
-        if(canExecuteCommand(state)) {
+        if(canExecuteCommand(car)) {
             state.setCurrentDoorState(ElevatorDoor.OPENING);
-            state.setDoorOperationStartTimeMs(System.currentTimeMillis());
+            state.setDoorOperationStartTimeMs(clock.millis());
             log.info("Door opening initiated at floor {}", state.getCurrentFloor());
             return true;
         }
@@ -39,9 +46,9 @@ import org.springframework.stereotype.Component;
     }
 
     @Override
-    public boolean canExecuteCommand(ElevatorState state) {
+    public boolean canExecuteCommand(ElevatorCar car) {
 
-        return safetyValidator.canOpenDoors(state);
+        return safetyValidator.canOpenDoors(car.getState());
     }
 
 }
\ No newline at end of file
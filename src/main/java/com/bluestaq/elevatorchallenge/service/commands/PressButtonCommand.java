@@ -1,38 +1,30 @@
 package com.bluestaq.elevatorchallenge.service.commands;
 
 
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
 import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
 import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
 import com.bluestaq.elevatorchallenge.service.ElevatorState;
-import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 /**
  * Command to press a floor button within the elevator and add destination to the elevator queue.
+ * A car call only ever lands in the destination queue of the car it was pressed in.
  * Handles destination addition and movement initiation for floor-by-floor travel.
+ *
+ * Immutable value object created for every request, concurrent button presses can never overwrite each other's floor
  */
 @Slf4j
-@Component
-public class PressButtonCommand implements ElevatorCommand {
-
-    @Getter
-    @Setter
-    private int targetFloor;
-
-    @Autowired
-    private ElevatorDestinationManager destinationManager;
-
-
+public record PressButtonCommand(int targetFloor) implements ElevatorCommand {
 
     @Override
-    public boolean executeCommand(ElevatorState state) {
-        log.info("Executing press button command for floor {}", targetFloor);
+    public boolean executeCommand(ElevatorCar car) {
+        log.debug("Executing press button command for floor {} in car {}", targetFloor, car.getId());
+        ElevatorState state = car.getState();
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
 
         //validate we can execute a floor command in the current state
-        if (!canExecuteCommand(state)) {
+        if (!canExecuteCommand(car)) {
             throw new IllegalArgumentException("Cannot press floor button " + targetFloor + " in current elevator state");
         }
 
@@ -46,23 +38,27 @@ public class PressButtonCommand implements ElevatorCommand {
         boolean destinationAdded = destinationManager.addDestination(targetFloor, state);
 
 
-        if (destinationAdded) {
-            log.info("Floor {} button pressed successfully. Current Destinations: {}", targetFloor, destinationManager.getAllDestinations());
-            return true;
-        } else {
-            log.error("Failed to add floor {} to destinations", targetFloor);
-            return false;
+        if (!destinationAdded) {
+            // a repeated press of a lit button, nothing to do
+            log.debug("Floor {} already requested in car {}", targetFloor, car.getId());
         }
+        return destinationAdded;
     }
 
     @Override
-    public boolean canExecuteCommand(ElevatorState elevatorState) {
+    public boolean canExecuteCommand(ElevatorCar car) {
+        ElevatorState elevatorState = car.getState();
         // Validate floor is in range
         if (!elevatorState.isValidFloor(targetFloor)) {
             log.warn("Invalid floor {}: must be between {} and {}",
                     targetFloor, elevatorState.getMinFloor(), elevatorState.getMaxFloor());
             return false;
         }
+        // a zoned car has no button for the floors it runs express through
+        if (!elevatorState.servesFloor(targetFloor)) {
+            log.warn("Floor {} is not served by car {}", targetFloor, car.getId());
+            return false;
+        }
 
         // Can press buttons in most states
         ElevatorMovement currentState = elevatorState.getCurrentMovementState();
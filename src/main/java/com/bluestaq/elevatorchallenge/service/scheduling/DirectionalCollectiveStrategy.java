@@ -0,0 +1,62 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+
+/**
+ * Directional collective control, the way most real group controllers run a car: on the way up only stops for the
+ * upward set, and when those run out the car keeps going up to the highest downward floor above it before it
+ * reverses, so it collects every DOWN call in one sweep. Going down works the same the other way around.
+ *
+ * Compared to the {@link ScanStrategy} this saves the extra reversal when a DOWN call sits above the last upward stop
+ */
+public class DirectionalCollectiveStrategy implements SchedulingStrategy {
+
+    @Override
+    public int nextDestination(FloorBitSet upwardFloors, FloorBitSet downwardFloors, int currentFloor,
+                               ElevatorDirection direction) {
+        int nextFloor = NO_FLOOR;
+
+        switch (direction) {
+            case UP:
+                nextFloor = upwardFloors.nextAbove(currentFloor);
+                if (nextFloor == NO_FLOOR) {
+                    // turn around at the highest DOWN call, which may still be above us
+                    nextFloor = downwardFloors.max();
+                }
+                if (nextFloor == NO_FLOOR) {
+                    // only UP calls below the car are left, start with the lowest one
+                    nextFloor = upwardFloors.min();
+                }
+                break;
+
+            case DOWN:
+                nextFloor = downwardFloors.nextBelow(currentFloor);
+                if (nextFloor == NO_FLOOR) {
+                    // turn around at the lowest UP call, which may still be below us
+                    nextFloor = upwardFloors.min();
+                }
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = downwardFloors.max();
+                }
+                break;
+
+            case NONE:
+                // a stationary car heads for the closest call and sweeps from there
+                int above = SchedulingStrategy.closestAbove(upwardFloors, downwardFloors, currentFloor);
+                int below = SchedulingStrategy.closestBelow(upwardFloors, downwardFloors, currentFloor);
+                if (upwardFloors.contains(currentFloor) || downwardFloors.contains(currentFloor)) {
+                    nextFloor = currentFloor;
+                } else if (below == NO_FLOOR || (above != NO_FLOOR && above - currentFloor <= currentFloor - below)) {
+                    nextFloor = above;
+                } else {
+                    nextFloor = below;
+                }
+                break;
+        }
+
+        return nextFloor;
+    }
+}
@@ -0,0 +1,41 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+
+/**
+ * LOOK: sweep in the current direction and stop at every queued floor on the way, no matter which direction it was
+ * requested for, then reverse once nothing is left ahead. Passengers waiting to go the other way get picked up on the
+ * way past, so this makes the fewest reversals but carries people away from where they want to go
+ */
+public class LookStrategy implements SchedulingStrategy {
+
+    @Override
+    public int nextDestination(FloorBitSet upwardFloors, FloorBitSet downwardFloors, int currentFloor,
+                               ElevatorDirection direction) {
+        if (upwardFloors.isEmpty() && downwardFloors.isEmpty()) {
+            return NO_FLOOR;
+        }
+        // a floor we are standing on is served before going anywhere
+        if (upwardFloors.contains(currentFloor) || downwardFloors.contains(currentFloor)) {
+            return currentFloor;
+        }
+
+        int nextFloor;
+        if (direction == ElevatorDirection.DOWN) {
+            nextFloor = SchedulingStrategy.closestBelow(upwardFloors, downwardFloors, currentFloor);
+            if (nextFloor == NO_FLOOR) {
+                nextFloor = SchedulingStrategy.closestAbove(upwardFloors, downwardFloors, currentFloor);
+            }
+        } else {
+            // stationary cars start upward like the SCAN does
+            nextFloor = SchedulingStrategy.closestAbove(upwardFloors, downwardFloors, currentFloor);
+            if (nextFloor == NO_FLOOR) {
+                nextFloor = SchedulingStrategy.closestBelow(upwardFloors, downwardFloors, currentFloor);
+            }
+        }
+        return nextFloor;
+    }
+}
@@ -0,0 +1,72 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+
+/**
+ * The original SCAN of the destination manager: keep going through the set of the current direction, then reverse
+ * and take the closest floor of the other set behind the car.
+ *
+ * The car never runs empty to the end of the building like the textbook SCAN does, it only ever moves towards a
+ * queued floor. Reversing to the closest floor behind the car means a DOWN hall call above the last upward stop waits
+ * for a full round trip, {@link DirectionalCollectiveStrategy} fixes that
+ */
+public class ScanStrategy implements SchedulingStrategy {
+
+    @Override
+    public int nextDestination(FloorBitSet upwardFloors, FloorBitSet downwardFloors, int currentFloor,
+                               ElevatorDirection direction) {
+        int nextFloor = NO_FLOOR;
+
+        switch (direction) {
+            case UP:
+                // Going up, we look for floors above current in upward set
+                nextFloor = upwardFloors.nextAbove(currentFloor);
+                if (nextFloor == NO_FLOOR) {
+                    // No more floors above in upward direction, switch to downward
+                    nextFloor = downwardFloors.nextBelow(currentFloor);
+                }
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = downwardFloors.max();
+                }
+                if (nextFloor == NO_FLOOR) {
+                    // only upward floors below the car are left
+                    nextFloor = upwardFloors.min();
+                }
+                break;
+
+            case DOWN:
+                // Going down we look for floors below current in downward set
+                nextFloor = downwardFloors.nextBelow(currentFloor);
+                if (nextFloor == NO_FLOOR) {
+                    // No more floors below in downward direction, switch to upward
+                    nextFloor = upwardFloors.nextAbove(currentFloor);
+                }
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = upwardFloors.min();
+                }
+                if (nextFloor == NO_FLOOR) {
+                    // only downward floors above the car are left
+                    nextFloor = downwardFloors.max();
+                }
+                break;
+
+            case NONE: // When stationary, start with upward preference
+                nextFloor = upwardFloors.nextAbove(currentFloor);
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = upwardFloors.min();
+                }
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = downwardFloors.nextBelow(currentFloor);
+                }
+                if (nextFloor == NO_FLOOR) {
+                    nextFloor = downwardFloors.max();
+                }
+                break;
+        }
+
+        return nextFloor;
+    }
+}
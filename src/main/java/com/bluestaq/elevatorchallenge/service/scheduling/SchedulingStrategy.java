@@ -0,0 +1,46 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+
+/**
+ * Decides in which order a car serves its queued floors. The car asks for the next floor every time it arrives
+ * somewhere or gets a new destination, and the group dispatcher replays the same steps to estimate when a car
+ * would get to a hall call, so an implementation must not keep any state of its own.
+ *
+ * Floors sit in two sets: the upward set holds car calls above the car when they were pressed and UP hall calls,
+ * the downward set car calls below the car and DOWN hall calls. Every car has its own strategy, see
+ * {@link SchedulingStrategyType} for the ones that can be configured
+ */
+public interface SchedulingStrategy {
+
+    /**
+     * @return the next floor to go to, or NO_FLOOR when both sets are empty. A floor that is in one of the sets
+     * must always be found, whatever the current direction is
+     */
+    int nextDestination(FloorBitSet upwardFloors, FloorBitSet downwardFloors, int currentFloor, ElevatorDirection direction);
+
+    /**
+     * Closest floor strictly above the given floor in either set, or NO_FLOOR
+     */
+    static int closestAbove(FloorBitSet first, FloorBitSet second, int floor) {
+        return lower(first.nextAbove(floor), second.nextAbove(floor));
+    }
+
+    /**
+     * Closest floor strictly below the given floor in either set, or NO_FLOOR
+     */
+    static int closestBelow(FloorBitSet first, FloorBitSet second, int floor) {
+        return Math.max(first.nextBelow(floor), second.nextBelow(floor));
+    }
+
+    // NO_FLOOR is -1, so the lower of two floors has to skip it
+    private static int lower(int first, int second) {
+        if (first == NO_FLOOR) {
+            return second;
+        }
+        return second == NO_FLOOR ? first : Math.min(first, second);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The strategies that can be picked per car with elevator.scheduling.strategy and elevator.scheduling.car-strategies,
+ * or swapped on a running car through the REST api
+ */
+@Getter
+public enum SchedulingStrategyType {
+
+    SCAN(new ScanStrategy()),
+    LOOK(new LookStrategy()),
+    COLLECTIVE(new DirectionalCollectiveStrategy()),
+    SHORTEST_SEEK(new ShortestSeekStrategy());
+
+    // the strategies don't hold any state, so every car can share the same instance
+    private final SchedulingStrategy strategy;
+
+    SchedulingStrategyType(SchedulingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Look up a strategy by name, case insensitive. Unknown names are a client error
+     */
+    public static SchedulingStrategyType fromName(String name) {
+        for (SchedulingStrategyType type : values()) {
+            if (type.name().equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scheduling strategy " + name + ", valid strategies are "
+                + Arrays.toString(values()));
+    }
+}
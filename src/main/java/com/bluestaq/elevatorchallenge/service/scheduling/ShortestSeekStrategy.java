@@ -0,0 +1,38 @@
+package com.bluestaq.elevatorchallenge.service.scheduling;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+
+/**
+ * Shortest seek first: always go to the closest queued floor, on a tie keep the current direction.
+ * Least travel per stop, but with a steady stream of calls around the car the floors at the ends of the building
+ * can wait for a long time
+ */
+public class ShortestSeekStrategy implements SchedulingStrategy {
+
+    @Override
+    public int nextDestination(FloorBitSet upwardFloors, FloorBitSet downwardFloors, int currentFloor,
+                               ElevatorDirection direction) {
+        if (upwardFloors.contains(currentFloor) || downwardFloors.contains(currentFloor)) {
+            return currentFloor;
+        }
+
+        int above = SchedulingStrategy.closestAbove(upwardFloors, downwardFloors, currentFloor);
+        int below = SchedulingStrategy.closestBelow(upwardFloors, downwardFloors, currentFloor);
+        if (above == NO_FLOOR) {
+            return below;
+        }
+        if (below == NO_FLOOR) {
+            return above;
+        }
+
+        int distanceAbove = above - currentFloor;
+        int distanceBelow = currentFloor - below;
+        if (distanceAbove == distanceBelow) {
+            return direction == ElevatorDirection.DOWN ? below : above;
+        }
+        return distanceAbove < distanceBelow ? above : below;
+    }
+}
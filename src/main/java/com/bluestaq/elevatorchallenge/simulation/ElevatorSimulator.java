@@ -0,0 +1,112 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Discrete event simulator that drives the real {@link ElevatorService} on a {@link SimulationClock}.
+ * Instead of sleeping between ticks, the simulator jumps the clock straight to the next thing that happens,
+ * either the next door/floor deadline of a car or the next scheduled passenger action. A full day of building
+ * traffic therefore runs in seconds with exactly the same scheduling logic as production.
+ *
+ * Only active with the simulation profile, which replaces the system clock and disables the tick scheduler
+ */
+@Component
+@Profile("simulation")
+@Slf4j
+public class ElevatorSimulator {
+
+    // guard against a car that keeps asking for an immediate tick without making progress
+    private static final int MAX_TICKS_WITHOUT_TIME_PASSING = 10_000;
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    SimulationClock clock;
+
+    private final PriorityQueue<ScheduledAction> scheduledActions = new PriorityQueue<>(
+            Comparator.comparingLong(ScheduledAction::timeMs).thenComparingLong(ScheduledAction::sequence));
+    private long nextSequence;
+
+    /**
+     * Schedule an action against the elevator service at an absolute simulation time in epoch ms
+     */
+    public void scheduleAt(long timeMs, Consumer<ElevatorService> action) {
+        scheduledActions.add(new ScheduledAction(timeMs, nextSequence++, action));
+    }
+
+    /**
+     * Schedule an action against the elevator service after a delay from the current simulation time
+     */
+    public void scheduleAfter(Duration delay, Consumer<ElevatorService> action) {
+        scheduleAt(clock.millis() + delay.toMillis(), action);
+    }
+
+    /**
+     * Run the simulation for the given amount of simulated time
+     */
+    public SimulationResult run(Duration duration) {
+        long wallClockStart = System.nanoTime();
+        long startTime = clock.millis();
+        long endTime = startTime + duration.toMillis();
+
+        long ticks = 0;
+        long fired = 0;
+        long rejected = 0;
+        int ticksWithoutTimePassing = 0;
+
+        while (true) {
+            long nextEventTime = Math.max(clock.millis(), nextEventTime());
+            if (nextEventTime > endTime) {
+                break;
+            }
+
+            if (nextEventTime == clock.millis()) {
+                if (++ticksWithoutTimePassing > MAX_TICKS_WITHOUT_TIME_PASSING) {
+                    throw new IllegalStateException("Simulation stalled at " + clock.instant() + ", no car made progress");
+                }
+            } else {
+                ticksWithoutTimePassing = 0;
+                clock.advanceTo(nextEventTime);
+            }
+
+            // passenger actions go first, just like a REST request arriving before the scheduler wakes up
+            while (!scheduledActions.isEmpty() && scheduledActions.peek().timeMs() <= nextEventTime) {
+                ScheduledAction scheduledAction = scheduledActions.poll();
+                try {
+                    scheduledAction.action().accept(elevatorService);
+                    fired++;
+                } catch (RuntimeException e) {
+                    log.debug("Scheduled simulation action rejected at {}: {}", clock.instant(), e.getMessage());
+                    rejected++;
+                }
+            }
+
+            elevatorService.processElevatorOperations();
+            ticks++;
+        }
+
+        clock.advanceTo(endTime);
+        Duration wallClockTime = Duration.ofNanos(System.nanoTime() - wallClockStart);
+
+        log.info("Simulated {} in {} ms ({} ticks, {} actions fired, {} rejected)",
+                duration, wallClockTime.toMillis(), ticks, fired, rejected);
+        return new SimulationResult(duration, wallClockTime, ticks, fired, rejected);
+    }
+
+    private long nextEventTime() {
+        long nextActionTime = scheduledActions.isEmpty() ? Long.MAX_VALUE : scheduledActions.peek().timeMs();
+        return Math.min(nextActionTime, elevatorService.getNextDeadlineMs());
+    }
+
+    private record ScheduledAction(long timeMs, long sequence, Consumer<ElevatorService> action) {}
+}
@@ -0,0 +1,62 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import lombok.Getter;
+
+/**
+ * Fixed resolution latency histogram. Values are counted in buckets of bucketWidthMs, anything above maxValueMs
+ * lands in the last bucket, so recording is O(1) and memory does not grow with the number of passengers.
+ * Percentiles are reported as the upper edge of their bucket, never above the largest recorded value
+ */
+public class LatencyHistogram {
+
+    private final long bucketWidthMs;
+    private final long[] counts;
+
+    @Getter
+    private long count;
+    @Getter
+    private long max;
+    private long sum;
+
+    public LatencyHistogram(long bucketWidthMs, long maxValueMs) {
+        if (bucketWidthMs <= 0 || maxValueMs < bucketWidthMs) {
+            throw new IllegalArgumentException("Invalid histogram range, bucket width " + bucketWidthMs + " max " + maxValueMs);
+        }
+        this.bucketWidthMs = bucketWidthMs;
+        this.counts = new long[(int) (maxValueMs / bucketWidthMs) + 1];
+    }
+
+    public void record(long valueMs) {
+        if (valueMs < 0) {
+            throw new IllegalArgumentException("Latency can not be negative: " + valueMs);
+        }
+        int bucket = (int) Math.min(valueMs / bucketWidthMs, counts.length - 1);
+        counts[bucket]++;
+        count++;
+        sum += valueMs;
+        max = Math.max(max, valueMs);
+    }
+
+    /**
+     * Value in ms that the given percentage (0-100) of all recorded values is at or below, 0 when empty
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                // the overflow bucket has no upper edge, the max is the only honest answer there
+                return bucket == counts.length - 1 ? max : Math.min((bucket + 1) * bucketWidthMs, max);
+            }
+        }
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
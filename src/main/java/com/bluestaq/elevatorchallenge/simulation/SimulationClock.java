@@ -0,0 +1,60 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Virtual clock for the discrete event simulation. Time stands still until the simulator moves it forward,
+ * which lets the simulation jump straight from one elevator event to the next.
+ */
+public class SimulationClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile long currentTimeMs;
+
+    public SimulationClock(Instant startTime) {
+        this(startTime.toEpochMilli(), ZoneOffset.UTC);
+    }
+
+    private SimulationClock(long currentTimeMs, ZoneId zone) {
+        this.currentTimeMs = currentTimeMs;
+        this.zone = zone;
+    }
+
+    /**
+     * Jump to the given epoch ms, time can never move backwards
+     */
+    public void advanceTo(long epochMs) {
+        if (epochMs < currentTimeMs) {
+            throw new IllegalArgumentException("Simulation time cannot move backwards from " + currentTimeMs + " to " + epochMs);
+        }
+        currentTimeMs = epochMs;
+    }
+
+    public void advance(Duration duration) {
+        advanceTo(currentTimeMs + duration.toMillis());
+    }
+
+    @Override
+    public long millis() {
+        return currentTimeMs;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(currentTimeMs);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new SimulationClock(currentTimeMs, zone);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import java.time.Duration;
+
+/**
+ * Summary of a discrete event simulation run
+ */
+public record SimulationResult(
+        Duration simulatedTime,
+        Duration wallClockTime,
+        long elevatorTicks,
+        long scheduledEventsFired,
+        long scheduledEventsRejected
+) {}
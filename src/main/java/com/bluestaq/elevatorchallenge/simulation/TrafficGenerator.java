@@ -0,0 +1,339 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorEventListener;
+import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import com.bluestaq.elevatorchallenge.service.ElevatorZone;
+import com.bluestaq.elevatorchallenge.service.FloorBitSet;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic passenger traffic on top of the {@link ElevatorSimulator}. Passengers show up with Poisson arrivals,
+ * press the hall button (CallElevatorCommand), board the car the dispatcher assigned once it stops at their floor
+ * heading their way,
+ * press their destination inside the car (PressButtonCommand) and leave when the car stops there.
+ * Wait, ride and journey time of every passenger end up in latency histograms for the {@link TrafficReport}.
+ *
+ * Every passenger weighs the same, the riders of a car are reported as its load after every stop. Passengers only
+ * board while the car has room, whoever is left behind presses the hall button again once the car has left.
+ *
+ * In a zoned building passengers press the buttons of a zone that serves both of their floors. When no zone does they
+ * change cars at a floor two zones share, like a sky lobby. The wait is the time until the first car, the journey
+ * ends when the last car lets them out.
+ *
+ * Everything runs on the simulation thread, so the passenger lists need no synchronization
+ */
+@Component
+@Profile("simulation")
+@Slf4j
+public class TrafficGenerator implements ElevatorEventListener {
+
+    // passenger times are in seconds, 100ms buckets up to an hour is plenty of resolution
+    private static final long HISTOGRAM_BUCKET_MS = 100;
+    private static final long HISTOGRAM_MAX_MS = Duration.ofHours(1).toMillis();
+
+    // after the last arrival keep the simulation going until everyone got out, but not forever
+    private static final Duration DRAIN_STEP = Duration.ofMinutes(1);
+    private static final Duration MAX_DRAIN_TIME = Duration.ofMinutes(30);
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorSimulator simulator;
+
+    @Autowired
+    SimulationClock clock;
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    @Value("${elevator.traffic.passenger-weight:75}")
+    int passengerWeightKg;
+
+    private final List<Passenger> waitingPassengers = new ArrayList<>();
+    private final List<Passenger> ridingPassengers = new ArrayList<>();
+    private LatencyHistogram waitTimes = newHistogram();
+    private LatencyHistogram rideTimes = newHistogram();
+    private LatencyHistogram journeyTimes = newHistogram();
+    private long passengersDelivered;
+    private long passengersLeftBehind;
+
+    @PostConstruct
+    void registerListener() {
+        elevatorService.addEventListener(this);
+    }
+
+    /**
+     * Generate traffic of one profile for the given simulated duration and report the passenger KPIs.
+     * The same seed always produces the same passengers
+     */
+    public TrafficReport run(TrafficProfile profile, double passengersPerMinute, Duration duration, long seed) {
+        if (passengersPerMinute <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive, was " + passengersPerMinute);
+        }
+        reset();
+
+        ElevatorState referenceState = elevatorBank.getCars().get(0).getState();
+        int lobby = referenceState.getMinFloor();
+        int topFloor = referenceState.getMaxFloor();
+
+        // Poisson process, the gaps between two arrivals are exponentially distributed
+        Random random = new Random(seed);
+        double meanGapMs = Duration.ofMinutes(1).toMillis() / passengersPerMinute;
+        long startTime = clock.millis();
+        long endTime = startTime + duration.toMillis();
+        long passengersGenerated = 0;
+
+        double arrivalTime = startTime - meanGapMs * Math.log(1 - random.nextDouble());
+        while (arrivalTime < endTime) {
+            Passenger passenger = new Passenger(profile.nextTrip(random, lobby, topFloor), (long) arrivalTime);
+            simulator.scheduleAt(passenger.arrivalTimeMs, service -> onPassengerArrived(passenger));
+            passengersGenerated++;
+            arrivalTime -= meanGapMs * Math.log(1 - random.nextDouble());
+        }
+
+        simulator.run(duration);
+        Duration drained = Duration.ZERO;
+        while ((!waitingPassengers.isEmpty() || !ridingPassengers.isEmpty()) && drained.compareTo(MAX_DRAIN_TIME) < 0) {
+            simulator.run(DRAIN_STEP);
+            drained = drained.plus(DRAIN_STEP);
+        }
+        if (!waitingPassengers.isEmpty() || !ridingPassengers.isEmpty()) {
+            log.warn("{} passenger(s) still waiting and {} riding after the drain time",
+                    waitingPassengers.size(), ridingPassengers.size());
+        }
+
+        return new TrafficReport(profile, passengersPerMinute, duration, passengersGenerated, passengersDelivered,
+                passengersLeftBehind,
+                TrafficReport.LatencySummary.of(waitTimes),
+                TrafficReport.LatencySummary.of(rideTimes),
+                TrafficReport.LatencySummary.of(journeyTimes));
+    }
+
+    private void onPassengerArrived(Passenger passenger) {
+        if (!planLeg(passenger)) {
+            log.warn("No zone takes a passenger from floor {} to floor {}, they take the stairs",
+                    passenger.legOrigin, passenger.trip.destination());
+            return;
+        }
+        ElevatorDirection direction = ElevatorDirection.between(passenger.legOrigin, passenger.legDestination);
+        passenger.assignedCarId = elevatorService.callElevator(passenger.legOrigin, direction, passenger.zoneName);
+
+        // an idle car already at the floor just opens its doors, there won't be an arrival to wait for
+        ElevatorDTO assignedCar = elevatorService.getCurrentElevatorState(passenger.assignedCarId);
+        if (assignedCar.currentFloor() == passenger.legOrigin && assignedCar.state() == ElevatorMovement.IDLE
+                && hasRoom(passenger.assignedCarId)) {
+            board(passenger, clock.millis());
+            reportLoad(passenger.assignedCarId);
+            pressDestination(passenger);
+        } else {
+            waitingPassengers.add(passenger);
+        }
+    }
+
+    @Override
+    public void onCarArrived(ElevatorCar car, int floor, long arrivalTimeMs) {
+        // passengers only ride the default bank
+        if (car.getBank() != elevatorBank) {
+            return;
+        }
+        // people get out first
+        boolean loadChanged = false;
+        Iterator<Passenger> riders = ridingPassengers.iterator();
+        while (riders.hasNext()) {
+            Passenger passenger = riders.next();
+            if (passenger.assignedCarId == car.getId() && passenger.legDestination == floor) {
+                riders.remove();
+                loadChanged = true;
+                if (floor != passenger.trip.destination()) {
+                    // change cars, the hall button is pressed once this car is done here
+                    passenger.legOrigin = floor;
+                    simulator.scheduleAt(arrivalTimeMs, service -> onPassengerArrived(passenger));
+                    continue;
+                }
+                rideTimes.record(arrivalTimeMs - passenger.boardingTimeMs);
+                journeyTimes.record(arrivalTimeMs - passenger.arrivalTimeMs);
+                passengersDelivered++;
+            }
+        }
+
+        Iterator<Passenger> waiting = waitingPassengers.iterator();
+        while (waiting.hasNext()) {
+            Passenger passenger = waiting.next();
+            if (passenger.assignedCarId == car.getId() && passenger.legOrigin == floor
+                    && !isPassingBy(car, passenger)) {
+                if (!hasRoom(car.getId())) {
+                    passenger.leftBehind = true;
+                    passengersLeftBehind++;
+                    continue;
+                }
+                waiting.remove();
+                board(passenger, arrivalTimeMs);
+                loadChanged = true;
+                // we are on the car's own thread here, so the press waits for the next simulation step
+                simulator.scheduleAt(arrivalTimeMs, service -> pressDestination(passenger));
+            }
+        }
+
+        if (loadChanged) {
+            simulator.scheduleAt(arrivalTimeMs, service -> reportLoad(car.getId()));
+        }
+    }
+
+    @Override
+    public void onFloorTraveled(ElevatorCar car, int floor) {
+        if (car.getBank() != elevatorBank) {
+            return;
+        }
+        // the car that had no room is on its way, the people it left behind call again
+        for (Passenger passenger : waitingPassengers) {
+            if (passenger.leftBehind && passenger.assignedCarId == car.getId() && passenger.legOrigin != floor) {
+                passenger.leftBehind = false;
+                simulator.scheduleAt(clock.millis(), service -> {
+                    waitingPassengers.remove(passenger);
+                    onPassengerArrived(passenger);
+                });
+            }
+        }
+    }
+
+    // the next car to take from where the passenger stands, false when no zone gets them any closer
+    private boolean planLeg(Passenger passenger) {
+        int from = passenger.legOrigin;
+        int to = passenger.trip.destination();
+        List<ElevatorZone> zones = elevatorBank.getZones();
+        if (zones.isEmpty()) {
+            passenger.legDestination = to;
+            passenger.zoneName = null;
+            return true;
+        }
+
+        int bestTransfer = FloorBitSet.NO_FLOOR;
+        for (ElevatorZone zone : zones) {
+            if (!zone.serves(from)) {
+                continue;
+            }
+            if (zone.serves(to)) {
+                passenger.legDestination = to;
+                passenger.zoneName = zone.name();
+                return true;
+            }
+            // change at the shared floor that makes the shortest trip
+            for (ElevatorZone nextZone : zones) {
+                if (!nextZone.serves(to)) {
+                    continue;
+                }
+                for (int floor : zone.floors().toList()) {
+                    if (floor != from && nextZone.serves(floor) && (bestTransfer == FloorBitSet.NO_FLOOR
+                            || Math.abs(floor - from) + Math.abs(to - floor) < Math.abs(bestTransfer - from) + Math.abs(to - bestTransfer))) {
+                        bestTransfer = floor;
+                        passenger.zoneName = zone.name();
+                    }
+                }
+            }
+        }
+        passenger.legDestination = bestTransfer;
+        return bestTransfer != FloorBitSet.NO_FLOOR;
+    }
+
+    private boolean hasRoom(int carId) {
+        int capacity = elevatorBank.getCar(carId).getState().getCapacityKg() / passengerWeightKg;
+        return ridersIn(carId) < capacity;
+    }
+
+    private int ridersIn(int carId) {
+        int riders = 0;
+        for (Passenger passenger : ridingPassengers) {
+            if (passenger.assignedCarId == carId) {
+                riders++;
+            }
+        }
+        return riders;
+    }
+
+    // the load weighing of a simulated car sees every rider at the same weight
+    private void reportLoad(int carId) {
+        elevatorService.updateCarLoad(carId, ridersIn(carId) * passengerWeightKg);
+    }
+
+    // the car stopped for somebody else and goes on the other way, it still has the passenger's call queued
+    private static boolean isPassingBy(ElevatorCar car, Passenger passenger) {
+        ElevatorDestinationManager destinationManager = car.getDestinationManager();
+        FloorBitSet stops = ElevatorDirection.between(passenger.legOrigin, passenger.legDestination) == ElevatorDirection.UP
+                ? destinationManager.getUpwardFloors()
+                : destinationManager.getDownwardFloors();
+        return stops.contains(passenger.legOrigin);
+    }
+
+    private void board(Passenger passenger, long boardingTimeMs) {
+        // a passenger changing cars is already on their way
+        if (passenger.boardingTimeMs == 0) {
+            passenger.boardingTimeMs = boardingTimeMs;
+            waitTimes.record(boardingTimeMs - passenger.arrivalTimeMs);
+        }
+        ridingPassengers.add(passenger);
+    }
+
+    private void pressDestination(Passenger passenger) {
+        try {
+            elevatorService.pressFloorButton(passenger.assignedCarId, passenger.legDestination);
+        } catch (RuntimeException e) {
+            // the passenger can't get anywhere, leave them out of the ride numbers
+            ridingPassengers.remove(passenger);
+            throw e;
+        }
+    }
+
+    private void reset() {
+        waitingPassengers.clear();
+        ridingPassengers.clear();
+        waitTimes = newHistogram();
+        rideTimes = newHistogram();
+        journeyTimes = newHistogram();
+        passengersDelivered = 0;
+        passengersLeftBehind = 0;
+        // riders of an earlier run that never got out don't weigh anything anymore
+        elevatorBank.getCars().forEach(car -> elevatorService.updateCarLoad(car.getId(), 0));
+    }
+
+    private static LatencyHistogram newHistogram() {
+        return new LatencyHistogram(HISTOGRAM_BUCKET_MS, HISTOGRAM_MAX_MS);
+    }
+
+    private static final class Passenger {
+        private final TrafficProfile.Trip trip;
+        private final long arrivalTimeMs;
+        private int assignedCarId;
+        private long boardingTimeMs;
+        // a car came but was full, the passenger calls again once it left
+        private boolean leftBehind;
+        // the car ride the passenger is on or waiting for, the whole trip unless they change cars on the way
+        private int legOrigin;
+        private int legDestination;
+        private String zoneName;
+
+        private Passenger(TrafficProfile.Trip trip, long arrivalTimeMs) {
+            this.trip = trip;
+            this.arrivalTimeMs = arrivalTimeMs;
+            this.legOrigin = trip.origin();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import java.util.Random;
+
+/**
+ * Classic building traffic patterns used by the {@link TrafficGenerator}. Each profile is the share of passengers
+ * that start at the lobby, the share that head to the lobby, and everyone else travels between two upper floors
+ */
+public enum TrafficProfile {
+
+    // morning, almost everybody enters the building at the lobby
+    UP_PEAK(0.85, 0.05),
+    // evening, almost everybody leaves the building through the lobby
+    DOWN_PEAK(0.05, 0.85),
+    // people going out for lunch and coming back at the same time
+    LUNCH(0.45, 0.45),
+    // meetings during the day, no lobby traffic at all
+    INTER_FLOOR(0.0, 0.0);
+
+    private final double fromLobbyShare;
+    private final double toLobbyShare;
+
+    TrafficProfile(double fromLobbyShare, double toLobbyShare) {
+        this.fromLobbyShare = fromLobbyShare;
+        this.toLobbyShare = toLobbyShare;
+    }
+
+    /**
+     * Pick the origin and destination floor of the next passenger, the lobby is the lowest floor
+     */
+    public Trip nextTrip(Random random, int lobby, int topFloor) {
+        if (topFloor - lobby < 2) {
+            throw new IllegalArgumentException("Traffic profiles need at least 3 floors, building has " + (topFloor - lobby + 1));
+        }
+
+        double roll = random.nextDouble();
+        if (roll < fromLobbyShare) {
+            return new Trip(lobby, randomUpperFloor(random, lobby, topFloor));
+        }
+        if (roll < fromLobbyShare + toLobbyShare) {
+            return new Trip(randomUpperFloor(random, lobby, topFloor), lobby);
+        }
+
+        int origin = randomUpperFloor(random, lobby, topFloor);
+        int destination;
+        do {
+            destination = randomUpperFloor(random, lobby, topFloor);
+        } while (destination == origin);
+        return new Trip(origin, destination);
+    }
+
+    private static int randomUpperFloor(Random random, int lobby, int topFloor) {
+        return lobby + 1 + random.nextInt(topFloor - lobby);
+    }
+
+    public record Trip(int origin, int destination) {}
+}
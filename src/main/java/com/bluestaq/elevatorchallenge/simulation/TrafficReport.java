@@ -0,0 +1,49 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import java.time.Duration;
+
+/**
+ * Passenger level KPIs of one traffic generator run. Wait time is from pressing the hall button until the assigned
+ * car opens its doors, ride time from boarding until the car stops at the destination, journey time is both together.
+ * passengersLeftBehind counts every time a car came for somebody without room to take them
+ */
+public record TrafficReport(
+        TrafficProfile profile,
+        double passengersPerMinute,
+        Duration duration,
+        long passengersGenerated,
+        long passengersDelivered,
+        long passengersLeftBehind,
+        LatencySummary waitTime,
+        LatencySummary rideTime,
+        LatencySummary journeyTime
+) {
+
+    public record LatencySummary(long count, double meanMs, long p50Ms, long p95Ms, long p99Ms, long maxMs) {
+
+        static LatencySummary of(LatencyHistogram histogram) {
+            return new LatencySummary(histogram.getCount(), histogram.mean(), histogram.percentile(50),
+                    histogram.percentile(95), histogram.percentile(99), histogram.getMax());
+        }
+    }
+
+    /**
+     * Human readable table of the run, times in seconds
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Traffic profile %s - %.1f passengers/min for %s, %d generated, %d delivered, %d left behind by a full car%n",
+                profile, passengersPerMinute, duration, passengersGenerated, passengersDelivered, passengersLeftBehind));
+        report.append(String.format("  %-8s %8s %8s %8s %8s %8s%n", "", "mean", "p50", "p95", "p99", "max"));
+        appendRow(report, "wait", waitTime);
+        appendRow(report, "ride", rideTime);
+        appendRow(report, "journey", journeyTime);
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, LatencySummary summary) {
+        report.append(String.format("  %-8s %7.1fs %7.1fs %7.1fs %7.1fs %7.1fs%n", name,
+                summary.meanMs() / 1000.0, summary.p50Ms() / 1000.0, summary.p95Ms() / 1000.0,
+                summary.p99Ms() / 1000.0, summary.maxMs() / 1000.0));
+    }
+}
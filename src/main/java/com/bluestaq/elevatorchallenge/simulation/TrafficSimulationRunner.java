@@ -0,0 +1,48 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs every configured traffic profile on startup and logs the passenger KPI report, then the application exits.
+ * Enable with --spring.profiles.active=simulation --elevator.traffic.report=true
+ */
+@Component
+@Profile("simulation")
+@ConditionalOnProperty(name = "elevator.traffic.report", havingValue = "true")
+@Slf4j
+public class TrafficSimulationRunner implements ApplicationRunner {
+
+    @Autowired
+    TrafficGenerator trafficGenerator;
+
+    @Value("${elevator.traffic.profiles:UP_PEAK,DOWN_PEAK,LUNCH,INTER_FLOOR}")
+    List<TrafficProfile> profiles;
+
+    // average passengers per minute for the whole building
+    @Value("${elevator.traffic.arrival-rate:6}")
+    double passengersPerMinute;
+
+    @Value("${elevator.traffic.duration:PT1H}")
+    Duration duration;
+
+    @Value("${elevator.traffic.seed:42}")
+    long seed;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (TrafficProfile profile : profiles) {
+            TrafficReport report = trafficGenerator.run(profile, passengersPerMinute, duration, seed);
+            log.info("\n{}", report.format());
+        }
+    }
+}
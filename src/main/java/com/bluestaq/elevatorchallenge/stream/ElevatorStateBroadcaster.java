@@ -0,0 +1,216 @@
+package com.bluestaq.elevatorchallenge.stream;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.dto.ElevatorStateDelta;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorEventListener;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes car state changes to Server-Sent Events subscribers like lobby displays. A new subscriber first gets the
+ * full state of its car(s) as a "state" event, after that only a compact "delta" event per change.
+ *
+ * Every state is built once by the car and shared by all subscribers. Each subscriber has its own small queue and is
+ * sent to on its own virtual thread, so a display that stops reading only holds up itself. When its queue overflows
+ * the queued deltas are dropped and the display gets the latest "state" of its cars instead, a slow display never
+ * holds up a car or another display and never costs more than its queue. Costs nothing while nobody is subscribed
+ */
+@Component
+@Slf4j
+public class ElevatorStateBroadcaster implements ElevatorEventListener {
+
+    static final String STATE_EVENT = "state";
+    static final String DELTA_EVENT = "delta";
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    ElevatorBank elevatorBank;
+
+    @Value("${elevator.stream.queue-size:64}")
+    int queueSize;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("elevator-state-stream-", 0).factory());
+
+    @PostConstruct
+    void registerListener() {
+        elevatorService.addEventListener(this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Open a stream for one car, or for every car of the bank when carId is null
+     */
+    public SseEmitter subscribe(Integer carId) {
+        // no timeout, displays stay connected for as long as they like
+        return subscribe(carId, new SseEmitter(0L));
+    }
+
+    SseEmitter subscribe(Integer carId, SseEmitter emitter) {
+        if (carId != null) {
+            // unknown cars fail the request right away instead of opening an empty stream
+            elevatorService.getCurrentElevatorState(carId);
+        }
+
+        Subscriber subscriber = new Subscriber(carId, emitter, new ArrayBlockingQueue<>(queueSize));
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(error -> subscribers.remove(subscriber));
+
+        // changes from now on are queued, the initial state is read when the sender gets to it and skips the ones it has
+        subscribers.add(subscriber);
+        subscriber.resyncNeeded.set(true);
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onStateChanged(ElevatorCar car, ElevatorDTO previous, ElevatorDTO current) {
+        // streams are per car id of the default bank, the other banks have cars with the same ids
+        if (subscribers.isEmpty() || car.getBank() != elevatorBank) {
+            return;
+        }
+        // built once on the car thread, shared by every subscriber
+        StateChange change = previous == null ? new StateChange(current, 0, null)
+                : new StateChange(current, previous.version(), ElevatorStateDelta.between(previous, current));
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.carId == null || subscriber.carId == current.carId()) {
+                if (!subscriber.changes.offer(change)) {
+                    // the display fell behind, its deltas are stale anyway
+                    subscriber.changes.clear();
+                    subscriber.resyncNeeded.set(true);
+                }
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // one sender per subscriber at a time, started when there is something to send
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> sendQueued(subscriber));
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    private void sendQueued(Subscriber subscriber) {
+        boolean connected = true;
+        try {
+            while (connected) {
+                if (subscriber.resyncNeeded.getAndSet(false)) {
+                    connected = sendStates(subscriber);
+                } else {
+                    StateChange change = subscriber.changes.poll();
+                    if (change == null) {
+                        break;
+                    }
+                    connected = sendChange(subscriber, change);
+                }
+            }
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // something may have been queued after the last poll
+        if (connected && (subscriber.resyncNeeded.get() || !subscriber.changes.isEmpty())) {
+            schedule(subscriber);
+        }
+    }
+
+    // latest state of every car of the subscriber, the queued changes it already has are skipped after this
+    private boolean sendStates(Subscriber subscriber) {
+        List<ElevatorDTO> states = subscriber.carId == null ? elevatorService.getElevatorBankState()
+                : List.of(elevatorService.getCurrentElevatorState(subscriber.carId));
+        for (ElevatorDTO state : states) {
+            if (!send(subscriber, STATE_EVENT, state.carId(), state.version(), state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sendChange(Subscriber subscriber, StateChange change) {
+        ElevatorDTO current = change.current();
+        long lastVersion = subscriber.lastVersionByCar.getOrDefault(current.carId(), 0L);
+        if (current.version() <= lastVersion) {
+            return true;
+        }
+        // a delta only makes sense on top of the version the display has, anything else gets the full state
+        if (change.delta() == null || change.previousVersion() != lastVersion) {
+            return send(subscriber, STATE_EVENT, current.carId(), current.version(), current);
+        }
+        return send(subscriber, DELTA_EVENT, current.carId(), current.version(), change.delta());
+    }
+
+    // returns false and drops the subscriber once its connection is gone
+    private boolean send(Subscriber subscriber, String eventName, int carId, long version, Object data) {
+        try {
+            subscriber.emitter.send(SseEmitter.event()
+                    .name(eventName)
+                    .id(carId + "-" + version)
+                    .data(data));
+            subscriber.lastVersionByCar.put(carId, version);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("State stream subscriber disconnected: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private record StateChange(ElevatorDTO current, long previousVersion, ElevatorStateDelta delta) {
+    }
+
+    private static final class Subscriber {
+        private final Integer carId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<StateChange> changes;
+        // the queue overflowed or the subscriber is new, send the full state next
+        private final AtomicBoolean resyncNeeded = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // only touched by the subscriber's sender
+        private final Map<Integer, Long> lastVersionByCar = new HashMap<>();
+
+        private Subscriber(Integer carId, SseEmitter emitter, BlockingQueue<StateChange> changes) {
+            this.carId = carId;
+            this.emitter = emitter;
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.bluestaq.elevatorchallenge.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Button presses through the REST layer of the running service, same context as the ElevatorContextTest
+ */
+@SpringBootTest(properties = "elevator.journal.directory=target/test-journal")
+@AutoConfigureMockMvc
+public class ElevatorControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void testPressOfAFloorNobodyCouldPressIsRejectedWithoutAwait() throws Exception {
+        for (String floor : new String[]{"0", "999"}) {
+            mockMvc.perform(get("/pressFloorNumber").param("carId", "1").param("targetFloorNumber", floor))
+                    .andExpect(status().isBadRequest());
+        }
+        // the bottom floor has no DOWN button
+        mockMvc.perform(get("/callElevator/down").param("currentFloorNumber", "1"))
+                .andExpect(status().isBadRequest());
+
+        // a real floor is still queued and answered right away
+        MvcResult result = mockMvc.perform(get("/pressFloorNumber").param("carId", "1").param("targetFloorNumber", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isAccepted())
+                .andExpect(content().string("1"));
+    }
+
+    @Test
+    void testUnchangedStateIsAnsweredWithNotModified() throws Exception {
+        // car 1 is busy with the presses of the other test
+        String etag = mockMvc.perform(get("/currentElevatorState").param("carId", "3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/currentElevatorState").param("carId", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a version is only the same state for the same car in the same run
+        assertNotEquals("\"1\"", etag);
+        mockMvc.perform(get("/currentElevatorState").param("carId", "4").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,105 @@
+package com.bluestaq.elevatorchallenge.journal;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
+import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ElevatorJournalTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    ElevatorBank elevatorBank;
+    ElevatorCar car;
+
+    @BeforeEach
+    void setUp() {
+        car = new ElevatorCar(new ElevatorState(1), new ElevatorDestinationManager(20));
+        elevatorBank = new ElevatorBank(List.of(car, new ElevatorCar(new ElevatorState(2), new ElevatorDestinationManager(20))));
+    }
+
+    @Test
+    void testRestartRestoresTheLastStateOfEveryCar() throws Exception {
+        ElevatorJournal journal = startJournal(DataSize.ofMegabytes(1), Mockito.mock(ElevatorService.class));
+        ElevatorDTO called = carState(2, 1, ElevatorMovement.IDLE, ElevatorDirection.UP, ElevatorDoor.CLOSED, List.of(5, 9), List.of());
+        ElevatorDTO moving = carState(3, 3, ElevatorMovement.MOVING, ElevatorDirection.UP, ElevatorDoor.CLOSED, List.of(5, 9), List.of(9, 2));
+        // floor 9 is called for both directions, the car call to 5 has been served
+        ElevatorDTO arrived = new ElevatorDTO(1, 4, 5, ElevatorMovement.IDLE, ElevatorDirection.UP, ElevatorDoor.OPENING,
+                List.of(2, 9), List.of(9), List.of(9, 2), List.of(9), 0);
+        journal.onStateChanged(car, car.getSnapshot(), called);
+        journal.onStateChanged(car, called, moving);
+        journal.onStateChanged(car, moving, arrived);
+        journal.stop();
+
+        ElevatorService restartedService = Mockito.mock(ElevatorService.class);
+        startJournal(DataSize.ofMegabytes(1), restartedService).stop();
+
+        Mockito.verify(restartedService).restoreCarState(arrived);
+        Mockito.verify(restartedService).restoreCarState(elevatorBank.getCar(2).getSnapshot());
+    }
+
+    @Test
+    void testFullSegmentsAreReplacedByACheckpoint() throws Exception {
+        // the checkpoints read the published state of the car, so it has to follow the changes
+        ElevatorCar movingCar = Mockito.mock(ElevatorCar.class);
+        Mockito.when(movingCar.getId()).thenReturn(1);
+        ElevatorDTO previous = car.getSnapshot();
+        Mockito.when(movingCar.getSnapshot()).thenReturn(previous);
+        elevatorBank = new ElevatorBank(List.of(movingCar));
+        Mockito.when(movingCar.getBank()).thenReturn(elevatorBank);
+
+        // room for the checkpoint and a handful of changes, so the journal has to start new segments
+        ElevatorJournal journal = startJournal(DataSize.ofBytes(400), Mockito.mock(ElevatorService.class));
+        for (int floor = 2; floor <= 20; floor++) {
+            ElevatorDTO next = carState(floor, floor, ElevatorMovement.MOVING, ElevatorDirection.UP, ElevatorDoor.CLOSED,
+                    List.of(20), List.of(floor - 1));
+            Mockito.when(movingCar.getSnapshot()).thenReturn(next);
+            journal.onStateChanged(movingCar, previous, next);
+            previous = next;
+        }
+        journal.stop();
+
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            assertEquals(1, files.count());
+        }
+        ElevatorService restartedService = Mockito.mock(ElevatorService.class);
+        startJournal(DataSize.ofBytes(400), restartedService).stop();
+        Mockito.verify(restartedService).restoreCarState(previous);
+    }
+
+    private ElevatorJournal startJournal(DataSize segmentSize, ElevatorService elevatorService) throws Exception {
+        ElevatorJournal journal = new ElevatorJournal();
+        journal.elevatorService = elevatorService;
+        journal.elevatorBank = elevatorBank;
+        journal.directory = journalDirectory.toString();
+        journal.segmentSize = segmentSize;
+        journal.flushInterval = Duration.ofMillis(10);
+        journal.start();
+        return journal;
+    }
+
+    private static ElevatorDTO carState(long version, int floor, ElevatorMovement movement, ElevatorDirection direction,
+                                        ElevatorDoor door, List<Integer> upward, List<Integer> downward) {
+        List<Integer> allFloors = Stream.concat(upward.stream(), downward.stream()).distinct().sorted().toList();
+        return new ElevatorDTO(1, version, floor, movement, direction, door, allFloors, upward, downward, List.of(), 0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.bluestaq.elevatorchallenge.metrics;
+
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ElevatorMetricsTest {
+
+    SimpleMeterRegistry meterRegistry;
+    ElevatorMetrics elevatorMetrics;
+    ElevatorCar car;
+
+    @BeforeEach
+    void setUp() {
+        car = new ElevatorCar(new ElevatorState(1), new ElevatorDestinationManager(20));
+        meterRegistry = new SimpleMeterRegistry();
+        elevatorMetrics = new ElevatorMetrics();
+        elevatorMetrics.meterRegistry = meterRegistry;
+        elevatorMetrics.elevatorService = new ElevatorService();
+        elevatorMetrics.elevatorBank = new ElevatorBank(List.of(car));
+        elevatorMetrics.registerMeters();
+    }
+
+    @Test
+    void testHallCallWaitIsTimedFromAssignmentToArrival() {
+        elevatorMetrics.onHallCallAssigned(car, 7, ElevatorDirection.DOWN, 10_000);
+        // a second press of the same call does not reset the wait
+        elevatorMetrics.onHallCallAssigned(car, 7, ElevatorDirection.DOWN, 15_000);
+        elevatorMetrics.onCarArrived(car, 7, 22_000);
+        // arriving again without a new call records nothing
+        elevatorMetrics.onCarArrived(car, 7, 40_000);
+
+        Timer hallCallWait = meterRegistry.get("elevator.hall.call.wait").tag(ElevatorMetrics.CAR_TAG, "1").timer();
+        assertEquals(1, hallCallWait.count());
+        assertEquals(12_000, hallCallWait.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(0, meterRegistry.get("elevator.car.call.ride").timer().count());
+    }
+
+    @Test
+    void testHallCallWaitOnlyEndsForTheDirectionTheCarAnswered() {
+        elevatorMetrics.onHallCallAssigned(car, 7, ElevatorDirection.UP, 10_000);
+        elevatorMetrics.onHallCallAssigned(car, 7, ElevatorDirection.DOWN, 12_000);
+        // the car stops for the UP call and passes the DOWN call on
+        car.getDestinationManager().addFloorRequestWithDirection(7, ElevatorDirection.DOWN, car.getState());
+        elevatorMetrics.onCarArrived(car, 7, 20_000);
+
+        Timer hallCallWait = meterRegistry.get("elevator.hall.call.wait").timer();
+        assertEquals(1, hallCallWait.count());
+        assertEquals(10_000, hallCallWait.totalTime(TimeUnit.MILLISECONDS), 0.001);
+
+        car.getDestinationManager().withdrawHallCall(7, ElevatorDirection.DOWN);
+        elevatorMetrics.onCarArrived(car, 7, 50_000);
+        assertEquals(2, hallCallWait.count());
+        assertEquals(48_000, hallCallWait.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void testCountersAndDestinationGauges() {
+        car.getDestinationManager().addDestination(5, car.getState());
+        car.getDestinationManager().addDestination(9, car.getState());
+        elevatorMetrics.onFloorTraveled(car, 2);
+        elevatorMetrics.onFloorTraveled(car, 3);
+        elevatorMetrics.onDoorsClosed(car, 3);
+        elevatorMetrics.onEmergencyStop(car);
+
+        assertEquals(2, meterRegistry.get("elevator.destinations").tag(ElevatorMetrics.DIRECTION_TAG, "up").gauge().value());
+        assertEquals(0, meterRegistry.get("elevator.destinations").tag(ElevatorMetrics.DIRECTION_TAG, "down").gauge().value());
+        assertEquals(2, meterRegistry.get("elevator.floors.traveled").counter().count());
+        assertEquals(1, meterRegistry.get("elevator.door.cycles").counter().count());
+        assertEquals(1, meterRegistry.get("elevator.emergency.stops").counter().count());
+    }
+}
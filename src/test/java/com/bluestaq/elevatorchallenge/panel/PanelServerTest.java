@@ -0,0 +1,154 @@
+package com.bluestaq.elevatorchallenge.panel;
+
+import com.bluestaq.elevatorchallenge.exception.ElevatorEmergencyException;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorPortfolio;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import com.bluestaq.elevatorchallenge.service.PendingCommand;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+
+/**
+ * Panel server on loopback with a mocked service, every queued command is accepted unless stubbed otherwise
+ */
+public class PanelServerTest {
+
+    PanelServer panelServer;
+    ElevatorService elevatorService;
+    ElevatorBank elevatorBank;
+
+    @BeforeEach
+    void setUp() {
+        elevatorBank = new ElevatorBank(List.of(new ElevatorCar(new ElevatorState(1), new ElevatorDestinationManager(20))));
+        elevatorService = Mockito.mock(ElevatorService.class);
+        Mockito.when(elevatorService.pressFloorButtonAsync(any(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> queued(invocation.getArgument(1)));
+        Mockito.when(elevatorService.callElevatorAsync(any(), anyInt(), any(), isNull()))
+                .thenAnswer(invocation -> queued(1));
+
+        ElevatorPortfolio portfolio = Mockito.mock(ElevatorPortfolio.class);
+        Mockito.when(portfolio.getBanks()).thenReturn(List.of(elevatorBank));
+
+        panelServer = new PanelServer();
+        panelServer.elevatorService = elevatorService;
+        panelServer.portfolio = portfolio;
+        panelServer.port = 0;
+        panelServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        panelServer.stop();
+    }
+
+    @Test
+    void testFramesAreQueuedAndAckedInOrder() throws IOException {
+        Mockito.when(elevatorService.pressFloorButtonAsync(elevatorBank, 1, 13))
+                .thenThrow(new ElevatorEmergencyException());
+
+        try (PanelLoadClient client = new PanelLoadClient(address())) {
+            List<PanelAck> acks = client.exchange(List.of(
+                    PanelFrame.hallCall(7, 0, 5, true),
+                    PanelFrame.carCall(8, 0, 1, 12),
+                    PanelFrame.carCall(9, 0, 1, 13),
+                    // there is only the default bank
+                    PanelFrame.carCall(10, 3, 1, 12)), 4);
+
+            assertEquals(List.of(
+                    new PanelAck(7, PanelAck.Status.ACCEPTED, 1),
+                    new PanelAck(8, PanelAck.Status.ACCEPTED, 1),
+                    new PanelAck(9, PanelAck.Status.EMERGENCY, 1),
+                    new PanelAck(10, PanelAck.Status.REJECTED, 1)), acks);
+        }
+        Mockito.verify(elevatorService).callElevatorAsync(elevatorBank, 5, ElevatorDirection.UP, null);
+        Mockito.verify(elevatorService).pressFloorButtonAsync(elevatorBank, 1, 12);
+    }
+
+    @Test
+    void testMalformedFrameIsAckedAndTheNextFrameStillRead() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address())) {
+            ByteBuffer frames = ByteBuffer.allocate(PanelFrame.SIZE * 2);
+            // unknown type, followed by a good frame sent in two pieces
+            frames.putInt(1).put(PanelFrame.VERSION).put((byte) 99).putShort((short) 0).putShort((short) 1).putShort((short) 4);
+            PanelFrame.carCall(2, 0, 1, 4).writeTo(frames);
+            frames.flip();
+            channel.write(frames.slice(0, PanelFrame.SIZE + 5));
+            channel.write(frames.slice(PanelFrame.SIZE + 5, PanelFrame.SIZE - 5));
+
+            ByteBuffer acks = ByteBuffer.allocate(PanelAck.SIZE * 2);
+            while (acks.hasRemaining()) {
+                channel.read(acks);
+            }
+            acks.flip();
+            assertEquals(PanelAck.Status.MALFORMED, PanelAck.readFrom(acks).status());
+            assertEquals(new PanelAck(2, PanelAck.Status.ACCEPTED, 1), PanelAck.readFrom(acks));
+        }
+    }
+
+    @Test
+    void testSlowHallCallDispatchDoesNotHoldUpOtherPanels() throws Exception {
+        CountDownLatch dispatcherBusy = new CountDownLatch(1);
+        Mockito.when(elevatorService.callElevatorAsync(elevatorBank, 9, ElevatorDirection.DOWN, null))
+                .thenAnswer(invocation -> {
+                    dispatcherBusy.await();
+                    return queued(1);
+                });
+
+        try (PanelLoadClient hallPanel = new PanelLoadClient(address());
+             PanelLoadClient carPanel = new PanelLoadClient(address())) {
+            CompletableFuture<List<PanelAck>> hallAcks = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return hallPanel.exchange(List.of(PanelFrame.hallCall(1, 0, 9, false), PanelFrame.carCall(2, 0, 1, 3)), 2);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // the selector keeps serving the other panel while the hall call waits for the dispatcher
+            assertEquals(List.of(new PanelAck(3, PanelAck.Status.ACCEPTED, 1)),
+                    carPanel.exchange(List.of(PanelFrame.carCall(3, 0, 1, 4)), 1));
+            assertFalse(hallAcks.isDone());
+
+            dispatcherBusy.countDown();
+            // the car call behind the hall call is still acked after it
+            assertEquals(List.of(new PanelAck(1, PanelAck.Status.ACCEPTED, 1), new PanelAck(2, PanelAck.Status.ACCEPTED, 1)),
+                    hallAcks.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testLoadClientPipelinesThousandsOfFrames() throws Exception {
+        try (PanelLoadClient client = new PanelLoadClient(address())) {
+            PanelLoadClient.Report report = client.run(20_000, 256, 1, 20, new Random(42));
+            assertEquals(20_000, report.frames());
+            assertEquals(20_000, report.accepted());
+        }
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress("localhost", panelServer.getPort());
+    }
+
+    private static PendingCommand queued(int carId) {
+        return new PendingCommand(carId, CompletableFuture.completedFuture(null));
+    }
+}
@@ -0,0 +1,84 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ElevatorCommandMailboxTest {
+
+    @Test
+    void testCommandRunsOnCallerWithoutControlThread() {
+        ElevatorCommandMailbox mailbox = new ElevatorCommandMailbox();
+
+        CompletableFuture<Thread> result = mailbox.submit(Thread::currentThread);
+
+        assertTrue(result.isDone());
+        assertEquals(Thread.currentThread(), result.join());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testControlThreadAppliesCommandsInOrder() throws Exception {
+        ElevatorCommandMailbox mailbox = new ElevatorCommandMailbox();
+        CountDownLatch bound = new CountDownLatch(1);
+        List<Integer> applied = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+
+        Thread controlThread = Thread.ofPlatform().start(() -> {
+            mailbox.bindControlThread();
+            bound.countDown();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    // small batches, just like the scheduler only sleeps once the mailbox is empty
+                    mailbox.runAsWriter(() -> mailbox.drain(8));
+                    if (!mailbox.hasPendingCommands()) {
+                        mailbox.getWakeUpSignal().awaitUntil(Long.MAX_VALUE, Clock.systemUTC());
+                    }
+                }
+            } finally {
+                mailbox.unbindControlThread();
+            }
+        });
+        bound.await();
+
+        // submitted from a single thread, so they have to come out in exactly this order and all on one thread
+        List<CompletableFuture<Integer>> results = IntStream.range(0, 100)
+                .mapToObj(i -> mailbox.submit(() -> {
+                    applied.add(i);
+                    writers.add(Thread.currentThread());
+                    return i;
+                }))
+                .toList();
+        for (CompletableFuture<Integer> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        controlThread.interrupt();
+        controlThread.join();
+
+        assertEquals(IntStream.range(0, 100).boxed().toList(), applied);
+        assertTrue(writers.stream().allMatch(writer -> writer == controlThread));
+    }
+
+    @Test
+    void testFailingCommandCompletesExceptionallyAndMailboxKeepsWorking() {
+        ElevatorCommandMailbox mailbox = new ElevatorCommandMailbox();
+
+        CompletableFuture<Object> failed = mailbox.submit(() -> {
+            throw new IllegalArgumentException("bad floor");
+        });
+        ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+
+        assertEquals(42, mailbox.submit(() -> 42).join());
+    }
+}
@@ -8,7 +8,7 @@ import org.springframework.boot.test.context.SpringBootTest;
  * SpringBootTest that spins up and starts the service, I could do some controller layer testing here but for
  * the sake of time I am using this to ensure the service starts without failure at the unit testing stage
  */
-@SpringBootTest
+@SpringBootTest(properties = "elevator.journal.directory=target/test-journal")
 public class ElevatorContextTest {
 
 
@@ -1,10 +1,16 @@
 package com.bluestaq.elevatorchallenge.service;
 
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandRequest;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandRequest.CommandType;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandResult;
+import com.bluestaq.elevatorchallenge.dto.ElevatorCommandResult.Status;
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.dto.ElevatorStateDelta;
 import com.bluestaq.elevatorchallenge.exception.ElevatorEmergencyException;
-import com.bluestaq.elevatorchallenge.service.commands.CallElevatorCommand;
 import com.bluestaq.elevatorchallenge.service.commands.CloseDoorsCommand;
 import com.bluestaq.elevatorchallenge.service.commands.OpenDoorsCommand;
-import com.bluestaq.elevatorchallenge.service.commands.PressButtonCommand;
+import com.bluestaq.elevatorchallenge.service.scheduling.SchedulingStrategyType;
+import com.bluestaq.elevatorchallenge.simulation.SimulationClock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -14,7 +20,16 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -30,8 +45,20 @@ public class ElevatorServiceTest {
     ElevatorState elevator;
     @Spy
     ElevatorDestinationManager destinationManager;
+    @Spy
+    ElevatorGroupDispatcher groupDispatcher;
+    // parking and traffic modes are switched off unless a test turns them on
+    @Spy
+    IdleParkingPolicy parkingPolicy;
+    @Spy
+    TrafficModeDetector trafficModeDetector;
+    @Spy
+    ButtonPressCoalescer coalescer;
     @Mock
     SafetyValidator safetyValidator;
+    // virtual clock so tests control time instead of waiting for it
+    @Spy
+    SimulationClock clock = new SimulationClock(Instant.parse("2025-01-06T08:00:00Z"));
     //have to do this type of spy instantiation in order to inject relevant dependencies into dependent classes for
     //class under test
     @InjectMocks
@@ -40,15 +67,11 @@ public class ElevatorServiceTest {
     @InjectMocks
     private CloseDoorsCommand closeDoorsCommand = Mockito.spy(CloseDoorsCommand.class);
 
-    @InjectMocks
-    private PressButtonCommand pressButtonCommand = Mockito.spy(PressButtonCommand.class);
-
-    @InjectMocks
-    private CallElevatorCommand callElevatorCommand = Mockito.spy(CallElevatorCommand.class);
-
     @InjectMocks
     ElevatorService elevatorService;
 
+    ElevatorCar car;
+
 
     @BeforeEach
     void setUp() {
@@ -61,28 +84,31 @@ public class ElevatorServiceTest {
         elevator.setMovementOperationStartTimeMs(-1);
         // Clear destinations
         destinationManager.clearAllDestinations();
+        // single car bank wrapping the spied state and destination manager
+        car = new ElevatorCar(elevator, destinationManager);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(car));
     }
 
     // =================== Door State Tests ================================
     @Test
     public void testPressOpenDoorCommandWhenClosed() {
         Mockito.doReturn(true).when(safetyValidator).canOpenDoors(Mockito.any());
-        elevatorService.openDoors();
+        elevatorService.openDoors(1);
         //run a loop of the main elevator loop
         elevatorService.processElevatorOperations();
-        assertEquals(ElevatorDoor.OPENING, elevatorService.getCurrentElevatorState().doorState());
+        assertEquals(ElevatorDoor.OPENING, elevatorService.getCurrentElevatorState(1).doorState());
     }
 
     @Test
     public void testPressOpenDoorCommandWhenMoving() {
         Mockito.doReturn(false).when(safetyValidator).canOpenDoors(Mockito.any());
         elevator.setCurrentMovementState(ElevatorMovement.MOVING);
-        assertThrows(IllegalArgumentException.class, () -> elevatorService.openDoors());
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.openDoors(1));
     }
 
     @Test
     public void testPressCloseDoorWhenClosedDoesNotThrowException() {
-        elevatorService.closeDoors();
+        elevatorService.closeDoors(1);
         assertDoesNotThrow(() -> {
             elevatorService.processElevatorOperations();
         });
@@ -92,10 +118,10 @@ public class ElevatorServiceTest {
     @Test
     public void testPressFloorButtonOnceWhileIdleState() {
 
-        elevatorService.pressFloorButton(5);
+        elevatorService.pressFloorButton(1, 5);
         elevatorService.processElevatorOperations();
         // check the floor queue is populated
-        assertFalse(elevatorService.destinationManager.getAllDestinations().isEmpty());
+        assertFalse(destinationManager.getAllDestinations().isEmpty());
     }
 
     @Test
@@ -107,17 +133,17 @@ public class ElevatorServiceTest {
 
         Mockito.doReturn(true).when(safetyValidator).canOpenDoors(Mockito.any());
         //check no exception
-        assertDoesNotThrow(() -> elevatorService.pressFloorButton(5));
+        assertDoesNotThrow(() -> elevatorService.pressFloorButton(1, 5));
 
         // check doors are opened and no destination is added
-        Mockito.verify(openDoorsCommand, Mockito.times(1)).executeCommand(elevator);
-        Mockito.verify(pressButtonCommand, Mockito.times(0)).executeCommand(elevator);
+        Mockito.verify(openDoorsCommand, Mockito.times(1)).executeCommand(car);
+        assertFalse(destinationManager.hasDestinations());
     }
 
     @Test
     public void testElevatorMovesWhenFloorButtonPressed() {
 
-        elevatorService.pressFloorButton(5);
+        elevatorService.pressFloorButton(1, 5);
         elevatorService.processElevatorOperations();
         // check the floor queue is populated
         assertSame(ElevatorDirection.UP, elevator.getDirection());
@@ -128,14 +154,15 @@ public class ElevatorServiceTest {
     @Timeout(value = 20, unit = TimeUnit.SECONDS)
     public void testElevatorClearsFloorRequestWhenTargetFloorReached() {
 
-        elevatorService.pressFloorButton(5);
+        elevatorService.pressFloorButton(1, 5);
         // Let elevator naturally move to floor 5
-        while (elevatorService.destinationManager.getAllDestinations().contains(5)) {
+        while (destinationManager.getAllDestinations().contains(5)) {
             elevatorService.processElevatorOperations();
+            clock.advance(Duration.ofMillis(100));
             // Add a reasonable timeout to avoid infinite loops in tests
         }
         //check that our destination queue is empty
-        assertTrue(elevatorService.destinationManager.getAllDestinations().isEmpty());
+        assertTrue(destinationManager.getAllDestinations().isEmpty());
     }
 
     @Test
@@ -151,7 +178,7 @@ public class ElevatorServiceTest {
     @Test
     public void testCallElevator_RespectDirectionRequest() {
         elevator.setCurrentFloor(5);
-        elevatorService.pressFloorButton(10);
+        elevatorService.pressFloorButton(1, 10);
         elevatorService.callElevator(8, ElevatorDirection.DOWN);
 
         // Should go UP to 10 first, then DOWN to 8
@@ -160,23 +187,119 @@ public class ElevatorServiceTest {
 
     }
 
+    @Test
+    void testCollectiveCarTurnsAtTheHighestDownCallAboveIt() {
+        elevator.setCurrentFloor(5);
+        elevatorService.pressFloorButton(1, 8);
+        elevatorService.callElevator(12, ElevatorDirection.DOWN);
+        elevatorService.callElevator(3, ElevatorDirection.DOWN);
+        elevator.setDirection(ElevatorDirection.UP);
+
+        assertEquals(8, destinationManager.getNextDestination(elevator));
+        destinationManager.removeDestination(8);
+        elevator.setCurrentFloor(8);
+        // the DOWN call above is collected before turning around, the old SCAN reversed to 3 first
+        assertEquals(12, destinationManager.getNextDestination(elevator));
+        destinationManager.setSchedulingStrategy(SchedulingStrategyType.SCAN.getStrategy());
+        assertEquals(3, destinationManager.getNextDestination(elevator));
+    }
+
+    @Test
+    void testSchedulingStrategyCanBeSwappedOnARunningCar() {
+        elevator.setCurrentFloor(10);
+        elevator.setDirection(ElevatorDirection.UP);
+        elevatorService.pressFloorButton(1, 14);
+        elevatorService.pressFloorButton(1, 9);
+        assertEquals(SchedulingStrategyType.COLLECTIVE, elevatorService.getSchedulingStrategy(1));
+        assertEquals(14, destinationManager.getNextDestination(elevator));
+
+        elevatorService.setSchedulingStrategy(1, SchedulingStrategyType.SHORTEST_SEEK);
+
+        assertEquals(SchedulingStrategyType.SHORTEST_SEEK, elevatorService.getSchedulingStrategy(1));
+        assertEquals(9, destinationManager.getNextDestination(elevator));
+        assertEquals(List.of(9, 14), destinationManager.getAllDestinations());
+        assertThrows(IllegalArgumentException.class, () -> SchedulingStrategyType.fromName("RANDOM"));
+    }
+
+    @Test
+    void testUpAndDownCallsOnOneFloorAreSeparateRequests() {
+        elevatorService.callElevator(7, ElevatorDirection.UP);
+        elevatorService.callElevator(7, ElevatorDirection.DOWN);
+        elevatorService.pressFloorButton(1, 7);
+
+        assertTrue(destinationManager.getUpwardFloors().contains(7));
+        assertTrue(destinationManager.getDownwardFloors().contains(7));
+        assertTrue(destinationManager.getHallUpFloors().contains(7));
+        assertTrue(destinationManager.getHallDownFloors().contains(7));
+        assertEquals(List.of(7), elevatorService.getCurrentElevatorState(1).carCalls());
+        assertEquals(List.of(7), destinationManager.getAllDestinations());
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testHallCallClearsWhenTheCarLeavesInItsDirection() {
+        Mockito.doReturn(true).when(safetyValidator).canOpenDoors(Mockito.any());
+        Mockito.doReturn(true).when(safetyValidator).canCloseDoors(Mockito.any());
+        elevatorService.callElevator(5, ElevatorDirection.UP);
+        elevatorService.callElevator(5, ElevatorDirection.DOWN);
+        elevatorService.pressFloorButton(1, 8);
+
+        runUntil(() -> elevator.getCurrentFloor() == 5 && elevator.getCurrentDoorState() == ElevatorDoor.OPENING);
+        // the UP call is answered but stays lit until the car leaves, the car comes back for the DOWN call
+        assertTrue(destinationManager.getHallUpFloors().contains(5));
+        assertFalse(destinationManager.getUpwardFloors().contains(5));
+        assertTrue(destinationManager.getDownwardFloors().contains(5));
+
+        runUntil(() -> elevator.getCurrentFloor() == 6);
+        assertFalse(destinationManager.getHallUpFloors().contains(5));
+        assertTrue(destinationManager.getHallDownFloors().contains(5));
+
+        // the car call is done as soon as the car stops at its floor
+        runUntil(() -> elevator.getCurrentFloor() == 8 && elevator.getCurrentDoorState() == ElevatorDoor.OPENING);
+        assertTrue(destinationManager.getCarCallFloors().isEmpty());
+
+        runUntil(() -> elevator.getCurrentFloor() == 5 && elevator.getCurrentDoorState() == ElevatorDoor.CLOSED
+                && elevator.getDoorOperationStartTimeMs() == 0);
+        assertFalse(destinationManager.getHallDownFloors().contains(5));
+        assertFalse(destinationManager.hasDestinations());
+    }
+
     @Test
     public void testElevatorDoesNotAddDuplicateFloorRequests() {
-        elevatorService.pressFloorButton(5);
-        elevatorService.pressFloorButton(5);
+        elevatorService.pressFloorButton(1, 5);
+        elevatorService.pressFloorButton(1, 5);
         elevatorService.processElevatorOperations();
         // check the floor queue is populated with ONE element
-        assertEquals(1, elevatorService.destinationManager.getAllDestinations().size());
+        assertEquals(1, destinationManager.getAllDestinations().size());
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testConcurrentFloorButtonPressesAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // every thread presses its own floor at the same time, no press may overwrite another
+            List<Future<?>> presses = IntStream.rangeClosed(2, 20)
+                    .<Future<?>>mapToObj(floor -> executor.submit(() -> elevatorService.pressFloorButton(1, floor)))
+                    .toList();
+            for (Future<?> press : presses) {
+                press.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(IntStream.rangeClosed(2, 20).boxed().toList(), destinationManager.getAllDestinations());
     }
 
     @Test
     public void testFloorBoundaries() {
         // Test invalid floors
         assertThrows(IllegalArgumentException.class, () ->
-                elevatorService.pressFloorButton(0));
+                elevatorService.pressFloorButton(1, 0));
 
         assertThrows(IllegalArgumentException.class, () ->
-                elevatorService.pressFloorButton(21));
+                elevatorService.pressFloorButton(1, 21));
     }
 
     @Test
@@ -189,21 +312,113 @@ public class ElevatorServiceTest {
         elevatorService.callElevator(5, ElevatorDirection.DOWN); // Same floor
         // Should open doors, not add to destinations
         assertEquals(ElevatorDoor.OPENING, elevator.getCurrentDoorState());
-        assertTrue(elevatorService.destinationManager.getAllDestinations().isEmpty());
+        assertTrue(destinationManager.getAllDestinations().isEmpty());
+    }
+
+    // =================== Scheduler Deadline Tests ================================
+    @Test
+    void testIdleCarWithoutDestinationsHasNoDeadline() {
+        assertEquals(Long.MAX_VALUE, elevatorService.getNextDeadlineMs());
+
+        elevatorService.pressFloorButton(1, 5);
+        // queued destination should be picked up straight away
+        assertTrue(elevatorService.getNextDeadlineMs() <= clock.millis());
+    }
+
+    @Test
+    void testMovingCarDeadlineIsEndOfFloorTravel() {
+        elevatorService.pressFloorButton(1, 5);
+        elevatorService.processElevatorOperations();
+
+        assertEquals(elevator.getMovementOperationStartTimeMs() + elevator.getFloorTravelTimeMs(),
+                elevatorService.getNextDeadlineMs());
+    }
+
+    @Test
+    void testLateTickAppliesEveryElapsedFloor() {
+        elevatorService.pressFloorButton(1, 10);
+        elevatorService.processElevatorOperations();
+
+        // pretend the scheduler was late and three and a half floor intervals elapsed since the car started
+        long travelTime = elevator.getFloorTravelTimeMs();
+        long startTime = elevator.getMovementOperationStartTimeMs();
+        clock.advance(Duration.ofMillis(3 * travelTime + travelTime / 2));
+        elevatorService.processElevatorOperations();
+
+        // all three floors are applied and the next floor is timed from the last one without drift
+        assertEquals(4, elevator.getCurrentFloor());
+        assertEquals(startTime + 3 * travelTime, elevator.getMovementOperationStartTimeMs());
+    }
+
+    @Test
+    void testListenersAreToldAboutCarCallTravelAndArrival() {
+        ElevatorEventListener listener = Mockito.mock(ElevatorEventListener.class);
+        elevatorService.addEventListener(listener);
+
+        elevatorService.pressFloorButton(1, 3);
+        for (int tick = 0; tick < 5; tick++) {
+            elevatorService.processElevatorOperations();
+            clock.advance(Duration.ofMillis(elevator.getFloorTravelTimeMs()));
+        }
+
+        Mockito.verify(listener).onCarCall(Mockito.eq(car), Mockito.eq(3), Mockito.anyLong());
+        Mockito.verify(listener).onFloorTraveled(car, 2);
+        Mockito.verify(listener).onFloorTraveled(car, 3);
+        Mockito.verify(listener).onCarArrived(Mockito.eq(car), Mockito.eq(3), Mockito.anyLong());
+    }
+
+    @Test
+    void testRestoredMovingCarResumesFromItsLastFloor() {
+        ElevatorDTO savedState = new ElevatorDTO(1, 42, 6, ElevatorMovement.MOVING, ElevatorDirection.UP,
+                ElevatorDoor.CLOSED, List.of(3, 9), List.of(9), List.of(3), List.of(9), 0);
+
+        elevatorService.restoreCarState(savedState);
+
+        ElevatorDTO restoredState = elevatorService.getCurrentElevatorState(1);
+        assertEquals(6, restoredState.currentFloor());
+        assertEquals(ElevatorMovement.IDLE, restoredState.state());
+        assertEquals(List.of(9), restoredState.upwardDestinations());
+        assertEquals(List.of(3), restoredState.downwardDestinations());
+        assertTrue(restoredState.version() > savedState.version());
+
+        // the next tick carries on upward to the floor it was heading to
+        elevatorService.processElevatorOperations();
+        assertEquals(ElevatorMovement.MOVING, elevator.getCurrentMovementState());
+        assertEquals(ElevatorDirection.UP, elevator.getDirection());
+    }
+
+    @Test
+    void testStateVersionOnlyChangesWithTheState() {
+        ElevatorDTO initialState = elevatorService.getCurrentElevatorState(1);
+        // ticking an idle car without work must not produce a new snapshot at all
+        elevatorService.processElevatorOperations();
+        assertSame(initialState, elevatorService.getCurrentElevatorState(1));
+
+        elevatorService.pressFloorButton(1, 4);
+        ElevatorDTO pressedState = elevatorService.getCurrentElevatorState(1);
+
+        assertEquals(initialState.version() + 1, pressedState.version());
+        ElevatorStateDelta delta = ElevatorStateDelta.between(initialState, pressedState);
+        assertEquals(List.of(4), delta.destinationFloors());
+        // unchanged fields are left out of the delta
+        assertNull(delta.currentFloor());
+        assertNull(delta.doorState());
+        // snapshots are shared between readers so nobody gets to change them
+        assertThrows(UnsupportedOperationException.class, () -> pressedState.destinationFloors().add(7));
     }
 
     // =================== Emergency Button Tests ================================
     @Test
     void testEmergencyStopClearsAllDestinationsAndSetsState() {
-        elevatorService.pressFloorButton(5);
+        elevatorService.pressFloorButton(1, 5);
         elevatorService.processElevatorOperations();
-        elevatorService.pressFloorButton(7);
+        elevatorService.pressFloorButton(1, 7);
         elevatorService.processElevatorOperations();
-        assertEquals(2, elevatorService.destinationManager.getAllDestinations().size());
+        assertEquals(2, destinationManager.getAllDestinations().size());
 
        //press emergency button
-        elevatorService.emergencyStop();
-        assertTrue(elevatorService.destinationManager.getAllDestinations().isEmpty());
+        elevatorService.emergencyStop(1);
+        assertTrue(destinationManager.getAllDestinations().isEmpty());
         assertEquals(ElevatorMovement.EMERGENCY,  elevator.getCurrentMovementState());
     }
 
@@ -212,32 +427,391 @@ public class ElevatorServiceTest {
     void testOpenDoorsWhenEmergencyModeThrowsException() {
         // setup
         elevator.setCurrentMovementState(ElevatorMovement.EMERGENCY);
-        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.openDoors());
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.openDoors(1));
     }
 
     @Test
     void testCloseDoorsWhenEmergencyModeThrowsException() {
         // setup
         elevator.setCurrentMovementState(ElevatorMovement.EMERGENCY);
-        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.closeDoors());
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.closeDoors(1));
     }
 
     @Test
     void testPressButtonWhenEmergencyModeThrowsException() {
         // setup
         elevator.setCurrentMovementState(ElevatorMovement.EMERGENCY);
-        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.pressFloorButton(1));
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.pressFloorButton(1, 1));
     }
 
     @Test
     void testClearEmergencyRemovesEmergencyState() {
         //press emergency button
-        elevatorService.emergencyStop();
+        elevatorService.emergencyStop(1);
         //assert that an open doors command throws exception
-        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.openDoors());
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.openDoors(1));
         //clear the emergency
-        elevatorService.emergencyClear();
+        elevatorService.emergencyClear(1);
         //exception is NOT thrown
-        assertDoesNotThrow(() -> elevatorService.pressFloorButton(5));
+        assertDoesNotThrow(() -> elevatorService.pressFloorButton(1, 5));
+    }
+
+    // =================== Elevator Bank Tests ================================
+    // drive the car on the virtual clock until the condition holds
+    private void runUntil(BooleanSupplier condition) {
+        while (!condition.getAsBoolean()) {
+            elevatorService.processElevatorOperations();
+            clock.advance(Duration.ofMillis(100));
+        }
+    }
+
+    private ElevatorCar createCarAtFloor(int id, int floor) {
+        ElevatorState state = new ElevatorState(id);
+        state.setCurrentFloor(floor);
+        return new ElevatorCar(state, new ElevatorDestinationManager());
+    }
+
+    @Test
+    void testHallCallAssignedToNearestCar() {
+        ElevatorCar lowCar = createCarAtFloor(1, 1);
+        ElevatorCar highCar = createCarAtFloor(2, 10);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(lowCar, highCar));
+
+        int assignedCar = elevatorService.callElevator(9, ElevatorDirection.DOWN);
+
+        // only the closest car should have the hall call queued
+        assertEquals(2, assignedCar);
+        assertTrue(highCar.getDestinationManager().getDownwardFloors().contains(9));
+        assertFalse(lowCar.getDestinationManager().hasDestinations());
+    }
+
+    @Test
+    void testHallCallGoesToCarThatArrivesFirstNotTheNearestOne() {
+        // closer car is on its way up but stops at every floor before the call
+        ElevatorCar busyCar = createCarAtFloor(1, 3);
+        busyCar.getState().setCurrentMovementState(ElevatorMovement.MOVING);
+        busyCar.getState().setDirection(ElevatorDirection.UP);
+        IntStream.rangeClosed(4, 10).forEach(floor -> busyCar.getDestinationManager().addDestination(floor, busyCar.getState()));
+        busyCar.refreshSnapshot();
+        ElevatorCar idleCar = createCarAtFloor(2, 1);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(busyCar, idleCar));
+
+        int assignedCar = elevatorService.callElevator(11, ElevatorDirection.UP);
+
+        assertEquals(2, assignedCar);
+        assertTrue(idleCar.getDestinationManager().getUpwardFloors().contains(11));
+    }
+
+    @Test
+    void testWaitingHallCallMovesToCarThatCanArriveSooner() {
+        ElevatorCar lowCar = createCarAtFloor(1, 1);
+        ElevatorCar highCar = createCarAtFloor(2, 15);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(lowCar, highCar));
+        assertEquals(2, elevatorService.callElevator(10, ElevatorDirection.DOWN));
+
+        // passengers in the high car send it up first, now the low car is a lot sooner
+        IntStream.rangeClosed(16, 19).forEach(floor -> elevatorService.pressFloorButton(2, floor));
+        ElevatorCar betterCar = groupDispatcher.findBetterCar(highCar, 10, ElevatorDirection.DOWN, elevatorService.elevatorBank.getCars());
+        assertSame(lowCar, betterCar);
+
+        assertTrue(elevatorService.reassignHallCall(2, 1, 10, ElevatorDirection.DOWN, clock.millis()));
+        assertTrue(lowCar.getDestinationManager().getDownwardFloors().contains(10));
+        assertEquals(List.of(16, 17, 18, 19), highCar.getDestinationManager().getAllDestinations());
+
+        // a floor somebody asked for inside the car is never taken away from it
+        elevatorService.pressFloorButton(1, 12);
+        assertFalse(elevatorService.reassignHallCall(1, 2, 12, ElevatorDirection.DOWN, clock.millis()));
+        assertTrue(lowCar.getDestinationManager().getUpwardFloors().contains(12));
+    }
+
+    @Test
+    void testFullCarPassesHallCallsUntilPeopleGotOut() {
+        Mockito.doReturn(true).when(safetyValidator).canOpenDoors(Mockito.any());
+        Mockito.doReturn(true).when(safetyValidator).canCloseDoors(Mockito.any());
+        ElevatorCar farCar = createCarAtFloor(2, 20);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(car, farCar));
+        elevatorService.pressFloorButton(1, 10);
+        elevatorService.updateCarLoad(1, 900);
+        assertEquals(900, elevatorService.getCurrentElevatorState(1).loadKg());
+
+        // the close car is full, the far one has room
+        assertEquals(2, elevatorService.callElevator(5, ElevatorDirection.UP));
+
+        // with no other car left the full car takes the call, but doesn't stop for it on its way up
+        elevatorService.emergencyStop(2);
+        assertEquals(1, elevatorService.callElevator(5, ElevatorDirection.UP));
+        runUntil(() -> elevator.getCurrentFloor() == 6);
+        assertEquals(ElevatorMovement.MOVING, elevator.getCurrentMovementState());
+        assertEquals(List.of(10), car.getSnapshot().destinationFloors());
+        assertTrue(destinationManager.getHallUpFloors().contains(5));
+
+        // people got out at floor 10, the call is queued again and served on the way back
+        runUntil(() -> elevator.getCurrentFloor() == 10 && elevator.getCurrentDoorState() == ElevatorDoor.OPENING);
+        assertTrue(destinationManager.getUpwardFloors().contains(5));
+        elevatorService.updateCarLoad(1, 150);
+        runUntil(() -> elevator.getCurrentFloor() == 5 && elevator.getCurrentDoorState() == ElevatorDoor.OPENING);
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.updateCarLoad(1, -1));
+    }
+
+    @Test
+    void testZonedCarOnlyServesItsFloorsAndRunsExpressPastTheOthers() {
+        elevator.setZone(ElevatorZone.parse("high:1,15-20", 1, 20));
+        elevator.setFloorTravelTimeMs(4000);
+        elevator.setExpressFloorTravelTimeMs(500);
+        ElevatorCar lowCar = createCarAtFloor(2, 12);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(car, lowCar));
+
+        // the high-rise car is closer but has no stop at floor 5
+        assertEquals(2, elevatorService.callElevator(5, ElevatorDirection.UP));
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.callElevator(5, ElevatorDirection.UP, "high"));
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.pressFloorButton(1, 5));
+
+        // 13 floors express and the last one at normal speed
+        long start = clock.millis();
+        elevatorService.pressFloorButton(1, 15);
+        runUntil(() -> elevator.getCurrentFloor() == 15);
+        long travelTime = clock.millis() - start;
+        assertTrue(travelTime >= 13 * 500 + 4000 && travelTime <= 13 * 500 + 4000 + 200, "took " + travelTime + "ms");
+    }
+
+    @Test
+    void testIdleCarsParkSpreadOutAtTheBusiestFloors() {
+        parkingPolicy.enabled = true;
+        parkingPolicy.idleDelay = Duration.ofSeconds(20);
+        parkingPolicy.timeSlot = Duration.ofMinutes(15);
+        parkingPolicy.minCalls = 20;
+        ElevatorCar firstCar = createCarAtFloor(1, 1);
+        ElevatorCar secondCar = createCarAtFloor(2, 1);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(firstCar, secondCar));
+        for (int call = 0; call < 30; call++) {
+            parkingPolicy.recordHallCall(elevatorService.elevatorBank, 5, clock.millis());
+            parkingPolicy.recordHallCall(elevatorService.elevatorBank, 15, clock.millis());
+        }
+        firstCar.getState().setIdleSinceMs(clock.millis() - 20_000);
+        secondCar.getState().setIdleSinceMs(clock.millis() - 20_000);
+
+        elevatorService.processElevatorOperations();
+        // nobody asked for the parking floors, readers just see cars moving without destinations
+        assertEquals(ElevatorMovement.MOVING, firstCar.getSnapshot().state());
+        assertTrue(firstCar.getSnapshot().destinationFloors().isEmpty());
+
+        runUntil(() -> firstCar.getState().getCurrentMovementState() == ElevatorMovement.IDLE
+                && secondCar.getState().getCurrentMovementState() == ElevatorMovement.IDLE);
+        // the second car covers the floor the first one left behind, and both wait with their doors closed
+        assertEquals(15, firstCar.getState().getCurrentFloor());
+        assertEquals(5, secondCar.getState().getCurrentFloor());
+        assertEquals(ElevatorDoor.CLOSED, firstCar.getState().getCurrentDoorState());
+        assertEquals(ElevatorDoor.CLOSED, secondCar.getState().getCurrentDoorState());
+
+        // looked at again after the next idle delay, they are already where they should be
+        clock.advance(Duration.ofSeconds(20));
+        elevatorService.processElevatorOperations();
+        assertEquals(ElevatorMovement.IDLE, firstCar.getState().getCurrentMovementState());
+        assertEquals(ElevatorMovement.IDLE, secondCar.getState().getCurrentMovementState());
+    }
+
+    @Test
+    void testUpPeakSendsIdleCarsToTheLobbyToFillUp() {
+        trafficModeDetector.enabled = true;
+        trafficModeDetector.window = Duration.ofMinutes(5);
+        trafficModeDetector.minCalls = 12;
+        trafficModeDetector.lobbyDwell = Duration.ofSeconds(10);
+        parkingPolicy.idleDelay = Duration.ofSeconds(20);
+        elevator.setCurrentFloor(9);
+        elevator.setIdleSinceMs(clock.millis());
+
+        // a few people leaving don't change anything, a stream of people entering at the lobby does
+        trafficModeDetector.recordHallCall(elevatorService.elevatorBank, 7, ElevatorDirection.DOWN, clock.millis());
+        trafficModeDetector.recordCarCall(elevatorService.elevatorBank, 7, 1, clock.millis());
+        for (int call = 0; call < 5; call++) {
+            assertEquals(TrafficMode.NORMAL, elevatorService.getTrafficMode());
+            trafficModeDetector.recordHallCall(elevatorService.elevatorBank, 1, ElevatorDirection.UP, clock.millis());
+            trafficModeDetector.recordCarCall(elevatorService.elevatorBank, 1, 5 + call, clock.millis());
+        }
+        assertEquals(TrafficMode.UP_PEAK, elevatorService.getTrafficMode());
+
+        // no idle delay, the car goes straight back and waits at the lobby with its doors open longer
+        elevatorService.processElevatorOperations();
+        assertEquals(ElevatorMovement.MOVING, elevator.getCurrentMovementState());
+        runUntil(() -> elevator.getCurrentMovementState() == ElevatorMovement.IDLE);
+        assertEquals(1, elevator.getCurrentFloor());
+        assertEquals(ElevatorDoor.CLOSED, elevator.getCurrentDoorState());
+        Mockito.doReturn(true).when(safetyValidator).canOpenDoors(Mockito.any());
+        Mockito.doReturn(true).when(safetyValidator).canCloseDoors(Mockito.any());
+        elevatorService.pressFloorButton(1, 1);
+        elevatorService.processElevatorOperations();
+        long opened = clock.millis();
+        runUntil(() -> elevator.getCurrentDoorState() == ElevatorDoor.CLOSING);
+        assertTrue(clock.millis() - opened >= 13_000);
+
+        // once the window has passed the bank is back to normal
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(TrafficMode.NORMAL, elevatorService.getTrafficMode());
+    }
+
+    @Test
+    void testCarCallOnlyGoesToCarItWasPressedIn() {
+        ElevatorCar firstCar = createCarAtFloor(1, 1);
+        ElevatorCar secondCar = createCarAtFloor(2, 1);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(firstCar, secondCar));
+
+        elevatorService.pressFloorButton(2, 7);
+
+        assertEquals(List.of(7), secondCar.getDestinationManager().getAllDestinations());
+        assertFalse(firstCar.getDestinationManager().hasDestinations());
+    }
+
+    @Test
+    void testEmergencyStopInOneCarDoesNotBlockHallCalls() {
+        ElevatorCar firstCar = createCarAtFloor(1, 5);
+        ElevatorCar secondCar = createCarAtFloor(2, 15);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(firstCar, secondCar));
+
+        elevatorService.emergencyStop(1);
+
+        // first car is closer but blocked so the call goes to the second car
+        assertEquals(2, elevatorService.callElevator(6, ElevatorDirection.UP));
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.pressFloorButton(1, 6));
+    }
+
+    @Test
+    void testUnknownCarIdThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.pressFloorButton(3, 5));
+    }
+
+    // =================== Batch Command Tests ================================
+    @Test
+    void testBatchAppliesEveryItemAndSuppressesDuplicates() {
+        ElevatorCar firstCar = createCarAtFloor(1, 1);
+        ElevatorCar secondCar = createCarAtFloor(2, 12);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(firstCar, secondCar));
+
+        List<ElevatorCommandResult> results = elevatorService.executeBatch(List.of(
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 1, 5, null),
+                new ElevatorCommandRequest(CommandType.HALL_CALL, null, 11, ElevatorDirection.DOWN),
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 1, 5, null),
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 1, 99, null),
+                new ElevatorCommandRequest(CommandType.HALL_CALL, null, 4, ElevatorDirection.NONE)));
+
+        assertEquals(List.of(Status.ACCEPTED, Status.ACCEPTED, Status.DUPLICATE, Status.REJECTED, Status.REJECTED),
+                results.stream().map(ElevatorCommandResult::status).toList());
+        // hall call went to the nearest car, the repeated car call was only applied once
+        assertEquals(2, results.get(1).carId());
+        assertEquals(List.of(5), firstCar.getDestinationManager().getAllDestinations());
+        assertEquals(List.of(11), secondCar.getDestinationManager().getAllDestinations());
+    }
+
+    @Test
+    void testBatchRejectsOnlyTheItemsOfACarInEmergency() {
+        ElevatorCar firstCar = createCarAtFloor(1, 1);
+        ElevatorCar secondCar = createCarAtFloor(2, 1);
+        elevatorService.elevatorBank = new ElevatorBank(List.of(firstCar, secondCar));
+        elevatorService.emergencyStop(1);
+
+        List<ElevatorCommandResult> results = elevatorService.executeBatch(List.of(
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 1, 5, null),
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 1, 6, null),
+                new ElevatorCommandRequest(CommandType.CAR_CALL, 2, 7, null)));
+
+        assertEquals(List.of(Status.REJECTED, Status.REJECTED, Status.ACCEPTED),
+                results.stream().map(ElevatorCommandResult::status).toList());
+        assertFalse(firstCar.getDestinationManager().hasDestinations());
+        assertEquals(List.of(7), secondCar.getDestinationManager().getAllDestinations());
+    }
+
+    @Test
+    void testAsyncPressReturnsOnceQueuedAndCompletesWhenApplied() {
+        // a control thread that never runs, so the press stays queued until the test applies it
+        car.getMailbox().bindControlThread(() -> {});
+        PendingCommand pendingCommand = elevatorService.pressFloorButtonAsync(elevatorService.elevatorBank, 1, 8);
+        assertEquals(1, pendingCommand.carId());
+        assertFalse(pendingCommand.applied().isDone());
+        assertFalse(destinationManager.hasDestinations());
+
+        car.getMailbox().runAsWriter(() -> car.getMailbox().drain(Integer.MAX_VALUE));
+        assertTrue(pendingCommand.applied().isDone());
+        assertEquals(List.of(8), destinationManager.getAllDestinations());
+
+        // a stopped car turns the press away before anything is queued
+        car.getMailbox().unbindControlThread();
+        elevatorService.emergencyStop(1);
+        car.getMailbox().bindControlThread(() -> {});
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.pressFloorButtonAsync(elevatorService.elevatorBank, 1, 9));
+        assertFalse(car.getMailbox().hasPendingCommands());
+    }
+
+    @Test
+    void testRepeatedPressesOfALitButtonNeverReachTheCar() {
+        coalescer.enabled = true;
+        ElevatorBank bank = elevatorService.elevatorBank;
+        elevatorService.pressFloorButton(1, 8);
+        elevatorService.callElevator(5, ElevatorDirection.DOWN);
+
+        // a control thread that never runs, a press that reaches the car stays queued
+        car.getMailbox().bindControlThread(() -> {});
+        PendingCommand repeatedCarCall = elevatorService.pressFloorButtonAsync(bank, 1, 8);
+        PendingCommand repeatedHallCall = elevatorService.callElevatorAsync(bank, 5, ElevatorDirection.DOWN, null);
+        assertTrue(repeatedCarCall.applied().isDone());
+        assertTrue(repeatedHallCall.applied().isDone());
+        assertEquals(1, repeatedHallCall.carId());
+        assertFalse(car.getMailbox().hasPendingCommands());
+        assertEquals(2, coalescer.getAbsorbedPresses());
+        assertEquals(2, coalescer.getCarCallPresses(bank, 8));
+        assertEquals(2, coalescer.getHallPresses(bank, 5, ElevatorDirection.DOWN));
+
+        // the other button of the floor isn't lit
+        elevatorService.callElevatorAsync(bank, 5, ElevatorDirection.UP, null);
+        assertTrue(car.getMailbox().hasPendingCommands());
+        assertEquals(1, coalescer.getHallPresses(bank, 5, ElevatorDirection.UP));
+
+        // a stopped car still turns a repeated press away
+        car.getMailbox().runAsWriter(() -> car.getMailbox().drain(Integer.MAX_VALUE));
+        car.getMailbox().unbindControlThread();
+        elevatorService.emergencyStop(1);
+        assertThrows(ElevatorEmergencyException.class, () -> elevatorService.pressFloorButtonAsync(bank, 1, 8));
+        assertEquals(2, coalescer.getAbsorbedPresses());
+    }
+
+    @Test
+    void testBothHallCallsOfAFloorAreRedispatchedWhenTheirCarStops() {
+        ElevatorBank hostedBank = elevatorService.elevatorBank.createBank("hq", "low", 2, 10);
+        ElevatorCar firstCar = hostedBank.getCar(1);
+        ElevatorCar secondCar = hostedBank.getCar(2);
+        HallCallReassigner reassigner = new HallCallReassigner();
+        reassigner.elevatorService = elevatorService;
+        reassigner.groupDispatcher = groupDispatcher;
+        reassigner.portfolio = Mockito.mock(ElevatorPortfolio.class);
+        Mockito.when(reassigner.portfolio.getCars()).thenReturn(hostedBank.getCars());
+        reassigner.register();
+
+        // the second car is out of service, so the first one takes both buttons of floor 7
+        elevatorService.emergencyStop(hostedBank, 2);
+        assertEquals(1, elevatorService.callElevator(hostedBank, 7, ElevatorDirection.UP, null));
+        assertEquals(1, elevatorService.callElevator(hostedBank, 7, ElevatorDirection.DOWN, null));
+        elevatorService.emergencyClear(hostedBank, 2);
+
+        elevatorService.emergencyStop(hostedBank, 1);
+        reassigner.reassignHallCalls();
+        assertTrue(secondCar.getDestinationManager().isHallCallPending(7, ElevatorDirection.UP));
+        assertTrue(secondCar.getDestinationManager().isHallCallPending(7, ElevatorDirection.DOWN));
+        assertFalse(firstCar.getDestinationManager().hasDestinations());
+    }
+
+    @Test
+    void testHostedBankKeepsItsCarsApartFromTheDefaultBank() {
+        ElevatorBank hostedBank = elevatorService.elevatorBank.createBank("hq", "low", 2, 10);
+        assertEquals("hq/low", hostedBank.toString());
+        assertEquals(10, hostedBank.getMaxFloor());
+
+        // same car id in another bank is another car
+        elevatorService.emergencyStop(hostedBank, 1);
+        elevatorService.pressFloorButton(1, 15);
+        elevatorService.pressFloorButton(hostedBank, 2, 7);
+        assertEquals(List.of(15), car.getDestinationManager().getAllDestinations());
+        assertEquals(List.of(7), hostedBank.getCar(2).getDestinationManager().getAllDestinations());
+        assertEquals(2, elevatorService.callElevator(hostedBank, 4, ElevatorDirection.UP, null));
+
+        // the hosted bank only has 10 floors
+        assertThrows(IllegalArgumentException.class, () -> elevatorService.pressFloorButton(hostedBank, 2, 15));
     }
 }
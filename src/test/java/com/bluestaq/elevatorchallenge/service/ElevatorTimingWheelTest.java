@@ -0,0 +1,77 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the timing wheel, with 8 buckets of 10ms so deadlines a few rotations out are easy to reach
+ */
+public class ElevatorTimingWheelTest {
+
+    private final ElevatorTimingWheel<String> wheel = new ElevatorTimingWheel<>(10, 8, 1000);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void testTimersExpireOnTheirTickAndNeverEarly() {
+        ElevatorTimingWheel.Timer<String> door = wheel.newTimer("door");
+        ElevatorTimingWheel.Timer<String> travel = wheel.newTimer("travel");
+        wheel.schedule(door, 1025);
+        // 3 rotations out, shares the bucket of the door timer until then
+        wheel.schedule(travel, 1265);
+        assertEquals(2, wheel.size());
+        assertEquals(1030, wheel.nextTickMs());
+
+        wheel.advance(1029, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(1030, expired::add);
+        assertEquals(List.of("door"), expired);
+        assertFalse(door.isScheduled());
+
+        wheel.advance(1269, expired::add);
+        assertEquals(List.of("door"), expired);
+        wheel.advance(1270, expired::add);
+        assertEquals(List.of("door", "travel"), expired);
+        assertEquals(0, wheel.size());
+        assertEquals(Long.MAX_VALUE, wheel.nextTickMs());
+    }
+
+    @Test
+    void testRescheduleAndCancelMoveTheTimer() {
+        ElevatorTimingWheel.Timer<String> dwell = wheel.newTimer("dwell");
+        wheel.schedule(dwell, 1050);
+        // the open door button resets the dwell, the old deadline is gone
+        wheel.schedule(dwell, 1090);
+        assertEquals(1, wheel.size());
+        wheel.advance(1080, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(1090, expired::add);
+        assertEquals(List.of("dwell"), expired);
+
+        wheel.schedule(dwell, 1200);
+        wheel.cancel(dwell);
+        wheel.cancel(dwell);
+        assertEquals(0, wheel.size());
+        wheel.advance(5000, expired::add);
+        assertEquals(List.of("dwell"), expired);
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnTheNextTick() {
+        wheel.advance(2000, expired::add);
+        ElevatorTimingWheel.Timer<String> late = wheel.newTimer("late");
+        wheel.schedule(late, 0);
+        assertEquals(2010, wheel.nextTickMs());
+        wheel.advance(2010, expired::add);
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    void testWheelSizeHasToBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ElevatorTimingWheel<>(10, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ElevatorTimingWheel<>(0, 8, 0));
+    }
+}
@@ -0,0 +1,95 @@
+package com.bluestaq.elevatorchallenge.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.bluestaq.elevatorchallenge.service.FloorBitSet.NO_FLOOR;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the primitive floor set, with floors picked on both sides of the 64 floor word boundaries
+ */
+public class FloorBitSetTest {
+
+    @Test
+    void testAddAndRemoveReportWhetherTheSetChanged() {
+        FloorBitSet floors = new FloorBitSet(200);
+
+        assertTrue(floors.add(5));
+        assertFalse(floors.add(5));
+        assertTrue(floors.contains(5));
+        assertEquals(1, floors.size());
+
+        assertTrue(floors.remove(5));
+        assertFalse(floors.remove(5));
+        assertTrue(floors.isEmpty());
+    }
+
+    @Test
+    void testNextAboveAndBelowAcrossWordBoundaries() {
+        FloorBitSet floors = new FloorBitSet(300);
+        List.of(3, 63, 64, 130, 300).forEach(floors::add);
+
+        assertEquals(63, floors.nextAbove(3));
+        assertEquals(64, floors.nextAbove(63));
+        assertEquals(130, floors.nextAbove(64));
+        assertEquals(300, floors.nextAbove(130));
+        assertEquals(NO_FLOOR, floors.nextAbove(300));
+
+        assertEquals(130, floors.nextBelow(300));
+        assertEquals(64, floors.nextBelow(130));
+        assertEquals(63, floors.nextBelow(64));
+        assertEquals(3, floors.nextBelow(63));
+        assertEquals(NO_FLOOR, floors.nextBelow(3));
+
+        assertEquals(3, floors.min());
+        assertEquals(300, floors.max());
+        assertEquals(List.of(3, 63, 64, 130, 300), floors.toList());
+        assertEquals(List.of(300, 130, 64, 63, 3), floors.toDescendingList());
+    }
+
+    @Test
+    void testEmptySetHasNoFloors() {
+        FloorBitSet floors = new FloorBitSet(20);
+
+        assertEquals(NO_FLOOR, floors.min());
+        assertEquals(NO_FLOOR, floors.max());
+        assertEquals(NO_FLOOR, floors.nextAbove(10));
+        assertEquals(NO_FLOOR, floors.nextBelow(10));
+        assertFalse(floors.contains(21));
+    }
+
+    @Test
+    void testFloorOutsideOfRangeThrowsException() {
+        FloorBitSet floors = new FloorBitSet(20);
+        assertThrows(IllegalArgumentException.class, () -> floors.add(21));
+        assertThrows(IllegalArgumentException.class, () -> floors.add(-1));
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testConcurrentAddsToTheSameWordAreNotLost() throws Exception {
+        FloorBitSet floors = new FloorBitSet(63);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // every floor lives in the same word so the threads race on one compare and set
+            List<Future<Boolean>> adds = IntStream.rangeClosed(0, 63)
+                    .mapToObj(floor -> executor.submit(() -> floors.add(floor)))
+                    .toList();
+            for (Future<Boolean> add : adds) {
+                assertTrue(add.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(64, floors.size());
+    }
+}
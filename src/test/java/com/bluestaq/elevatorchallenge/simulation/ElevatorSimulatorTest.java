@@ -0,0 +1,66 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the real elevator service in the simulation profile to make sure a full simulated day of traffic
+ * completes in a fraction of the real time and every request gets served
+ */
+@SpringBootTest
+@ActiveProfiles("simulation")
+public class ElevatorSimulatorTest {
+
+    @Autowired
+    ElevatorSimulator simulator;
+
+    @Autowired
+    ElevatorService elevatorService;
+
+    @Autowired
+    SimulationClock clock;
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testSimulatesFullDayOfTrafficInSeconds() {
+        long startTime = clock.millis();
+        Random random = new Random(42);
+
+        // a passenger every two minutes for 23 hours, leaving the last hour to finish serving everyone
+        for (long offset = 0; offset < Duration.ofHours(23).toMillis(); offset += Duration.ofMinutes(2).toMillis()) {
+            int origin = 1 + random.nextInt(20);
+            int destination = 1 + random.nextInt(20);
+            if (origin == destination) {
+                continue;
+            }
+            ElevatorDirection direction = ElevatorDirection.between(origin, destination);
+            simulator.scheduleAt(startTime + offset, service -> {
+                int carId = service.callElevator(origin, direction);
+                service.pressFloorButton(carId, destination);
+            });
+        }
+
+        SimulationResult result = simulator.run(Duration.ofHours(24));
+
+        assertEquals(Duration.ofHours(24), result.simulatedTime());
+        assertEquals(startTime + Duration.ofHours(24).toMillis(), clock.millis());
+        assertTrue(result.wallClockTime().compareTo(Duration.ofSeconds(30)) < 0);
+        assertTrue(result.scheduledEventsFired() > 0);
+        // every car should be parked with nothing left to do at the end of the day
+        for (ElevatorDTO car : elevatorService.getElevatorBankState()) {
+            assertTrue(car.destinationFloors().isEmpty(), "car " + car.carId() + " still has destinations");
+        }
+    }
+}
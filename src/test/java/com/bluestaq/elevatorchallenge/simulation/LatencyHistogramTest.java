@@ -0,0 +1,33 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesFollowRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 90_000);
+        // 1..100 seconds, one value each
+        for (int seconds = 1; seconds <= 100; seconds++) {
+            histogram.record(seconds * 1000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50_500, histogram.mean(), 0.001);
+        assertEquals(50_000, histogram.percentile(50), 100);
+        assertEquals(80_000, histogram.percentile(80), 100);
+        // values above the range all share the last bucket, percentiles there report the exact max
+        assertEquals(100_000, histogram.percentile(95));
+        assertEquals(100_000, histogram.getMax());
+    }
+
+    @Test
+    void testEmptyHistogramAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 1000);
+
+        assertEquals(0, histogram.percentile(99));
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+    }
+}
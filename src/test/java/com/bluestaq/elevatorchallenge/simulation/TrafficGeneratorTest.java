@@ -0,0 +1,40 @@
+package com.bluestaq.elevatorchallenge.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives simulated passengers through the real elevator service and checks the KPI report adds up
+ */
+@SpringBootTest
+@ActiveProfiles("simulation")
+public class TrafficGeneratorTest {
+
+    @Autowired
+    TrafficGenerator trafficGenerator;
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testUpPeakTrafficIsDeliveredAndReported() {
+        TrafficReport report = trafficGenerator.run(TrafficProfile.UP_PEAK, 4, Duration.ofMinutes(30), 7);
+
+        assertTrue(report.passengersGenerated() > 60, "expected about 120 passengers, got " + report.passengersGenerated());
+        assertEquals(report.passengersGenerated(), report.passengersDelivered());
+        assertEquals(report.passengersDelivered(), report.journeyTime().count());
+
+        TrafficReport.LatencySummary journeyTime = report.journeyTime();
+        assertTrue(journeyTime.p50Ms() <= journeyTime.p95Ms());
+        assertTrue(journeyTime.p95Ms() <= journeyTime.p99Ms());
+        assertTrue(journeyTime.p99Ms() <= journeyTime.maxMs());
+        // a journey is always at least as long as its ride
+        assertTrue(journeyTime.meanMs() >= report.rideTime().meanMs());
+    }
+}
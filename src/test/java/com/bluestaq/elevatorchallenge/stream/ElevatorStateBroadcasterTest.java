@@ -0,0 +1,163 @@
+package com.bluestaq.elevatorchallenge.stream;
+
+import com.bluestaq.elevatorchallenge.dto.ElevatorDTO;
+import com.bluestaq.elevatorchallenge.dto.ElevatorStateDelta;
+import com.bluestaq.elevatorchallenge.service.ElevatorBank;
+import com.bluestaq.elevatorchallenge.service.ElevatorCar;
+import com.bluestaq.elevatorchallenge.service.ElevatorDestinationManager;
+import com.bluestaq.elevatorchallenge.service.ElevatorDirection;
+import com.bluestaq.elevatorchallenge.service.ElevatorDoor;
+import com.bluestaq.elevatorchallenge.service.ElevatorMovement;
+import com.bluestaq.elevatorchallenge.service.ElevatorService;
+import com.bluestaq.elevatorchallenge.service.ElevatorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@Timeout(10)
+public class ElevatorStateBroadcasterTest {
+
+    ElevatorStateBroadcaster broadcaster;
+    ElevatorCar car;
+    // what the car last published
+    AtomicReference<ElevatorDTO> carState = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        car = new ElevatorCar(new ElevatorState(1), new ElevatorDestinationManager(20));
+        ElevatorService elevatorService = Mockito.mock(ElevatorService.class);
+        when(elevatorService.getCurrentElevatorState(1)).thenAnswer(invocation -> carState.get());
+        when(elevatorService.getElevatorBankState()).thenAnswer(invocation -> List.of(carState.get()));
+
+        broadcaster = new ElevatorStateBroadcaster();
+        broadcaster.elevatorService = elevatorService;
+        broadcaster.elevatorBank = new ElevatorBank(List.of(car));
+        broadcaster.queueSize = 8;
+        carState.set(state(3, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testSubscriberGetsTheStateItJoinedWithThenDeltasOnTopOfIt() throws Exception {
+        RecordingEmitter display = new RecordingEmitter();
+        broadcaster.subscribe(1, display);
+        assertEquals(new Event("state", carState.get()), display.next());
+
+        // already part of the initial state
+        moveTo(state(2, 1), state(3, 1));
+        moveTo(state(3, 1), state(4, 2));
+        Event delta = display.next();
+        assertEquals("delta", delta.name());
+        assertEquals(4, ((ElevatorStateDelta) delta.data()).version());
+        assertEquals(2, ((ElevatorStateDelta) delta.data()).currentFloor());
+        assertNull(((ElevatorStateDelta) delta.data()).doorState());
+
+        // a delta on top of a version the display never got is sent as the full state
+        moveTo(state(5, 3), state(6, 4));
+        assertEquals(new Event("state", state(6, 4)), display.next());
+        assertNull(display.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testStalledDisplayOnlyHoldsUpItselfAndCatchesUpWithTheLatestState() throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        RecordingEmitter stalledDisplay = new RecordingEmitter(stalled);
+        RecordingEmitter display = new RecordingEmitter();
+        broadcaster.subscribe(null, stalledDisplay);
+        broadcaster.subscribe(1, display);
+        assertEquals(new Event("state", state(3, 1)), display.next());
+
+        // far more changes than the stalled display can queue, the other display gets every one of them
+        for (long version = 4; version <= 200; version++) {
+            moveTo(state(version - 1, 1 + (int) (version - 1) % 20), state(version, 1 + (int) version % 20));
+            Event delta = display.next();
+            assertEquals("delta", delta.name());
+            assertEquals(version, ((ElevatorStateDelta) delta.data()).version());
+        }
+
+        // the stale deltas are gone, the stalled display gets the latest state once it reads again
+        stalled.countDown();
+        List<Event> caughtUp = new ArrayList<>();
+        for (Event event = stalledDisplay.next(); event != null; event = stalledDisplay.events.poll(100, TimeUnit.MILLISECONDS)) {
+            caughtUp.add(event);
+        }
+        // the state it was stuck sending, if it got that far, then the latest one
+        assertTrue(caughtUp.size() <= 2, "stale events sent: " + caughtUp);
+        assertTrue(caughtUp.stream().allMatch(event -> event.name().equals("state")));
+        assertEquals(new Event("state", carState.get()), caughtUp.getLast());
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    private void moveTo(ElevatorDTO previous, ElevatorDTO current) {
+        carState.set(current);
+        broadcaster.onStateChanged(car, previous, current);
+    }
+
+    private static ElevatorDTO state(long version, int floor) {
+        return new ElevatorDTO(1, version, floor, ElevatorMovement.IDLE, ElevatorDirection.NONE, ElevatorDoor.CLOSED,
+                List.of(), List.of(), List.of(), List.of(), 0);
+    }
+
+    private record Event(String name, Object data) {
+    }
+
+    // keeps the events it was sent instead of writing them, optionally blocks like a display that stopped reading
+    private static final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch reading;
+
+        private RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        private RecordingEmitter(CountDownLatch reading) {
+            super(0L);
+            this.reading = reading;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                reading.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            String name = null;
+            Object data = null;
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text && text.startsWith("event:")) {
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                } else if (!(part.getData() instanceof String)) {
+                    data = part.getData();
+                }
+            }
+            events.add(new Event(name, data));
+        }
+
+        private Event next() throws InterruptedException {
+            Event event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event sent");
+            return event;
+        }
+    }
+}